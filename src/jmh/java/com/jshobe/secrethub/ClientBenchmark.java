@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code ClientBenchmark} measures the cost of the Java side of the {@link Client} operations,
+ * using {@link InMemorySecretHubLibrary} in place of the native library.
+ *
+ * <p>Run with {@code ./gradlew jmh}. The GC profiler is enabled in the build, so the results
+ * include the allocation rate of each operation.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientBenchmark {
+
+  private static final String PATH = "jasonshobe/secrethub-java/test";
+  private static final String MISSING_PATH = "jasonshobe/secrethub-java/missing";
+
+  @Param({"32", "4096"})
+  int dataSize;
+
+  private Client client;
+  private Client lazyClient;
+  private Client hedgedClient;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SecretHubException {
+    InMemorySecretHubLibrary library = new InMemorySecretHubLibrary();
+    library.put(PATH, createData(dataSize));
+    client = library.createClient(ClientOptions.defaults());
+    lazyClient = library.createClient(ClientOptions.builder().lazyConversion(true).build());
+    hedgedClient = library.createClient(ClientOptions.builder().hedgeReads(true).build());
+
+    // complete enough reads for the hedge delay to be calculated, so that each read is handed to
+    // a hedge thread
+    for (int i = 0; i < 64; i++) {
+      hedgedClient.readString(PATH);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    lazyClient.close();
+    hedgedClient.close();
+  }
+
+  @Benchmark
+  public SecretVersion read() throws SecretHubException {
+    return client.read(PATH);
+  }
+
+  @Benchmark
+  public SecretVersion readLazy() throws SecretHubException {
+    return lazyClient.read(PATH);
+  }
+
+  @Benchmark
+  public String readString() throws SecretHubException {
+    return client.readString(PATH);
+  }
+
+  @Benchmark
+  public String readHedged() throws SecretHubException {
+    return hedgedClient.readString(PATH);
+  }
+
+  @Benchmark
+  public String resolve() throws SecretHubException {
+    return client.resolve("secrethub://" + PATH);
+  }
+
+  @Benchmark
+  public Map<String, String> resolveEnv() throws SecretHubException {
+    return client.resolveEnv();
+  }
+
+  @Benchmark
+  public boolean exists() throws SecretHubException {
+    return client.exists(PATH);
+  }
+
+  @Benchmark
+  public SecretHubException readMissing() {
+    try {
+      client.read(MISSING_PATH);
+      return null;
+    } catch (SecretHubException e) {
+      return e;
+    }
+  }
+
+  /**
+   * Creates the data of the benchmark secret.
+   *
+   * @param size the number of characters.
+   * @return the data.
+   */
+  static String createData(int size) {
+    StringBuilder buffer = new StringBuilder(size);
+
+    for (int i = 0; i < size; i++) {
+      buffer.append((char) ('a' + (i % 26)));
+    }
+
+    return buffer.toString();
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code ConversionBenchmark} measures the individual steps that make up a call through the
+ * native boundary: allocating the error pointer, reading the returned structure and converting
+ * it to the Java API types.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+
+  private final InMemorySecretHubLibrary library = new InMemorySecretHubLibrary();
+  private SecretHubLibrary.Client client;
+  private final PointerByReference errMessage = new PointerByReference();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    library.put("test", ClientBenchmark.createData(32));
+    client = library.new_Client(new PointerByReference());
+  }
+
+  @Benchmark
+  public PointerByReference allocateErrorPointer() {
+    return new PointerByReference();
+  }
+
+  @Benchmark
+  public String readErrorMessage() {
+    errMessage.setValue(allocate("test error"));
+    return Client.getErrorMessage(errMessage);
+  }
+
+  /**
+   * Reads the structure and converts it. The conversion frees the strings that the structure
+   * references, so each structure can only be converted once.
+   *
+   * @return the secret version.
+   */
+  @Benchmark
+  public SecretVersion convertSecretVersion() {
+    return new SecretVersion(library.Client_Read(client, "test", null));
+  }
+
+  @Benchmark
+  public UUID parseUUID() {
+    return Client.getUUID("0dd95e7b-a5c3-4982-b80c-6bd9e4e33c56");
+  }
+
+  @Benchmark
+  public LocalDateTime convertTimestamp() {
+    return Client.getDateTime(1612384987L);
+  }
+
+  /**
+   * Copies a string into memory allocated with {@code malloc}, as the native library does for
+   * error messages.
+   *
+   * @param value the string.
+   * @return a pointer to the null-terminated UTF-8 string.
+   */
+  private static Pointer allocate(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    Pointer pointer = new Pointer(Native.malloc(bytes.length + 1L));
+    pointer.write(0L, bytes, 0, bytes.length);
+    pointer.setByte(bytes.length, (byte) 0);
+    return pointer;
+  }
+}
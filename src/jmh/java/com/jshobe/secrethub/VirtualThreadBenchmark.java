@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code VirtualThreadBenchmark} measures how available the virtual thread carrier threads are
+ * while many virtual threads read secrets, with and without
+ * {@link ClientOptions#isOffloadVirtualThreads()}.
+ *
+ * <p>Background virtual threads continuously read secrets from an in-memory library that pins
+ * the carrier thread for the latency of each call, like the native library does. The benchmark
+ * measures the time taken to run a batch of short, unrelated virtual thread tasks. When the
+ * carrier threads are pinned, the tasks wait for a carrier thread to become free.</p>
+ *
+ * <p>This benchmark requires Java 21 or later. Run it with
+ * {@code ./gradlew jmh -PjmhInclude=VirtualThreadBenchmark}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.virtualThreadScheduler.parallelism=4")
+public class VirtualThreadBenchmark {
+
+  private static final String PATH = "jasonshobe/secrethub-java/test";
+  private static final int READERS = 64;
+  private static final int TASKS = 100;
+
+  @Param({"true", "false"})
+  boolean offloadVirtualThreads;
+
+  private ExecutorService virtualThreads;
+  private Client client;
+  private volatile boolean running;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    virtualThreads = (ExecutorService) Executors.class
+        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+
+    InMemorySecretHubLibrary library = new InMemorySecretHubLibrary();
+    library.put(PATH, "secret");
+    library.setLatency(InMemorySecretHubLibrary.Operation.READ_STRING,
+        LatencyModel.fixed(Duration.ofMillis(5L)));
+    library.setPinCarrierThreads(true);
+    client = library.createClient(ClientOptions.builder()
+        .offloadVirtualThreads(offloadVirtualThreads)
+        .build());
+
+    running = true;
+
+    for (int i = 0; i < READERS; i++) {
+      virtualThreads.execute(this::readContinuously);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    running = false;
+    virtualThreads.shutdown();
+    virtualThreads.awaitTermination(10L, TimeUnit.SECONDS);
+    client.close();
+  }
+
+  @Benchmark
+  public void unrelatedTasks() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(TASKS);
+
+    for (int i = 0; i < TASKS; i++) {
+      virtualThreads.execute(done::countDown);
+    }
+
+    done.await();
+  }
+
+  private void readContinuously() {
+    while (running) {
+      try {
+        client.readString(PATH);
+      } catch (SecretHubException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
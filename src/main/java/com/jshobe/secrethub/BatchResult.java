@@ -0,0 +1,52 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * {@code BatchResult} contains the results of reading several secrets in a single call.
+ *
+ * @param <T> the type of value read.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class BatchResult<T> {
+
+  /**
+   * The values of the secrets that were read, keyed by path, in the order in which the paths were
+   * requested.
+   */
+  Map<String, T> values;
+
+  /**
+   * The errors that prevented secrets from being read, keyed by path.
+   */
+  Map<String, SecretHubException> failures;
+
+  /**
+   * Determines if all of the secrets were read.
+   *
+   * @return {@code true} if there were no failures or {@code false} if not.
+   */
+  public boolean isSuccessful() {
+    return failures.isEmpty();
+  }
+}
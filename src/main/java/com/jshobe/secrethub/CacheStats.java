@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import lombok.Value;
+
+/**
+ * {@code CacheStats} is a snapshot of the statistics for the secret cache of a {@link Client}.
+ */
+@Value
+public class CacheStats {
+
+  /**
+   * The number of reads that were served from the cache.
+   */
+  long hitCount;
+
+  /**
+   * The number of reads that were not found in the cache and were loaded from SecretHub.
+   */
+  long missCount;
+
+  /**
+   * The number of entries that were evicted because the cache was full.
+   */
+  long evictionCount;
+
+  /**
+   * The number of entries that were reloaded in the background, either before they expired or
+   * while they were served stale.
+   */
+  long refreshCount;
+
+  /**
+   * The number of background reloads that failed.
+   */
+  long refreshFailureCount;
+
+  /**
+   * The number of reads that were served an expired entry while it was reloaded in the
+   * background.
+   */
+  long staleServeCount;
+
+  /**
+   * The number of entries currently held in the cache.
+   */
+  int size;
+}
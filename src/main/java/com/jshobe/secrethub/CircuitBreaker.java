@@ -0,0 +1,239 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code CircuitBreaker} stops a {@link Client} from calling the SecretHub library while the
+ * SecretHub API appears to be down, so that callers fail immediately instead of each waiting for
+ * the library to time out.
+ *
+ * <p>The circuit breaker opens after a number of consecutive transient errors. Once it has been
+ * open for the open duration, it allows a single trial call: the circuit breaker closes if the
+ * call succeeds and opens again if it fails with a transient error. Errors that are not transient,
+ * such as a missing secret, show that the API is reachable and count as successes.</p>
+ *
+ * <p>Each change of state starts a new generation. A call is given a permit that records the
+ * generation in which it was allowed, and the outcome of a call allowed in an earlier generation
+ * is ignored, so that a slow call made before the circuit breaker opened cannot close it or
+ * release the trial call of a later generation.</p>
+ */
+class CircuitBreaker implements CircuitBreakerMXBean {
+
+  private static final CircuitState[] STATES = CircuitState.values();
+
+  private final int threshold;
+  private final long openNanos;
+  private final MetricsSink sink;
+  private final AtomicLong phase = new AtomicLong(phaseOf(0L, CircuitState.CLOSED));
+  private final AtomicInteger failures = new AtomicInteger();
+  private final AtomicBoolean trial = new AtomicBoolean();
+  private final LongAdder opened = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private volatile long openedAt;
+
+  /**
+   * Creates a new instance of {@code CircuitBreaker}.
+   *
+   * @param options the client options.
+   */
+  CircuitBreaker(ClientOptions options) {
+    this.threshold = options.getCircuitBreakerFailureThreshold();
+    this.openNanos = options.getCircuitBreakerOpenDuration().toNanos();
+    this.sink = options.getMetricsSink();
+  }
+
+  /**
+   * Checks that a call may be made. The outcome of the call must then be reported, with the
+   * returned permit, to {@link #onSuccess(long)}, {@link #onFailure(long)} or
+   * {@link #onIgnored(long)}.
+   *
+   * @return the permit for the call.
+   * @throws CircuitBreakerOpenException if the circuit breaker is open.
+   */
+  long acquire() throws CircuitBreakerOpenException {
+    while (true) {
+      long current = phase.get();
+      CircuitState state = stateOf(current);
+
+      if (state == CircuitState.CLOSED) {
+        return current << 1;
+      }
+
+      if (state == CircuitState.OPEN) {
+        if (System.nanoTime() - openedAt < openNanos) {
+          throw reject();
+        }
+
+        transition(current, CircuitState.HALF_OPEN);
+      } else if (!trial.compareAndSet(false, true)) {
+        throw reject();
+      } else if (phase.get() == current) {
+        return current << 1 | 1L;
+      } else {
+        // the trial call of this generation ended before the flag was set
+        trial.set(false);
+      }
+    }
+  }
+
+  /**
+   * Records a call that reached the SecretHub API.
+   *
+   * @param permit the permit returned by {@link #acquire()}.
+   */
+  void onSuccess(long permit) {
+    long granted = permit >>> 1;
+
+    if (isTrial(permit)) {
+      failures.set(0);
+      transition(granted, CircuitState.CLOSED);
+      trial.set(false);
+    } else if (phase.get() == granted) {
+      failures.set(0);
+    }
+  }
+
+  /**
+   * Records a call that failed with a transient error.
+   *
+   * @param permit the permit returned by {@link #acquire()}.
+   */
+  void onFailure(long permit) {
+    long granted = permit >>> 1;
+
+    if (isTrial(permit)) {
+      failures.incrementAndGet();
+      openedAt = System.nanoTime();
+      transition(granted, CircuitState.OPEN);
+      trial.set(false);
+    } else if (phase.get() == granted && failures.incrementAndGet() >= threshold) {
+      openedAt = System.nanoTime();
+      transition(granted, CircuitState.OPEN);
+    }
+  }
+
+  /**
+   * Records a call that failed for a reason unrelated to the SecretHub API.
+   *
+   * @param permit the permit returned by {@link #acquire()}.
+   */
+  void onIgnored(long permit) {
+    if (isTrial(permit)) {
+      trial.set(false);
+    }
+  }
+
+  /**
+   * Gets the current state.
+   *
+   * @return the state.
+   */
+  CircuitState getCircuitState() {
+    return stateOf(phase.get());
+  }
+
+  @Override
+  public String getState() {
+    return getCircuitState().name();
+  }
+
+  @Override
+  public int getConsecutiveFailures() {
+    return failures.get();
+  }
+
+  @Override
+  public long getOpenCount() {
+    return opened.sum();
+  }
+
+  @Override
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * Changes the state and starts a new generation, if the phase has not already been changed by
+   * another thread.
+   *
+   * @param from the expected phase.
+   * @param to   the new state.
+   */
+  private void transition(long from, CircuitState to) {
+    if (!phase.compareAndSet(from, phaseOf((from >>> 2) + 1L, to))) {
+      return;
+    }
+
+    if (to == CircuitState.OPEN) {
+      opened.increment();
+    }
+
+    if (sink != null) {
+      try {
+        sink.onCircuitStateChange(stateOf(from), to);
+      } catch (RuntimeException e) {
+        // a faulty sink must not fail the call
+      }
+    }
+  }
+
+  /**
+   * Counts and creates the exception thrown when a call is not allowed.
+   *
+   * @return the exception.
+   */
+  private CircuitBreakerOpenException reject() {
+    rejected.increment();
+    return new CircuitBreakerOpenException("The SecretHub API is unavailable");
+  }
+
+  /**
+   * Combines a generation and a state into a phase.
+   *
+   * @param generation the generation.
+   * @param state      the state.
+   * @return the phase.
+   */
+  private static long phaseOf(long generation, CircuitState state) {
+    return generation << 2 | state.ordinal();
+  }
+
+  /**
+   * Gets the state of a phase.
+   *
+   * @param phase the phase.
+   * @return the state.
+   */
+  private static CircuitState stateOf(long phase) {
+    return STATES[(int) (phase & 3L)];
+  }
+
+  /**
+   * Determines if a permit is for the trial call of a half-open generation.
+   *
+   * @param permit the permit.
+   * @return {@code true} if the permit is for a trial call.
+   */
+  private static boolean isTrial(long permit) {
+    return (permit & 1L) != 0L;
+  }
+}
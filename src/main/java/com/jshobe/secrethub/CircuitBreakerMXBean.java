@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code CircuitBreakerMXBean} publishes the state of the circuit breaker of a {@link Client}
+ * through JMX, named {@code com.jshobe.secrethub:type=Client,name=<name>,
+ * component=circuitBreaker}.
+ *
+ * @see ClientOptions#isJmxEnabled()
+ */
+public interface CircuitBreakerMXBean {
+
+  /**
+   * Gets the current state.
+   *
+   * @return the name of the {@link CircuitState}.
+   */
+  String getState();
+
+  /**
+   * Gets the number of consecutive transient errors since the last successful call.
+   *
+   * @return the number of errors.
+   */
+  int getConsecutiveFailures();
+
+  /**
+   * Gets the number of times the circuit breaker has opened.
+   *
+   * @return the number of times.
+   */
+  long getOpenCount();
+
+  /**
+   * Gets the number of calls that failed immediately because the circuit breaker was open.
+   *
+   * @return the number of calls.
+   */
+  long getRejectedCount();
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code CircuitBreakerOpenException} signals that a call was not made because the circuit
+ * breaker of the {@link Client} is open after repeated transient errors. Retrying the call before
+ * the circuit breaker closes fails in the same way.
+ */
+public class CircuitBreakerOpenException extends SecretHubException {
+
+  /**
+   * Creates a new instance of {@code CircuitBreakerOpenException}.
+   *
+   * @param message the error message.
+   */
+  public CircuitBreakerOpenException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code CircuitState} is the state of the circuit breaker of a {@link Client}.
+ */
+public enum CircuitState {
+  /**
+   * Calls are made normally.
+   */
+  CLOSED,
+
+  /**
+   * Calls fail immediately with a {@link CircuitBreakerOpenException}, because recent calls have
+   * failed with transient errors.
+   */
+  OPEN,
+
+  /**
+   * A single trial call is allowed, to determine if the SecretHub API has recovered. Other calls
+   * fail immediately.
+   */
+  HALF_OPEN
+}
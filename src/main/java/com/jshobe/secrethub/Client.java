@@ -16,16 +16,37 @@
 
 package com.jshobe.secrethub;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.jshobe.secrethub.SecretCache.Key;
+import com.jshobe.secrethub.SecretCache.Kind;
 import com.sun.jna.Pointer;
 import com.sun.jna.ptr.PointerByReference;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 /**
  * {@code Client} provides methods to access secrets stored in SecretHub.
@@ -33,7 +54,27 @@ import java.util.UUID;
 public class Client implements AutoCloseable {
 
   private final SecretHubLibrary library;
-  private volatile SecretHubLibrary.Client client;
+  private final SecretCache cache;
+  private final NegativeCache negativeCache;
+  private final EnvironmentCache environmentCache;
+  private final SnapshotCache snapshot;
+  private final ClientMetrics metrics;
+  private final Resilience resilience;
+  private final Hedging hedging;
+  private final ConcurrencyLimiter limiter;
+  private final SecretWatcher watcher;
+  private final NativeExecutor executor;
+  private final HandlePool pool;
+  private final SingleFlight flights = new SingleFlight();
+  private final boolean coalesceCalls;
+  private final boolean coalesceSyncCalls;
+  private final boolean lazyConversion;
+  private Function<String, String> environment = System::getenv;
+  private static final String REFERENCE_PREFIX = "secrethub://";
+  private static final Key ENVIRONMENT_KEY = new Key(Kind.ENVIRONMENT, "");
+  private static final ObjectReader ENVIRONMENT_READER = new ObjectMapper()
+      .readerFor(new TypeReference<Map<String, String>>() {
+      });
   private static final ZoneOffset OFFSET = OffsetDateTime.now().getOffset();
 
   /**
@@ -42,7 +83,17 @@ public class Client implements AutoCloseable {
    * @throws SecretHubException if the client could not be created.
    */
   public Client() throws SecretHubException {
-    this(SecretHubLibrary.INSTANCE);
+    this(ClientOptions.defaults());
+  }
+
+  /**
+   * Creates a new instance of {@code Client}.
+   *
+   * @param options the client options.
+   * @throws SecretHubException if the client could not be created.
+   */
+  public Client(ClientOptions options) throws SecretHubException {
+    this(options.getNativeBinding().getLibrary(), options);
   }
 
   /**
@@ -52,28 +103,58 @@ public class Client implements AutoCloseable {
    * @throws SecretHubException if the client could not be created.
    */
   Client(SecretHubLibrary library) throws SecretHubException {
+    this(library, ClientOptions.defaults());
+  }
+
+  /**
+   * Creates a new instance of {@code Client}.
+   *
+   * @param library the SecretHub library instance.
+   * @param options the client options.
+   * @throws SecretHubException if the client could not be created.
+   */
+  Client(SecretHubLibrary library, ClientOptions options) throws SecretHubException {
     this.library = library;
-    PointerByReference errMessage = new PointerByReference();
-    this.client = library.new_Client(errMessage);
-    throwException(errMessage);
+    this.snapshot = options.isSnapshotEnabled() ? SnapshotCache.open(options) : null;
+    this.cache = options.isCacheEnabled() ? new SecretCache(options) : null;
+    this.negativeCache = options.isNegativeCacheEnabled() ? new NegativeCache(options) : null;
+    this.environmentCache =
+        options.isEnvironmentCacheEnabled() ? new EnvironmentCache(options) : null;
+    this.executor = new NativeExecutor(options);
+    this.coalesceCalls = options.isCoalesceCalls();
+    this.coalesceSyncCalls = options.isCoalesceSyncCalls();
+    this.lazyConversion = options.isLazyConversion();
+    this.pool = executor.call(() -> new HandlePool(library, options));
+    this.metrics = new ClientMetrics(options);
+    this.resilience = new Resilience(options);
+    this.hedging = options.isHedgeReads() ? new Hedging(executor, options) : null;
+    this.limiter = options.getConcurrencyLimit() > 0 ? new ConcurrencyLimiter(options) : null;
+    this.watcher = new SecretWatcher(options, this::readVersion, this::invalidate);
+
+    if (resilience.getCircuitBreaker() != null) {
+      metrics.registerComponent("circuitBreaker", resilience.getCircuitBreaker());
+    }
+
+    if (limiter != null) {
+      metrics.registerComponent("concurrencyLimiter", limiter);
+    }
   }
 
   /**
    * Retrieves a secret by its path.
    *
+   * <p>Each call returns its own instance, so modifying it does not affect the cache or other
+   * callers.</p>
+   *
    * @param path the path to the secret.
    * @return the secret.
-   * @throws SecretHubException    if an error prevented the secret from being obtained.
-   * @throws IllegalStateException if this client has been closed.
+   * @throws SecretNotFoundException if the secret does not exist.
+   * @throws SecretHubException      if an error prevented the secret from being obtained.
+   * @throws IllegalStateException   if this client has been closed.
    */
   public SecretVersion read(String path) throws SecretHubException {
     checkClient();
-
-    PointerByReference errMessage = new PointerByReference();
-    SecretHubLibrary.SecretVersion result = library.Client_Read(client, path, errMessage);
-    throwException(errMessage);
-
-    return new SecretVersion(result);
+    return read(path, coalesceSyncCalls);
   }
 
   /**
@@ -81,17 +162,287 @@ public class Client implements AutoCloseable {
    *
    * @param path the path to the secret.
    * @return the secret.
-   * @throws SecretHubException    if an error prevented the secret from being obtained.
-   * @throws IllegalStateException if this client has been closed.
+   * @throws SecretNotFoundException if the secret does not exist.
+   * @throws SecretHubException      if an error prevented the secret from being obtained.
+   * @throws IllegalStateException   if this client has been closed.
    */
   public String readString(String path) throws SecretHubException {
     checkClient();
+    return readString(path, coalesceSyncCalls);
+  }
+
+  /**
+   * Retrieves a secret as a value held outside of the Java heap, which the caller must close when
+   * it is no longer needed. The value is copied directly from the memory returned by the SecretHub
+   * library without creating a {@link String}, so it is never cached or shared with concurrent
+   * callers.
+   *
+   * @param path the path to the secret.
+   * @return the secret.
+   * @throws SecretNotFoundException if the secret does not exist.
+   * @throws SecretHubException      if an error prevented the secret from being obtained.
+   * @throws IllegalStateException   if this client has been closed.
+   */
+  public SecretValue readValue(String path) throws SecretHubException {
+    checkClient();
 
-    PointerByReference errMessage = new PointerByReference();
-    String result = library.Client_ReadString(client, path, errMessage);
-    throwException(errMessage);
+    long start = metrics.start(ClientOperation.READ_VALUE);
+    boolean failed = true;
 
-    return result;
+    try {
+      SecretValue value = checkAbsent(path, () -> invoke(client -> {
+        PointerByReference errMessage = new PointerByReference();
+        SecretValue result =
+            NativeMemory.takeValue(library.Client_ReadString(client, path, errMessage));
+
+        try {
+          throwException(errMessage);
+        } catch (SecretHubException e) {
+          if (result != null) {
+            result.close();
+          }
+
+          throw e;
+        }
+
+        return result;
+      }));
+      failed = false;
+      return value;
+    } finally {
+      metrics.end(ClientOperation.READ_VALUE, start, failed);
+    }
+  }
+
+  /**
+   * Retrieves several secrets by their paths. The secrets are read in parallel by the worker
+   * threads of this client and duplicate paths are only read once. An error reading one secret
+   * does not prevent the others from being read.
+   *
+   * @param paths the paths to the secrets.
+   * @return the secrets that were read and the errors that prevented the others from being read.
+   * @throws IllegalStateException if this client has been closed.
+   */
+  public BatchResult<SecretVersion> readAll(Collection<String> paths) {
+    return readAll(paths, this::readAsync, this::read);
+  }
+
+  /**
+   * Retrieves several secrets as strings. The secrets are read in parallel by the worker threads
+   * of this client and duplicate paths are only read once. An error reading one secret does not
+   * prevent the others from being read.
+   *
+   * @param paths the paths to the secrets.
+   * @return the secrets that were read and the errors that prevented the others from being read.
+   * @throws IllegalStateException if this client has been closed.
+   */
+  public BatchResult<String> readStringAll(Collection<String> paths) {
+    return readAll(paths, this::readStringAsync, this::readString);
+  }
+
+  /**
+   * Reads secrets into the cache in parallel, so that they are ready before they are first used.
+   * Duplicate paths are only read once. Secrets that have not been read by the deadline are
+   * reported as failures, but continue to be read in the background.
+   *
+   * <p>If the worker queue is full, the secrets that could not be queued are read on the calling
+   * thread, one at a time, until the deadline has passed. The rest are reported as timed out
+   * without being read. A read that has already started is not interrupted, so the call can
+   * return later than the deadline by up to the duration of one read.</p>
+   *
+   * <p>The secrets are read as {@link SecretVersion}s, which also serve
+   * {@link #readString(String)} while they are cached. If caching is disabled, the secrets are
+   * only recorded in the snapshot, if one is kept.</p>
+   *
+   * @param paths   the paths to the secrets.
+   * @param timeout the maximum amount of time to wait.
+   * @return the paths that were read, the errors that prevented the others from being read and
+   *     the time taken.
+   * @throws IllegalStateException if this client has been closed.
+   */
+  public WarmUpResult warmUp(Collection<String> paths, Duration timeout) {
+    checkClient();
+
+    long start = System.nanoTime();
+    long deadline = start + timeout.toNanos();
+    Map<String, CompletableFuture<SecretVersion>> futures = new LinkedHashMap<>();
+
+    for (String path : paths) {
+      if (!futures.containsKey(path)) {
+        futures.put(path, readAsync(path));
+      }
+    }
+
+    List<String> loaded = new ArrayList<>();
+    Map<String, SecretHubException> failures = new LinkedHashMap<>();
+    boolean interrupted = false;
+
+    for (Map.Entry<String, CompletableFuture<SecretVersion>> entry : futures.entrySet()) {
+      String path = entry.getKey();
+
+      if (interrupted) {
+        failures.put(path, new SecretHubException("Interrupted while warming up secret"));
+        continue;
+      }
+
+      try {
+        entry.getValue().get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        loaded.add(path);
+      } catch (ExecutionException e) {
+        if (!(e.getCause() instanceof RejectedExecutionException)) {
+          failures.put(path, toSecretHubException(e.getCause()));
+        } else if (deadline - System.nanoTime() > 0L) {
+          // the worker queue is full, so read the secret on the calling thread instead
+          try {
+            read(path, coalesceSyncCalls);
+            loaded.add(path);
+          } catch (SecretHubException e2) {
+            failures.put(path, e2);
+          }
+        } else {
+          failures.put(path, new SecretHubException("Timed out warming up secret", e.getCause()));
+        }
+      } catch (TimeoutException e) {
+        failures.put(path, new SecretHubException("Timed out warming up secret", e));
+      } catch (InterruptedException e) {
+        interrupted = true;
+        failures.put(path, new SecretHubException("Interrupted while warming up secret", e));
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    return new WarmUpResult(loaded, failures, Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  /**
+   * Reads the secrets listed in a manifest file into the cache in parallel. The file contains one
+   * path per line. Blank lines and lines starting with {@code #} are ignored.
+   *
+   * @param manifest the path to the manifest file.
+   * @param timeout  the maximum amount of time to wait.
+   * @return the paths that were read, the errors that prevented the others from being read and
+   *     the time taken.
+   * @throws SecretHubException    if the manifest file could not be read.
+   * @throws IllegalStateException if this client has been closed.
+   * @see #warmUp(Collection, Duration)
+   */
+  public WarmUpResult warmUp(Path manifest, Duration timeout) throws SecretHubException {
+    List<String> paths = new ArrayList<>();
+
+    try {
+      for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+        String path = line.trim();
+
+        if (!path.isEmpty() && !path.startsWith("#")) {
+          paths.add(path);
+        }
+      }
+    } catch (IOException e) {
+      throw new SecretHubException("Failed to read warm-up manifest: " + manifest, e);
+    }
+
+    return warmUp(paths, timeout);
+  }
+
+  /**
+   * Retrieves a secret by its path in the background.
+   *
+   * @param path the path to the secret.
+   * @return a future that completes with the secret. The future fails with a
+   *     {@link SecretHubException} if an error prevented the secret from being obtained or with a
+   *     {@link RejectedExecutionException} if too many calls are already waiting to run.
+   * @throws IllegalStateException if this client has been closed.
+   * @see #read(String)
+   */
+  public CompletableFuture<SecretVersion> readAsync(String path) {
+    checkClient();
+    return submit(new Key(Kind.VERSION, path), () -> read(path, false));
+  }
+
+  /**
+   * Retrieves a secret as a string in the background.
+   *
+   * @param path the path to the secret.
+   * @return a future that completes with the secret. The future fails with a
+   *     {@link SecretHubException} if an error prevented the secret from being obtained or with a
+   *     {@link RejectedExecutionException} if too many calls are already waiting to run.
+   * @throws IllegalStateException if this client has been closed.
+   * @see #readString(String)
+   */
+  public CompletableFuture<String> readStringAsync(String path) {
+    checkClient();
+    return submit(new Key(Kind.STRING, path), () -> readString(path, false));
+  }
+
+  /**
+   * Fetches the value of a secret reference in the background.
+   *
+   * @param reference the reference.
+   * @return a future that completes with the secret. The future fails with a
+   *     {@link SecretHubException} if an error prevented the secret from being resolved or with a
+   *     {@link RejectedExecutionException} if too many calls are already waiting to run.
+   * @throws IllegalStateException if this client has been closed.
+   * @see #resolve(String)
+   */
+  public CompletableFuture<String> resolveAsync(String reference) {
+    checkClient();
+    return submit(new Key(Kind.RESOLVE, reference), () -> resolve(reference, false));
+  }
+
+  /**
+   * Checks if a secret exists in the background.
+   *
+   * @param path the path to the secret.
+   * @return a future that completes with {@code true} if the secret exists or {@code false} if
+   *     not. The future fails with a {@link SecretHubException} if an error prevented the
+   *     existence from being determined or with a {@link RejectedExecutionException} if too many
+   *     calls are already waiting to run.
+   * @throws IllegalStateException if this client has been closed.
+   * @see #exists(String)
+   */
+  public CompletableFuture<Boolean> existsAsync(String path) {
+    checkClient();
+    return submit(new Key(Kind.EXISTS, path), () -> exists(path, false));
+  }
+
+  /**
+   * Deletes a secret in the background.
+   *
+   * @param path the path to the secret.
+   * @return a future that completes when the secret has been removed. The future fails with a
+   *     {@link SecretHubException} if an error prevented the secret from being removed or with a
+   *     {@link RejectedExecutionException} if too many calls are already waiting to run.
+   * @throws IllegalStateException if this client has been closed.
+   * @see #remove(String)
+   */
+  public CompletableFuture<Void> removeAsync(String path) {
+    checkClient();
+    return executor.submit(() -> {
+      remove(path);
+      return null;
+    });
+  }
+
+  /**
+   * Writes a secret in the background.
+   *
+   * @param path   the path to the secret.
+   * @param secret the value of the secret.
+   * @return a future that completes when the secret has been written. The future fails with a
+   *     {@link SecretHubException} if an error prevented the secret from being written or with a
+   *     {@link RejectedExecutionException} if too many calls are already waiting to run.
+   * @throws IllegalStateException if this client has been closed.
+   * @see #write(String, String)
+   */
+  public CompletableFuture<Void> writeAsync(String path, String secret) {
+    checkClient();
+    return executor.submit(() -> {
+      write(path, secret);
+      return null;
+    });
   }
 
   /**
@@ -105,12 +456,34 @@ public class Client implements AutoCloseable {
    */
   public String resolve(String reference) throws SecretHubException {
     checkClient();
+    return resolve(reference, coalesceSyncCalls);
+  }
 
-    PointerByReference errMessage = new PointerByReference();
-    String result = library.Client_Resolve(client, reference, errMessage);
-    throwException(errMessage);
+  /**
+   * Fetches the value of a secret reference.
+   *
+   * @param reference the reference.
+   * @param coalesce  {@code true} to coalesce the call with concurrent calls for the same
+   *                  reference.
+   * @return the secret.
+   * @throws SecretHubException if an error prevented the secret from being resolved.
+   */
+  private String resolve(String reference, boolean coalesce) throws SecretHubException {
+    long start = metrics.start(ClientOperation.RESOLVE);
+    boolean failed = true;
 
-    return result;
+    try {
+      String value = coalesce(new Key(Kind.RESOLVE, reference), coalesce, () -> invoke(client -> {
+        PointerByReference errMessage = new PointerByReference();
+        String result = NativeMemory.take(library.Client_Resolve(client, reference, errMessage));
+        throwException(errMessage);
+        return result;
+      }));
+      failed = false;
+      return value;
+    } finally {
+      metrics.end(ClientOperation.RESOLVE, start, failed);
+    }
   }
 
   /**
@@ -121,20 +494,99 @@ public class Client implements AutoCloseable {
    * @throws SecretHubException    if an error prevented the environment from being resolved.
    * @throws IllegalStateException if this client has been closed.
    */
-  @SuppressWarnings("unchecked")
   public Map<String, String> resolveEnv() throws SecretHubException {
     checkClient();
 
-    PointerByReference errMessage = new PointerByReference();
-    String json = library.Client_ResolveEnv(client, errMessage);
-    throwException(errMessage);
+    long start = metrics.start(ClientOperation.RESOLVE_ENV);
+    boolean failed = true;
+
+    try {
+      Map<String, String> environment =
+          environmentCache == null ? null : environmentCache.get();
+
+      if (environment == null) {
+        long mark = environmentCache == null ? 0L : environmentCache.mark();
+        environment = coalesce(ENVIRONMENT_KEY, coalesceSyncCalls, this::readEnvironment);
+
+        if (environmentCache != null) {
+          environmentCache.put(environment, mark);
+        } else if (!coalesceSyncCalls) {
+          failed = false;
+          return environment;
+        }
+      }
 
-    Map<String, String> result;
+      failed = false;
+      // the map is shared with the cache or with coalesced callers
+      return new HashMap<>(environment);
+    } finally {
+      metrics.end(ClientOperation.RESOLVE_ENV, start, failed);
+    }
+  }
+
+  /**
+   * Gets the named environment variables, replacing the values of any that store references to
+   * secrets in SecretHub ({@code secrethub://path}). Only the references held by the named
+   * variables are resolved, in parallel. Variables that are not set are omitted from the result.
+   *
+   * @param names the names of the environment variables.
+   * @return a map of resolved environment variables.
+   * @throws SecretHubException    if an error prevented any of the references from being
+   *                               resolved.
+   * @throws IllegalStateException if this client has been closed.
+   */
+  public Map<String, String> resolveEnv(Set<String> names) throws SecretHubException {
+    checkClient();
+
+    long start = metrics.start(ClientOperation.RESOLVE_ENV);
+    boolean failed = true;
 
     try {
-      result = new ObjectMapper().readValue(json, Map.class);
-    } catch (Exception e) {
-      throw new SecretHubException("Failed to parse environment JSON", e);
+      Map<String, String> result = resolveEnvironment(names);
+      failed = false;
+      return result;
+    } finally {
+      metrics.end(ClientOperation.RESOLVE_ENV, start, failed);
+    }
+  }
+
+  /**
+   * Gets the named environment variables, resolving only the references that they hold.
+   *
+   * @param names the names of the environment variables.
+   * @return a map of resolved environment variables.
+   * @throws SecretHubException if an error prevented any of the references from being resolved.
+   */
+  private Map<String, String> resolveEnvironment(Set<String> names) throws SecretHubException {
+    Map<String, String> cached = environmentCache == null ? null : environmentCache.get();
+    Map<String, String> result = new HashMap<>();
+    Map<String, String> references = new HashMap<>();
+
+    for (String name : names) {
+      String value = cached == null ? environment.apply(name) : cached.get(name);
+
+      if (value == null) {
+        continue;
+      }
+
+      if (cached == null && value.startsWith(REFERENCE_PREFIX)) {
+        references.put(name, value);
+      } else {
+        result.put(name, value);
+      }
+    }
+
+    if (!references.isEmpty()) {
+      BatchResult<String> resolved = readAll(references.values(), this::resolveAsync,
+          reference -> resolve(reference, coalesceSyncCalls));
+
+      if (!resolved.isSuccessful()) {
+        throw resolved.getFailures().values().iterator().next();
+      }
+
+      for (Map.Entry<String, String> entry : references.entrySet()) {
+        result.put(entry.getKey(), resolved.getValues().get(entry.getValue()));
+      }
     }
 
     return result;
@@ -150,10 +602,54 @@ public class Client implements AutoCloseable {
    */
   public boolean exists(String path) throws SecretHubException {
     checkClient();
+    return exists(path, coalesceSyncCalls);
+  }
 
-    PointerByReference errMessage = new PointerByReference();
-    boolean result = library.Client_Exists(client, path, errMessage);
-    throwException(errMessage);
+  /**
+   * Checks if a secret exists at <i>path</i>.
+   *
+   * @param path     the path to the secret.
+   * @param coalesce {@code true} to coalesce the call with concurrent calls for the same path.
+   * @return {@code true} if the secret exists or {@code false} if not.
+   * @throws SecretHubException if an error prevented the existence from being determined.
+   */
+  private boolean exists(String path, boolean coalesce) throws SecretHubException {
+    long start = metrics.start(ClientOperation.EXISTS);
+    boolean failed = true;
+
+    try {
+      boolean result = checkExists(path, coalesce);
+      failed = false;
+      return result;
+    } finally {
+      metrics.end(ClientOperation.EXISTS, start, failed);
+    }
+  }
+
+  /**
+   * Checks if a secret exists at <i>path</i>, consulting the negative cache if it is enabled.
+   *
+   * @param path     the path to the secret.
+   * @param coalesce {@code true} to coalesce the call with concurrent calls for the same path.
+   * @return {@code true} if the secret exists or {@code false} if not.
+   * @throws SecretHubException if an error prevented the existence from being determined.
+   */
+  private boolean checkExists(String path, boolean coalesce) throws SecretHubException {
+    if (negativeCache != null && negativeCache.isAbsent(path)) {
+      return false;
+    }
+
+    long mark = negativeCache == null ? 0L : negativeCache.mark();
+    boolean result = coalesce(new Key(Kind.EXISTS, path), coalesce, () -> invoke(client -> {
+      PointerByReference errMessage = new PointerByReference();
+      boolean exists = library.Client_Exists(client, path, errMessage);
+      throwException(errMessage);
+      return exists;
+    }));
+
+    if (!result && negativeCache != null) {
+      negativeCache.put(path, null, mark);
+    }
 
     return result;
   }
@@ -168,9 +664,21 @@ public class Client implements AutoCloseable {
   public void remove(String path) throws SecretHubException {
     checkClient();
 
-    PointerByReference errMessage = new PointerByReference();
-    library.Client_Remove(client, path, errMessage);
-    throwException(errMessage);
+    long start = metrics.start(ClientOperation.REMOVE);
+    boolean failed = true;
+
+    try {
+      invokeOnce(client -> {
+        PointerByReference errMessage = new PointerByReference();
+        library.Client_Remove(client, path, errMessage);
+        invalidate(path);
+        throwException(errMessage);
+        return null;
+      });
+      failed = false;
+    } finally {
+      metrics.end(ClientOperation.REMOVE, start, failed);
+    }
   }
 
   /**
@@ -184,17 +692,542 @@ public class Client implements AutoCloseable {
   public void write(String path, String secret) throws SecretHubException {
     checkClient();
 
-    PointerByReference errMessage = new PointerByReference();
-    library.Client_Write(client, path, secret, errMessage);
-    throwException(errMessage);
+    long start = metrics.start(ClientOperation.WRITE);
+    boolean failed = true;
+
+    try {
+      invokeOnce(client -> {
+        PointerByReference errMessage = new PointerByReference();
+        library.Client_Write(client, path, secret, errMessage);
+        invalidate(path);
+        throwException(errMessage);
+        return null;
+      });
+      failed = false;
+    } finally {
+      metrics.end(ClientOperation.WRITE, start, failed);
+    }
+  }
+
+  /**
+   * Notifies a listener when the secret at a path changes, until the returned watch is closed.
+   *
+   * <p>All watched paths are polled by a single shared thread every
+   * {@link ClientOptions#getWatchInterval() watch interval}, reading at most
+   * {@link ClientOptions#getWatchMaxReadsPerInterval()} paths each time, so watching many paths
+   * does not multiply the calls to the SecretHub API. A path watched by several listeners is read
+   * once. The first read of a path records its version without notifying the listeners. After
+   * that, the listeners are notified only when the version of the secret changes or the secret is
+   * removed. Cached values for the path are discarded before the listeners are called. Errors
+   * reading a path are ignored and the path is read again on its next turn.</p>
+   *
+   * @param path     the path to the secret.
+   * @param listener the listener notified when the secret changes.
+   * @return the watch, which stops the notifications when it is closed.
+   * @throws IllegalStateException if this client has been closed.
+   */
+  public SecretWatch watch(String path, SecretChangeListener listener) {
+    checkClient();
+    return watcher.watch(path, listener);
+  }
+
+  /**
+   * Gets the statistics for the secret cache. If caching is disabled, all of the statistics are
+   * zero.
+   *
+   * @return the cache statistics.
+   */
+  public CacheStats getCacheStats() {
+    return cache == null ? new CacheStats(0L, 0L, 0L, 0L, 0L, 0L, 0) : cache.getStats();
+  }
+
+  /**
+   * Gets the latency, call count, error count and calls in progress of each operation, measured
+   * since this client was created. Calls answered from a cache are included.
+   *
+   * @return the statistics, keyed by operation.
+   */
+  public Map<ClientOperation, OperationStats> getOperationStats() {
+    return metrics.getStats();
+  }
+
+  /**
+   * Gets the statistics for retries, the circuit breaker and hedged reads.
+   *
+   * @return the resilience statistics.
+   */
+  public ResilienceStats getResilienceStats() {
+    return resilience.getStats(hedging);
+  }
+
+  /**
+   * Gets the current adaptive concurrency limit and the number of calls in progress and waiting.
+   * If the limit is disabled, all of the statistics are zero.
+   *
+   * @return the concurrency statistics.
+   */
+  public ConcurrencyStats getConcurrencyStats() {
+    return limiter == null ? new ConcurrencyStats(0, 0, 0, 0L) : limiter.getStats();
+  }
+
+  /**
+   * Gets the statistics for the pool of native client handles.
+   *
+   * @return the pool statistics.
+   */
+  public PoolStats getPoolStats() {
+    return pool.getStats();
+  }
+
+  /**
+   * Gets the statistics for the native memory that the SecretHub library has returned to all
+   * clients in the JVM. Strings returned by the library, including those referenced by the
+   * structure returned for a secret version, are freed as soon as they are copied, so the
+   * outstanding counts only include strings that are being copied at the time.
+   *
+   * @return the native memory statistics.
+   */
+  public static NativeMemoryStats getNativeMemoryStats() {
+    return NativeMemory.getStats();
+  }
+
+  /**
+   * Writes the secret versions read by this client to the snapshot file, if a snapshot is kept.
+   * The snapshot is also written when the client is closed.
+   *
+   * @throws SecretHubException    if the snapshot file could not be written.
+   * @throws IllegalStateException if this client has been closed.
+   */
+  public void saveSnapshot() throws SecretHubException {
+    checkClient();
+
+    if (snapshot != null) {
+      snapshot.save();
+    }
   }
 
   @Override
   public void close() {
-    if (client != null) {
-      library.delete_Client(client);
-      client = null;
+    watcher.close();
+
+    if (snapshot != null && !pool.isClosed()) {
+      try {
+        snapshot.save();
+      } catch (SecretHubException e) {
+        // the snapshot is only an optimization, so the client is closed regardless
+      }
+    }
+
+    if (hedging != null) {
+      hedging.close();
     }
+
+    executor.close();
+    metrics.close();
+
+    if (cache != null) {
+      cache.close();
+    }
+
+    pool.close();
+  }
+
+  /**
+   * Reads several secrets in parallel.
+   *
+   * @param paths     the paths to the secrets.
+   * @param async     starts reading a secret in the background.
+   * @param operation the operation used to read a secret on the calling thread, when the worker
+   *                  queue is full.
+   * @param <T>       the type of value read.
+   * @return the secrets that were read and the errors that prevented the others from being read.
+   * @throws IllegalStateException if this client has been closed.
+   */
+  private <T> BatchResult<T> readAll(Collection<String> paths,
+      Function<String, CompletableFuture<T>> async, PathOperation<T> operation) {
+    checkClient();
+
+    Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+
+    for (String path : paths) {
+      if (!futures.containsKey(path)) {
+        futures.put(path, async.apply(path));
+      }
+    }
+
+    Map<String, T> values = new LinkedHashMap<>();
+    Map<String, SecretHubException> failures = new LinkedHashMap<>();
+    boolean interrupted = false;
+
+    for (Map.Entry<String, CompletableFuture<T>> entry : futures.entrySet()) {
+      String path = entry.getKey();
+
+      if (interrupted) {
+        entry.getValue().cancel(true);
+        failures.put(path, new SecretHubException("Interrupted while reading secret"));
+        continue;
+      }
+
+      try {
+        values.put(path, entry.getValue().get());
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RejectedExecutionException) {
+          // the worker queue is full, so read the secret on the calling thread instead
+          try {
+            values.put(path, operation.apply(path));
+          } catch (SecretHubException e2) {
+            failures.put(path, e2);
+          }
+        } else {
+          failures.put(path, toSecretHubException(e.getCause()));
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+        entry.getValue().cancel(true);
+        failures.put(path, new SecretHubException("Interrupted while reading secret", e));
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    return new BatchResult<>(values, failures);
+  }
+
+  /**
+   * Retrieves a secret by its path, from the cache if it is enabled.
+   *
+   * @param path     the path to the secret.
+   * @param coalesce {@code true} to coalesce the call with concurrent calls for the same path.
+   * @return the secret.
+   * @throws SecretHubException if an error prevented the secret from being obtained.
+   */
+  private SecretVersion read(String path, boolean coalesce) throws SecretHubException {
+    Key key = new Key(Kind.VERSION, path);
+    NativeCall<SecretVersion> load = () -> loadVersion(key, coalesce);
+    long start = metrics.start(ClientOperation.READ);
+    boolean failed = true;
+
+    try {
+      SecretVersion result =
+          checkAbsent(path, () -> cache == null ? load.call() : cache.get(key, load));
+      failed = false;
+      // the version is shared with the cache, the snapshot or with coalesced callers
+      return cache == null && snapshot == null && !coalesce ? result : result.copy();
+    } finally {
+      metrics.end(ClientOperation.READ, start, failed);
+    }
+  }
+
+  /**
+   * Retrieves a secret as a string, from the cache if it is enabled.
+   *
+   * @param path     the path to the secret.
+   * @param coalesce {@code true} to coalesce the call with concurrent calls for the same path.
+   * @return the secret.
+   * @throws SecretHubException if an error prevented the secret from being obtained.
+   */
+  private String readString(String path, boolean coalesce) throws SecretHubException {
+    Key key = new Key(Kind.STRING, path);
+    NativeCall<String> load = () -> {
+      SecretVersion stored = cache == null ? null : cache.peek(new Key(Kind.VERSION, path));
+
+      if (stored == null && snapshot != null) {
+        stored = snapshot.serve(path, this::revalidate);
+      }
+
+      return stored == null ? coalesce(key, coalesce, () -> readData(path)) : stored.getData();
+    };
+    long start = metrics.start(ClientOperation.READ_STRING);
+    boolean failed = true;
+
+    try {
+      String result =
+          checkAbsent(path, () -> cache == null ? load.call() : cache.get(key, load));
+      failed = false;
+      return result;
+    } finally {
+      metrics.end(ClientOperation.READ_STRING, start, failed);
+    }
+  }
+
+  /**
+   * Loads a secret version from the snapshot, if it holds one that has not been revalidated, or
+   * else from the library. Versions read from the library are recorded in the snapshot.
+   *
+   * @param key      the key for the version.
+   * @param coalesce {@code true} to coalesce the call with concurrent calls for the same path.
+   * @return the secret.
+   * @throws SecretHubException if an error prevented the secret from being obtained.
+   */
+  private SecretVersion loadVersion(Key key, boolean coalesce) throws SecretHubException {
+    String path = key.getPath();
+
+    if (snapshot == null) {
+      return coalesce(key, coalesce, () -> readVersion(path));
+    }
+
+    SecretVersion stored = snapshot.serve(path, this::revalidate);
+
+    if (stored != null) {
+      return stored;
+    }
+
+    SecretVersion version = coalesce(key, coalesce, () -> readVersion(path));
+    snapshot.record(path, version);
+    return version;
+  }
+
+  /**
+   * Reads a secret version that was served from the snapshot again in the background. If the
+   * version has changed, any cached values for the path are removed.
+   *
+   * @param path the path to the secret.
+   */
+  private void revalidate(String path) {
+    executor.submit(() -> readVersion(path)).whenComplete((version, error) -> {
+      if (snapshot.revalidated(path, version, error) && cache != null) {
+        cache.invalidate(path);
+      }
+    });
+  }
+
+  /**
+   * Reads a secret, unless its path is known to be absent. If the read finds that the secret does
+   * not exist, the path is remembered by the negative cache, if it is enabled.
+   *
+   * @param path the path to the secret.
+   * @param read the call that reads the secret.
+   * @param <T>  the type of value read.
+   * @return the secret.
+   * @throws SecretNotFoundException if the secret does not exist.
+   * @throws SecretHubException      if an error prevented the secret from being obtained.
+   */
+  private <T> T checkAbsent(String path, NativeCall<T> read) throws SecretHubException {
+    if (negativeCache == null) {
+      return read.call();
+    }
+
+    String message = negativeCache.getMessage(path);
+
+    if (message != null) {
+      throw new SecretNotFoundException(message);
+    }
+
+    long mark = negativeCache.mark();
+
+    try {
+      return read.call();
+    } catch (SecretNotFoundException e) {
+      negativeCache.put(path, e.getMessage(), mark);
+      throw e;
+    }
+  }
+
+  /**
+   * Makes a call, coalescing it with concurrent calls that have the same key if required.
+   *
+   * @param key      the key.
+   * @param coalesce {@code true} to coalesce the call or {@code false} to always make it.
+   * @param call     the call.
+   * @param <T>      the type of value produced by the call.
+   * @return the result of the call.
+   * @throws SecretHubException if the call failed.
+   */
+  private <T> T coalesce(Key key, boolean coalesce, NativeCall<T> call)
+      throws SecretHubException {
+    return coalesce ? flights.call(key, call) : call.call();
+  }
+
+  /**
+   * Runs a call in the background, coalescing it with concurrent calls that have the same key if
+   * coalescing is enabled.
+   *
+   * @param key  the key.
+   * @param call the call.
+   * @param <T>  the type of value produced by the call.
+   * @return a future that completes with the result of the call.
+   */
+  private <T> CompletableFuture<T> submit(Key key, NativeCall<T> call) {
+    if (coalesceCalls) {
+      return flights.submit(key, () -> executor.submit(call));
+    }
+
+    return executor.submit(call);
+  }
+
+  /**
+   * Reads the resolved environment from the library.
+   *
+   * @return the environment variables.
+   * @throws SecretHubException if an error prevented the environment from being resolved.
+   */
+  private Map<String, String> readEnvironment() throws SecretHubException {
+    String json = invoke(client -> {
+      PointerByReference errMessage = new PointerByReference();
+      String result = NativeMemory.take(library.Client_ResolveEnv(client, errMessage));
+      throwException(errMessage);
+      return result;
+    });
+
+    try {
+      return ENVIRONMENT_READER.readValue(json);
+    } catch (Exception e) {
+      throw new SecretHubException("Failed to parse environment JSON", e);
+    }
+  }
+
+  /**
+   * Reads a secret version from the library.
+   *
+   * @param path the path to the secret.
+   * @return the secret.
+   * @throws SecretHubException if an error prevented the secret from being obtained.
+   */
+  private SecretVersion readVersion(String path) throws SecretHubException {
+    return invokeRead(client -> {
+      PointerByReference errMessage = new PointerByReference();
+      SecretHubLibrary.SecretVersion result = library.Client_Read(client, path, errMessage);
+      throwException(errMessage);
+      return lazyConversion ? new LazySecretVersion(result) : new SecretVersion(result);
+    });
+  }
+
+  /**
+   * Reads the data of a secret from the library.
+   *
+   * @param path the path to the secret.
+   * @return the secret data.
+   * @throws SecretHubException if an error prevented the secret from being obtained.
+   */
+  private String readData(String path) throws SecretHubException {
+    return invokeRead(client -> {
+      PointerByReference errMessage = new PointerByReference();
+      String result = NativeMemory.take(library.Client_ReadString(client, path, errMessage));
+      throwException(errMessage);
+      return result;
+    });
+  }
+
+  /**
+   * Makes an idempotent call to the library with a native client handle from the pool, retrying
+   * it after transient errors if retries are enabled.
+   *
+   * @param call the call.
+   * @param <T>  the type of value produced by the call.
+   * @return the result of the call.
+   * @throws CircuitBreakerOpenException       if the circuit breaker is open.
+   * @throws ConcurrencyLimitExceededException if the call could not start before the queue
+   *                                           timeout of the concurrency limit.
+   * @throws SecretHubException                if the call failed.
+   */
+  private <T> T invoke(HandlePool.HandleCall<T> call) throws SecretHubException {
+    return resilience.call(() -> limit(() -> executor.call(() -> pool.call(call))), true);
+  }
+
+  /**
+   * Reads a secret with a native client handle from the pool, hedging the read if hedging is
+   * enabled and retrying it after transient errors if retries are enabled.
+   *
+   * @param call the call.
+   * @param <T>  the type of value produced by the call.
+   * @return the result of the call.
+   * @throws CircuitBreakerOpenException       if the circuit breaker is open.
+   * @throws ConcurrencyLimitExceededException if the call could not start before the queue
+   *                                           timeout of the concurrency limit.
+   * @throws SecretHubException                if the call failed.
+   */
+  private <T> T invokeRead(HandlePool.HandleCall<T> call) throws SecretHubException {
+    if (hedging == null) {
+      return invoke(call);
+    }
+
+    return resilience.call(() -> hedging.call(() -> limit(() -> pool.call(call))), true);
+  }
+
+  /**
+   * Makes a call to the library with a native client handle from the pool, without retrying it.
+   *
+   * @param call the call.
+   * @param <T>  the type of value produced by the call.
+   * @return the result of the call.
+   * @throws CircuitBreakerOpenException       if the circuit breaker is open.
+   * @throws ConcurrencyLimitExceededException if the call could not start before the queue
+   *                                           timeout of the concurrency limit.
+   * @throws SecretHubException                if the call failed.
+   */
+  private <T> T invokeOnce(HandlePool.HandleCall<T> call) throws SecretHubException {
+    return resilience.call(() -> limit(() -> executor.call(() -> pool.call(call))), false);
+  }
+
+  /**
+   * Makes a call within the adaptive concurrency limit, if it is enabled.
+   *
+   * @param call the call.
+   * @param <T>  the type of value produced by the call.
+   * @return the result of the call.
+   * @throws ConcurrencyLimitExceededException if the call could not start before the queue
+   *                                           timeout.
+   * @throws SecretHubException                if the call failed.
+   */
+  private <T> T limit(NativeCall<T> call) throws SecretHubException {
+    return limiter == null ? call.call() : limiter.call(call);
+  }
+
+  /**
+   * Removes any cached values for a path that has been modified and forgets the calls in progress
+   * for it, so that later callers do not share a result read before the modification.
+   *
+   * @param path the path to the secret.
+   */
+  private void invalidate(String path) {
+    flights.forget(path);
+
+    if (negativeCache != null) {
+      negativeCache.invalidate(path);
+    }
+
+    if (environmentCache != null) {
+      environmentCache.invalidate();
+    }
+
+    if (snapshot != null) {
+      snapshot.invalidate(path);
+    }
+
+    if (cache != null) {
+      cache.invalidate(path);
+    }
+  }
+
+  /**
+   * Replaces the source of the environment variables read by {@link #resolveEnv(Set)}.
+   *
+   * @param environment gets the value of an environment variable by name.
+   */
+  void setEnvironment(Function<String, String> environment) {
+    this.environment = environment;
+  }
+
+  /**
+   * Converts the cause of a failed task into the exception reported to the caller.
+   *
+   * @param cause the cause of the failure.
+   * @return the exception.
+   * @throws RuntimeException if the cause was an unchecked exception.
+   * @throws Error            if the cause was an error.
+   */
+  static SecretHubException toSecretHubException(Throwable cause) {
+    if (cause instanceof SecretHubException) {
+      return (SecretHubException) cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+
+    return new SecretHubException(cause.getMessage(), cause);
   }
 
   /**
@@ -218,18 +1251,18 @@ public class Client implements AutoCloseable {
   }
 
   /**
-   * Gets the error message from a pointer.
+   * Gets the error message from a pointer and frees the memory allocated for it by the library.
+   * The pointer is cleared, so the message is only returned once.
    *
    * @param errMessage the error message pointer.
    * @return the error message or {@code null} if it was not set.
    */
   static String getErrorMessage(PointerByReference errMessage) {
-    Pointer pointer = errMessage.getPointer();
-    long peer = pointer.getLong(0L);
+    Pointer pointer = errMessage.getValue();
 
-    if (peer != 0L) {
-      Pointer msgPointer = new Pointer(peer);
-      String message = msgPointer.getString(0L);
+    if (pointer != null) {
+      errMessage.setValue(null);
+      String message = NativeMemory.take(pointer);
 
       if (!message.isEmpty()) {
         return message;
@@ -243,12 +1276,17 @@ public class Client implements AutoCloseable {
    * Throws an exception if the error message has been set.
    *
    * @param errMessage a pointer to the error message string.
-   * @throws SecretHubException if the error message was set.
+   * @throws SecretNotFoundException if the error message has a {@code not_found} error code.
+   * @throws SecretHubException      if the error message was set.
    */
   private void throwException(PointerByReference errMessage) throws SecretHubException {
     String message = getErrorMessage(errMessage);
 
     if (message != null) {
+      if (SecretNotFoundException.isNotFound(message)) {
+        throw new SecretNotFoundException(message);
+      }
+
       throw new SecretHubException(message);
     }
   }
@@ -259,8 +1297,26 @@ public class Client implements AutoCloseable {
    * @throws IllegalStateException if the client has been closed.
    */
   private void checkClient() throws IllegalStateException {
-    if (client == null) {
+    if (pool.isClosed()) {
       throw new IllegalStateException("The client has been closed");
     }
   }
+
+  /**
+   * {@code PathOperation} is an operation performed on the secret at a path.
+   *
+   * @param <T> the type of value produced by the operation.
+   */
+  @FunctionalInterface
+  private interface PathOperation<T> {
+
+    /**
+     * Performs the operation.
+     *
+     * @param path the path to the secret.
+     * @return the value produced by the operation.
+     * @throws SecretHubException if an error prevented the operation from completing.
+     */
+    T apply(String path) throws SecretHubException;
+  }
 }
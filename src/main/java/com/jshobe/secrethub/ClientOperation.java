@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code ClientOperation} identifies an operation of a {@link Client} for which metrics are
+ * recorded.
+ */
+public enum ClientOperation {
+  /**
+   * {@link Client#read(String)}, including reads made by {@link Client#readAsync(String)},
+   * {@link Client#readAll} and {@link Client#warmUp}.
+   */
+  READ,
+
+  /**
+   * {@link Client#readString(String)}, including reads made by
+   * {@link Client#readStringAsync(String)} and {@link Client#readStringAll}.
+   */
+  READ_STRING,
+
+  /**
+   * {@link Client#readValue(String)}.
+   */
+  READ_VALUE,
+
+  /**
+   * {@link Client#resolve(String)}, including calls made by {@link Client#resolveAsync(String)}
+   * and {@link TemplateResolver}.
+   */
+  RESOLVE,
+
+  /**
+   * {@link Client#resolveEnv()} and {@link Client#resolveEnv(java.util.Set)}.
+   */
+  RESOLVE_ENV,
+
+  /**
+   * {@link Client#exists(String)}, including calls made by {@link Client#existsAsync(String)}.
+   */
+  EXISTS,
+
+  /**
+   * {@link Client#write(String, String)}, including calls made by
+   * {@link Client#writeAsync(String, String)}.
+   */
+  WRITE,
+
+  /**
+   * {@link Client#remove(String)}, including calls made by {@link Client#removeAsync(String)}.
+   */
+  REMOVE
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * {@code ClientOptions} contains the settings used to configure a {@link Client}.
+ *
+ * <p>Instances are created using the builder:</p>
+ *
+ * <pre>{@code
+ * ClientOptions options = ClientOptions.builder()
+ *     .cacheTtl(Duration.ofMinutes(5))
+ *     .cacheMaxSize(500)
+ *     .build();
+ * }</pre>
+ */
+@Getter
+@Builder(toBuilder = true)
+public class ClientOptions {
+
+  /**
+   * The amount of time that a secret read by the client is cached. If {@code null}, the default,
+   * secrets are not cached.
+   */
+  private final Duration cacheTtl;
+
+  /**
+   * The maximum number of entries held in the cache. When the limit is reached, the least recently
+   * used entry is evicted. Defaults to {@code 1000}.
+   */
+  @Builder.Default
+  private final int cacheMaxSize = 1000;
+
+  /**
+   * The amount of time before a cached secret expires at which it is reloaded in the background,
+   * if it has been read since it was loaded. If {@code null}, the default, cached secrets are not
+   * refreshed and a read after they expire blocks until the secret is reloaded.
+   */
+  private final Duration cacheRefreshAhead;
+
+  /**
+   * The fraction of the refresh-ahead time over which background reloads are randomly spread, so
+   * that secrets cached at the same time do not all reload at the same time. Defaults to
+   * {@code 0.5}.
+   */
+  @Builder.Default
+  private final double cacheRefreshJitter = 0.5;
+
+  /**
+   * The amount of time after a cached secret expires during which it is still served. A read of
+   * a secret within this period returns the expired value immediately and starts a single
+   * background reload, so reads do not wait for retries while the SecretHub API is unavailable.
+   * The value is replaced once the reload succeeds, and removed if the secret no longer exists.
+   * If {@code null}, the default, a read of an expired secret waits for it to be reloaded.
+   */
+  private final Duration cacheStaleIfError;
+
+  /**
+   * Notified each time an expired cached secret is served. If {@code null}, the default, stale
+   * serves are only counted in {@link Client#getCacheStats()}.
+   */
+  private final StaleSecretListener staleSecretListener;
+
+  /**
+   * The amount of time that the client remembers that a path does not exist, after a read
+   * failed with a {@link SecretNotFoundException} or {@link Client#exists(String)} returned
+   * {@code false}. Writing or removing the path through the client forgets it immediately. If
+   * {@code null}, the default, missing paths are not cached.
+   */
+  private final Duration negativeCacheTtl;
+
+  /**
+   * The maximum number of missing paths that are remembered. Defaults to {@code 1000}.
+   */
+  @Builder.Default
+  private final int negativeCacheMaxSize = 1000;
+
+  /**
+   * The amount of time that the environment resolved by {@link Client#resolveEnv()} is cached.
+   * Writing or removing a secret through the client clears the cached environment. If
+   * {@code null}, the default, the environment is resolved on each call.
+   */
+  private final Duration environmentCacheTtl;
+
+  /**
+   * The file in which the secret versions read by the client are kept between runs, encrypted. A
+   * new client serves the versions in the file immediately and reads each of them again in the
+   * background the first time it is served. If {@code null}, the default, no snapshot is kept.
+   *
+   * <p>The encryption key is derived from the passphrase with 100,000 iterations of PBKDF2,
+   * which takes tens of milliseconds or more. This happens on a separate thread, so creating the
+   * client is not delayed, but the first reads wait until the file has been loaded.</p>
+   */
+  private final Path snapshotPath;
+
+  /**
+   * The passphrase from which the snapshot encryption key is derived. If {@code null}, the
+   * default, the key is derived from the SecretHub credential in the
+   * {@code SECRETHUB_CREDENTIAL} environment variable or the {@code $HOME/.secrethub/credential}
+   * file, and no snapshot is kept if neither is present. The builder keeps a copy of the
+   * passphrase, so the caller can clear its own array once the options have been built.
+   */
+  @Getter(AccessLevel.PACKAGE)
+  private final char[] snapshotPassphrase;
+
+  /**
+   * The maximum age of the versions served from the snapshot. Defaults to one day.
+   */
+  @Builder.Default
+  private final Duration snapshotMaxAge = Duration.ofDays(1L);
+
+  /**
+   * The maximum number of versions kept in the snapshot. Defaults to {@code 1000}.
+   */
+  @Builder.Default
+  private final int snapshotMaxSize = 1000;
+
+  /**
+   * The number of threads used to reload cached secrets in the background. Defaults to {@code 2}.
+   */
+  @Builder.Default
+  private final int cacheRefreshThreads = 2;
+
+  /**
+   * The maximum number of worker threads used to call the SecretHub library in the background,
+   * for the asynchronous methods and when reading several secrets with {@link Client#readAll}.
+   * Defaults to {@code 8}.
+   */
+  @Builder.Default
+  private final int workerThreads = 8;
+
+  /**
+   * The maximum number of calls that can wait for a worker thread. When the queue is full, the
+   * futures returned by the asynchronous methods fail with a
+   * {@link java.util.concurrent.RejectedExecutionException}. Defaults to {@code 1024}.
+   */
+  @Builder.Default
+  private final int workerQueueCapacity = 1024;
+
+  /**
+   * The executor used to call the SecretHub library in the background, in place of the worker
+   * threads created by the client. The client does not shut down this executor when it is closed.
+   * If {@code null}, the default, the client creates its own worker threads.
+   */
+  private final Executor executor;
+
+  /**
+   * Determines if calls to the SecretHub library made from virtual threads are handed to the
+   * client's platform worker threads. A native call pins the carrier thread of the virtual thread
+   * that makes it for the whole network round trip, so with many concurrent calls the carrier
+   * threads are exhausted. When this option is enabled, the virtual thread parks while a worker
+   * thread makes the call instead. This option has no effect on versions of Java without virtual
+   * threads. Defaults to {@code true}.
+   */
+  @Builder.Default
+  private final boolean offloadVirtualThreads = true;
+
+  /**
+   * Determines if concurrent asynchronous and batch calls to read, resolve or check the existence
+   * of the same path are coalesced, so that only one call to the SecretHub library is in progress
+   * for each path. The other callers share its result. Defaults to {@code true}.
+   */
+  @Builder.Default
+  private final boolean coalesceCalls = true;
+
+  /**
+   * Determines if concurrent synchronous calls to read, resolve or check the existence of the same
+   * path are coalesced. The callers that arrive while a call is in progress block until it
+   * completes and share its result. Defaults to {@code false}.
+   */
+  private final boolean coalesceSyncCalls;
+
+  /**
+   * The number of native client handles created with the client. Defaults to {@code 1}.
+   */
+  @Builder.Default
+  private final int handlePoolMinSize = 1;
+
+  /**
+   * The maximum number of native client handles used by the client. When every handle already
+   * has a call in progress, another handle is created, up to this limit, so that concurrent calls
+   * are not serialized on a single handle. Defaults to {@code 1}.
+   */
+  @Builder.Default
+  private final int handlePoolMaxSize = 1;
+
+  /**
+   * The way that a handle is chosen for each call, when there is more than one. Defaults to
+   * {@link HandleSelection#LEAST_LOADED}.
+   */
+  @Builder.Default
+  private final HandleSelection handleSelection = HandleSelection.LEAST_LOADED;
+
+  /**
+   * The amount of time that a handle above the minimum pool size can be idle before it is
+   * deleted. If {@code null}, idle handles are kept until the client is closed. Defaults to one
+   * minute.
+   */
+  @Builder.Default
+  private final Duration handlePoolIdleTimeout = Duration.ofMinutes(1L);
+
+  /**
+   * Determines if the secret versions returned by {@link Client#read(String)} convert their
+   * identifiers and timestamps only when their getters are first called, instead of when the
+   * secret is read. Callers that only use {@link SecretVersion#getData()} then avoid parsing four
+   * UUIDs and converting two timestamps on each read. Defaults to {@code false}.
+   */
+  private final boolean lazyConversion;
+
+  /**
+   * Receives the duration and outcome of each call made through the client, so that they can be
+   * published to a metrics system. If {@code null}, the default, the metrics are only available
+   * from {@link Client#getOperationStats()} and JMX.
+   */
+  private final MetricsSink metricsSink;
+
+  /**
+   * Determines if the metrics of each operation are registered as MBeans with the platform MBean
+   * server. The MBeans are unregistered when the client is closed. Defaults to {@code false}.
+   */
+  private final boolean jmxEnabled;
+
+  /**
+   * The name used for the client in the names of its MBeans. If {@code null}, the default, a
+   * unique name is generated.
+   */
+  private final String jmxName;
+
+  /**
+   * The maximum number of attempts made for a read that fails with a transient error, such as the
+   * SecretHub API being unavailable. Writes and removals are never retried. Defaults to
+   * {@code 1}, which disables retries.
+   */
+  @Builder.Default
+  private final int retryMaxAttempts = 1;
+
+  /**
+   * The backoff before the first retry. The actual delay is chosen at random between zero and the
+   * backoff. Defaults to 100 milliseconds.
+   */
+  @Builder.Default
+  private final Duration retryInitialBackoff = Duration.ofMillis(100L);
+
+  /**
+   * The maximum backoff before a retry. Defaults to 5 seconds.
+   */
+  @Builder.Default
+  private final Duration retryMaxBackoff = Duration.ofSeconds(5L);
+
+  /**
+   * The factor by which the backoff is multiplied after each retry. Defaults to {@code 2.0}.
+   */
+  @Builder.Default
+  private final double retryMultiplier = 2.0;
+
+  /**
+   * The number of consecutive transient errors after which the circuit breaker opens and calls
+   * fail immediately with a {@link CircuitBreakerOpenException}. Defaults to {@code 0}, which
+   * disables the circuit breaker.
+   */
+  private final int circuitBreakerFailureThreshold;
+
+  /**
+   * The amount of time that the circuit breaker stays open before it allows a trial call.
+   * Defaults to 30 seconds.
+   */
+  @Builder.Default
+  private final Duration circuitBreakerOpenDuration = Duration.ofSeconds(30L);
+
+  /**
+   * Determines if reads of secrets are hedged: if a read has not completed within the hedge
+   * delay, a second identical request is sent and the first response to arrive is returned. The
+   * requests are made by a separate pool of threads, with as many threads and as long a queue as
+   * the worker pool. Defaults to {@code false}.
+   */
+  private final boolean hedgeReads;
+
+  /**
+   * The quantile of the read latency used as the hedge delay. Defaults to {@code 0.95}, so that
+   * about one read in twenty is hedged.
+   */
+  @Builder.Default
+  private final double hedgeQuantile = 0.95;
+
+  /**
+   * The minimum hedge delay. Defaults to 5 milliseconds.
+   */
+  @Builder.Default
+  private final Duration hedgeMinDelay = Duration.ofMillis(5L);
+
+  /**
+   * The maximum fraction of reads that may be hedged, so that hedging cannot double the load on
+   * the SecretHub API while it is slow. Defaults to {@code 0.1}.
+   */
+  @Builder.Default
+  private final double hedgeMaxRate = 0.1;
+
+  /**
+   * The initial limit on the number of calls to the SecretHub library that the client makes at
+   * the same time. The limit then adapts to the observed latency, between
+   * {@link #getConcurrencyMinLimit()} and {@link #getConcurrencyMaxLimit()}. Defaults to
+   * {@code 0}, which disables the limit.
+   */
+  private final int concurrencyLimit;
+
+  /**
+   * The lowest value of the adaptive concurrency limit. Defaults to {@code 1}.
+   */
+  @Builder.Default
+  private final int concurrencyMinLimit = 1;
+
+  /**
+   * The highest value of the adaptive concurrency limit. Defaults to {@code 200}.
+   */
+  @Builder.Default
+  private final int concurrencyMaxLimit = 200;
+
+  /**
+   * The factor by which the latency of a call may exceed the average latency before the
+   * concurrency limit is lowered. Defaults to {@code 2.0}.
+   */
+  @Builder.Default
+  private final double concurrencyLatencyTolerance = 2.0;
+
+  /**
+   * The amount of time that a call beyond the concurrency limit waits to start before it fails
+   * with a {@link ConcurrencyLimitExceededException}. A zero timeout rejects the call
+   * immediately. Defaults to 1 second.
+   */
+  @Builder.Default
+  private final Duration concurrencyQueueTimeout = Duration.ofSeconds(1L);
+
+  /**
+   * The interval at which the paths watched with
+   * {@link Client#watch(String, SecretChangeListener)} are polled. Defaults to 30 seconds.
+   */
+  @Builder.Default
+  private final Duration watchInterval = Duration.ofSeconds(30L);
+
+  /**
+   * The maximum number of watched paths read in each interval. When more paths are watched, they
+   * are read in turn over several intervals. Defaults to {@code 100}.
+   */
+  @Builder.Default
+  private final int watchMaxReadsPerInterval = 100;
+
+  /**
+   * The binding used to call the SecretHub native library. Defaults to the binding returned by
+   * {@link NativeBinding#getDefault()}.
+   */
+  @Builder.Default
+  private final NativeBinding nativeBinding = NativeBinding.getDefault();
+
+  /**
+   * Gets the default options.
+   *
+   * @return the default options.
+   */
+  public static ClientOptions defaults() {
+    return builder().build();
+  }
+
+  /**
+   * Determines if caching is enabled.
+   *
+   * @return {@code true} if secrets are cached or {@code false} if not.
+   */
+  boolean isCacheEnabled() {
+    return cacheTtl != null && !cacheTtl.isZero() && !cacheTtl.isNegative() && cacheMaxSize > 0;
+  }
+
+  /**
+   * Determines if missing paths are cached.
+   *
+   * @return {@code true} if missing paths are cached or {@code false} if not.
+   */
+  boolean isNegativeCacheEnabled() {
+    return negativeCacheTtl != null && !negativeCacheTtl.isZero() && !negativeCacheTtl.isNegative()
+        && negativeCacheMaxSize > 0;
+  }
+
+  /**
+   * Determines if the resolved environment is cached.
+   *
+   * @return {@code true} if the environment is cached or {@code false} if not.
+   */
+  boolean isEnvironmentCacheEnabled() {
+    return environmentCacheTtl != null && !environmentCacheTtl.isZero()
+        && !environmentCacheTtl.isNegative();
+  }
+
+  /**
+   * Determines if a snapshot of the secrets read is kept.
+   *
+   * @return {@code true} if a snapshot is kept or {@code false} if not.
+   */
+  boolean isSnapshotEnabled() {
+    return snapshotPath != null && snapshotMaxAge != null && !snapshotMaxAge.isZero()
+        && !snapshotMaxAge.isNegative() && snapshotMaxSize > 0;
+  }
+
+  /**
+   * Determines if cached secrets are refreshed in the background before they expire.
+   *
+   * @return {@code true} if refresh-ahead is enabled or {@code false} if not.
+   */
+  boolean isRefreshAheadEnabled() {
+    return isCacheEnabled() && cacheRefreshAhead != null && !cacheRefreshAhead.isZero()
+        && !cacheRefreshAhead.isNegative();
+  }
+
+  /**
+   * {@code ClientOptionsBuilder} builds instances of {@link ClientOptions}.
+   */
+  public static class ClientOptionsBuilder {
+
+    /**
+     * Sets the passphrase from which the snapshot encryption key is derived. The passphrase is
+     * copied, so the caller can clear <i>snapshotPassphrase</i> once it has been set.
+     *
+     * @param snapshotPassphrase the passphrase.
+     * @return this builder.
+     */
+    public ClientOptionsBuilder snapshotPassphrase(char[] snapshotPassphrase) {
+      this.snapshotPassphrase = snapshotPassphrase == null ? null : snapshotPassphrase.clone();
+      return this;
+    }
+  }
+}
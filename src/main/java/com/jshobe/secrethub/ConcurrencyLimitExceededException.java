@@ -0,0 +1,36 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code ConcurrencyLimitExceededException} signals that a call was not made because the
+ * {@link Client} already had as many calls in progress as its concurrency limit allows, and the
+ * call could not start before the queue timeout.
+ *
+ * @see ClientOptions#getConcurrencyLimit()
+ */
+public class ConcurrencyLimitExceededException extends SecretHubException {
+
+  /**
+   * Creates a new instance of {@code ConcurrencyLimitExceededException}.
+   *
+   * @param message the error message.
+   */
+  public ConcurrencyLimitExceededException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@code ConcurrencyLimiter} limits the number of calls that a {@link Client} makes to the
+ * SecretHub library at the same time, adapting the limit to the observed latency with additive
+ * increase and multiplicative decrease (AIMD).
+ *
+ * <p>The baseline latency is a slow moving average of the latencies of all calls. Each call that
+ * completes within the latency tolerance of the baseline raises the limit by one, as long as at
+ * least half of the limit is in use. A call that is slower than that, or that fails with a
+ * transient error, cuts the limit by {@value #BACKOFF_RATIO}. A sudden rise in latency, such as
+ * when many clients start at once, therefore quickly lowers the limit, while the baseline still
+ * follows lasting changes in the network path.</p>
+ *
+ * <p>Calls beyond the limit wait for up to the queue timeout and are then rejected with a
+ * {@link ConcurrencyLimitExceededException}. With a zero timeout they are rejected
+ * immediately.</p>
+ */
+class ConcurrencyLimiter implements ConcurrencyLimiterMXBean {
+
+  private static final double BACKOFF_RATIO = 0.9;
+  private static final double BASELINE_WEIGHT = 0.01;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double tolerance;
+  private final long queueTimeout;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition available = lock.newCondition();
+  private final LongAdder rejected = new LongAdder();
+  private double limit;
+  private int inFlight;
+  private int waiting;
+  private double baseline = -1.0;
+
+  /**
+   * Creates a new instance of {@code ConcurrencyLimiter}.
+   *
+   * @param options the client options.
+   */
+  ConcurrencyLimiter(ClientOptions options) {
+    this.minLimit = Math.max(1, options.getConcurrencyMinLimit());
+    this.maxLimit = Math.max(minLimit, options.getConcurrencyMaxLimit());
+    this.limit = Math.max(minLimit, Math.min(maxLimit, options.getConcurrencyLimit()));
+    this.tolerance = Math.max(1.0, options.getConcurrencyLatencyTolerance());
+    this.queueTimeout = Math.max(0L, options.getConcurrencyQueueTimeout().toNanos());
+  }
+
+  /**
+   * Makes a call once the number of calls in progress is below the limit, and adjusts the limit
+   * from its outcome.
+   *
+   * @param call the call.
+   * @param <T>  the type of value produced by the call.
+   * @return the result of the call.
+   * @throws ConcurrencyLimitExceededException if the call could not start before the queue
+   *                                           timeout.
+   * @throws SecretHubException                if the call failed.
+   */
+  <T> T call(NativeCall<T> call) throws SecretHubException {
+    acquire();
+    long start = System.nanoTime();
+    boolean overloaded = false;
+    boolean sample = false;
+
+    try {
+      T result = call.call();
+      sample = true;
+      return result;
+    } catch (SecretHubException e) {
+      overloaded = Resilience.isTransient(e);
+      // a missing secret is a normal response, so its latency still counts
+      sample = overloaded || e instanceof SecretNotFoundException;
+      throw e;
+    } finally {
+      release(sample ? System.nanoTime() - start : -1L, overloaded);
+    }
+  }
+
+  @Override
+  public int getLimit() {
+    lock.lock();
+
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int getInFlight() {
+    lock.lock();
+
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int getQueueDepth() {
+    lock.lock();
+
+    try {
+      return waiting;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * Gets a snapshot of the statistics.
+   *
+   * @return the statistics.
+   */
+  ConcurrencyStats getStats() {
+    lock.lock();
+
+    try {
+      return new ConcurrencyStats((int) limit, inFlight, waiting, rejected.sum());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until the number of calls in progress is below the limit.
+   *
+   * @throws ConcurrencyLimitExceededException if the wait timed out.
+   * @throws SecretHubException                if the thread was interrupted while waiting.
+   */
+  private void acquire() throws SecretHubException {
+    lock.lock();
+
+    try {
+      if (inFlight >= (int) limit) {
+        waitForCapacity();
+      }
+
+      inFlight++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until the number of calls in progress is below the limit. The caller must hold the
+   * lock.
+   *
+   * @throws ConcurrencyLimitExceededException if the wait timed out.
+   * @throws SecretHubException                if the thread was interrupted while waiting.
+   */
+  private void waitForCapacity() throws SecretHubException {
+    long remaining = queueTimeout;
+    waiting++;
+
+    try {
+      while (inFlight >= (int) limit) {
+        if (remaining <= 0L) {
+          rejected.increment();
+          throw new ConcurrencyLimitExceededException(
+              "Too many calls to the SecretHub API are in progress (limit " + (int) limit + ")");
+        }
+
+        remaining = available.awaitNanos(remaining);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SecretHubException("Interrupted while waiting to call the SecretHub API", e);
+    } finally {
+      waiting--;
+    }
+  }
+
+  /**
+   * Ends a call and adjusts the limit.
+   *
+   * @param latency    the latency of the call in nanoseconds or {@code -1} if the call failed for
+   *                   a reason unrelated to the load on the SecretHub API.
+   * @param overloaded {@code true} if the call failed with a transient error.
+   */
+  private void release(long latency, boolean overloaded) {
+    lock.lock();
+
+    try {
+      int current = inFlight--;
+
+      if (latency >= 0L && adjust(latency, overloaded, current)) {
+        available.signalAll();
+      } else {
+        available.signal();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adjusts the limit from the outcome of a call. The caller must hold the lock.
+   *
+   * @param latency    the latency of the call in nanoseconds.
+   * @param overloaded {@code true} if the call failed with a transient error.
+   * @param inFlight   the number of calls in progress, including this one.
+   * @return {@code true} if the limit was raised or {@code false} if not.
+   */
+  private boolean adjust(long latency, boolean overloaded, int inFlight) {
+    baseline = baseline < 0.0 ? latency : baseline + (latency - baseline) * BASELINE_WEIGHT;
+
+    if (overloaded || latency > baseline * tolerance) {
+      limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    } else if (inFlight * 2 >= (int) limit && limit < maxLimit) {
+      limit = Math.min(maxLimit, limit + 1.0);
+      return true;
+    }
+
+    return false;
+  }
+}
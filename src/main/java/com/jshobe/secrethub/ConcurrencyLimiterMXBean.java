@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code ConcurrencyLimiterMXBean} publishes the state of the adaptive concurrency limit of a
+ * {@link Client} through JMX, named {@code com.jshobe.secrethub:type=Client,name=<name>,
+ * component=concurrencyLimiter}.
+ *
+ * @see ClientOptions#isJmxEnabled()
+ */
+public interface ConcurrencyLimiterMXBean {
+
+  /**
+   * Gets the current concurrency limit.
+   *
+   * @return the maximum number of calls that may be in progress.
+   */
+  int getLimit();
+
+  /**
+   * Gets the number of calls in progress.
+   *
+   * @return the number of calls.
+   */
+  int getInFlight();
+
+  /**
+   * Gets the number of calls waiting for the number of calls in progress to drop below the limit.
+   *
+   * @return the number of calls.
+   */
+  int getQueueDepth();
+
+  /**
+   * Gets the number of calls that were rejected because they could not start before the queue
+   * timeout.
+   *
+   * @return the number of calls.
+   */
+  long getRejectedCount();
+}
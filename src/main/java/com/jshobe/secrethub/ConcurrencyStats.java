@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import lombok.Value;
+
+/**
+ * {@code ConcurrencyStats} is a snapshot of the adaptive concurrency limit of a {@link Client}.
+ */
+@Value
+public class ConcurrencyStats {
+
+  /**
+   * The current concurrency limit. Zero if the limit is disabled.
+   */
+  int limit;
+
+  /**
+   * The number of calls in progress.
+   */
+  int inFlight;
+
+  /**
+   * The number of calls waiting for the number of calls in progress to drop below the limit.
+   */
+  int queueDepth;
+
+  /**
+   * The number of calls that were rejected because they could not start before the queue
+   * timeout.
+   */
+  long rejectedCount;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code DaemonThreadFactory} creates the named daemon threads used by the background tasks of a
+ * {@link Client}, so that they do not prevent the JVM from exiting.
+ */
+class DaemonThreadFactory implements ThreadFactory {
+
+  private final String prefix;
+  private final AtomicInteger counter = new AtomicInteger();
+
+  /**
+   * Creates a new instance of {@code DaemonThreadFactory}.
+   *
+   * @param name the base name of the threads.
+   */
+  DaemonThreadFactory(String name) {
+    this.prefix = "secrethub-" + name + "-";
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+}
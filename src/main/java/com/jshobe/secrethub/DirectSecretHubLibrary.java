@@ -0,0 +1,136 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * {@code DirectSecretHubLibrary} is an implementation of {@link SecretHubLibrary} that uses JNA
+ * direct mapping. The native functions are bound to static methods with {@link Native#register},
+ * so calls avoid the reflective interface proxy used by {@link SecretHubLibrary#INSTANCE}.
+ */
+final class DirectSecretHubLibrary implements SecretHubLibrary {
+
+  /**
+   * Creates a new instance of {@code DirectSecretHubLibrary}.
+   */
+  private DirectSecretHubLibrary() {
+  }
+
+  @Override
+  public Client new_Client(PointerByReference errMessage) {
+    return Functions.new_Client(errMessage);
+  }
+
+  @Override
+  public void delete_Client(Client client) {
+    Functions.delete_Client(client);
+  }
+
+  @Override
+  public SecretVersion.ByValue Client_Read(Client client, String path,
+      PointerByReference errMessage) {
+    return Functions.Client_Read(client, path, errMessage);
+  }
+
+  @Override
+  public Pointer Client_ReadString(Client client, String path, PointerByReference errMessage) {
+    return Functions.Client_ReadString(client, path, errMessage);
+  }
+
+  @Override
+  public Pointer Client_Resolve(Client client, String ref, PointerByReference errMessage) {
+    return Functions.Client_Resolve(client, ref, errMessage);
+  }
+
+  @Override
+  public Pointer Client_ResolveEnv(Client client, PointerByReference errMessage) {
+    return Functions.Client_ResolveEnv(client, errMessage);
+  }
+
+  @Override
+  public boolean Client_Exists(Client client, String path, PointerByReference errMessage) {
+    return Functions.Client_Exists(client, path, errMessage);
+  }
+
+  @Override
+  public void Client_Remove(Client client, String path, PointerByReference errMessage) {
+    Functions.Client_Remove(client, path, errMessage);
+  }
+
+  @Override
+  public void Client_Write(Client client, String path, String secret,
+      PointerByReference errMessage) {
+    Functions.Client_Write(client, path, secret, errMessage);
+  }
+
+  /**
+   * Gets the library that uses direct mapping, or the interface proxy library if the native
+   * functions could not be registered.
+   *
+   * @return the library.
+   */
+  static SecretHubLibrary load() {
+    try {
+      return Functions.LIBRARY;
+    } catch (LinkageError e) {
+      return SecretHubLibrary.INSTANCE;
+    }
+  }
+
+  /**
+   * {@code Functions} contains the directly mapped native functions. Initializing this class fails
+   * if the functions could not be registered.
+   */
+  private static final class Functions {
+
+    static final DirectSecretHubLibrary LIBRARY;
+
+    static {
+      Native.register(Functions.class, "secrethub");
+      LIBRARY = new DirectSecretHubLibrary();
+    }
+
+    private Functions() {
+    }
+
+    static native Client new_Client(PointerByReference errMessage);
+
+    static native void delete_Client(Client client);
+
+    static native SecretVersion.ByValue Client_Read(Client client, String path,
+        PointerByReference errMessage);
+
+    static native Pointer Client_ReadString(Client client, String path,
+        PointerByReference errMessage);
+
+    static native Pointer Client_Resolve(Client client, String ref,
+        PointerByReference errMessage);
+
+    static native Pointer Client_ResolveEnv(Client client, PointerByReference errMessage);
+
+    static native boolean Client_Exists(Client client, String path,
+        PointerByReference errMessage);
+
+    static native void Client_Remove(Client client, String path, PointerByReference errMessage);
+
+    static native void Client_Write(Client client, String path, String secret,
+        PointerByReference errMessage);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@code EnvironmentCache} holds the environment resolved by {@link Client#resolveEnv()} for a
+ * fixed amount of time, so that processes that resolve the environment repeatedly do not resolve
+ * every reference in it each time.
+ *
+ * <p>Like {@link NegativeCache}, any modification made through the client increments a
+ * generation counter and clears the cached environment. An environment resolved by a call that
+ * started before a modification is not cached.</p>
+ */
+class EnvironmentCache {
+
+  private final AtomicLong generation = new AtomicLong();
+  private final long ttl;
+  private final AtomicReference<Entry> entry = new AtomicReference<>();
+
+  /**
+   * Creates a new instance of {@code EnvironmentCache}.
+   *
+   * @param options the client options.
+   */
+  EnvironmentCache(ClientOptions options) {
+    this.ttl = options.getEnvironmentCacheTtl().toNanos();
+  }
+
+  /**
+   * Gets the current generation, which must be passed to {@link #put} for an environment
+   * resolved by a call that starts now.
+   *
+   * @return the generation.
+   */
+  long mark() {
+    return generation.get();
+  }
+
+  /**
+   * Gets the cached environment, if it has not expired.
+   *
+   * @return the environment or {@code null} if it is not cached. The map must not be modified.
+   */
+  Map<String, String> get() {
+    Entry current = entry.get();
+
+    if (current == null || System.nanoTime() - current.expiresAt >= 0L) {
+      return null;
+    }
+
+    return current.environment;
+  }
+
+  /**
+   * Caches a resolved environment.
+   *
+   * @param environment the environment, which must not be modified afterwards.
+   * @param mark        the generation when the call that resolved the environment started.
+   */
+  void put(Map<String, String> environment, long mark) {
+    Entry added = new Entry(environment, System.nanoTime() + ttl);
+    entry.set(added);
+
+    if (generation.get() != mark) {
+      entry.compareAndSet(added, null);
+    }
+  }
+
+  /**
+   * Removes the cached environment after a secret has been modified, because any of the variables
+   * may refer to it.
+   */
+  void invalidate() {
+    generation.incrementAndGet();
+    entry.set(null);
+  }
+
+  /**
+   * {@code Entry} is a resolved environment and the time at which it expires.
+   */
+  private static final class Entry {
+
+    private final Map<String, String> environment;
+    private final long expiresAt;
+
+    Entry(Map<String, String> environment, long expiresAt) {
+      this.environment = environment;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import com.sun.jna.ptr.PointerByReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code HandlePool} manages the native client handles used by a {@link Client}.
+ *
+ * <p>The pool starts with the minimum number of handles. When the selected handle already has a
+ * call in progress, a new handle is created, up to the maximum size, so that concurrent calls are
+ * not serialized on a single handle. Handles above the minimum size that have been idle for the
+ * idle timeout are deleted.</p>
+ *
+ * <p>Selecting a handle does not block. Each handle counts its calls in progress, and a handle is
+ * retired by atomically setting the sign bit of that count, which stops it from being selected
+ * again. A retired handle is deleted by whichever thread sees the count reach zero: the thread
+ * that retired it if it was idle, or else the thread that completes the last call in progress, so
+ * a handle is never deleted while a call is using it.</p>
+ */
+class HandlePool implements AutoCloseable {
+
+  private final SecretHubLibrary library;
+  private final int minSize;
+  private final int maxSize;
+  private final HandleSelection selection;
+  private final long idleTimeout;
+  private final AtomicBoolean growing = new AtomicBoolean();
+  private final AtomicLong nextTrim;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger peakInFlight = new AtomicInteger();
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder created = new LongAdder();
+  private final LongAdder retired = new LongAdder();
+  private volatile Handle[] handles;
+  private volatile boolean closed;
+
+  /**
+   * Creates a new instance of {@code HandlePool} and the minimum number of handles.
+   *
+   * @param library the SecretHub library instance.
+   * @param options the client options.
+   * @throws SecretHubException if a handle could not be created.
+   */
+  HandlePool(SecretHubLibrary library, ClientOptions options) throws SecretHubException {
+    this.library = library;
+    this.minSize = Math.max(1, options.getHandlePoolMinSize());
+    this.maxSize = Math.max(minSize, options.getHandlePoolMaxSize());
+    this.selection = options.getHandleSelection();
+    Duration timeout = options.getHandlePoolIdleTimeout();
+    this.idleTimeout = timeout == null ? Long.MAX_VALUE : timeout.toNanos();
+    this.nextTrim = new AtomicLong(System.nanoTime() + idleTimeout);
+
+    Handle[] initial = new Handle[minSize];
+
+    try {
+      for (int i = 0; i < minSize; i++) {
+        initial[i] = createHandle();
+      }
+    } catch (SecretHubException e) {
+      for (Handle handle : initial) {
+        if (handle != null) {
+          library.delete_Client(handle.client);
+        }
+      }
+
+      throw e;
+    }
+
+    this.handles = initial;
+  }
+
+  /**
+   * Makes a call with a handle from the pool.
+   *
+   * @param call the call.
+   * @param <T>  the type of value produced by the call.
+   * @return the result of the call.
+   * @throws SecretHubException    if the call failed.
+   * @throws IllegalStateException if the pool has been closed.
+   */
+  <T> T call(HandleCall<T> call) throws SecretHubException {
+    Handle handle = acquire();
+
+    try {
+      return call.call(handle.client);
+    } finally {
+      release(handle);
+    }
+  }
+
+  /**
+   * Determines if the pool has been closed.
+   *
+   * @return {@code true} if the pool is closed or {@code false} if not.
+   */
+  boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Gets the statistics for the pool.
+   *
+   * @return the pool statistics.
+   */
+  PoolStats getStats() {
+    Handle[] current = handles;
+    int busy = 0;
+
+    for (Handle handle : current) {
+      if (handle.inFlight.get() > 0) {
+        busy++;
+      }
+    }
+
+    return new PoolStats(current.length, maxSize, busy, inFlight.get(), peakInFlight.get(),
+        calls.sum(), created.sum(), retired.sum());
+  }
+
+  /**
+   * Retires all of the handles, so that no new calls can start. Idle handles are deleted
+   * immediately, and handles with calls in progress are deleted when their last call completes.
+   * Calls that are in progress are not interrupted.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    Handle[] current = handles;
+    handles = new Handle[0];
+
+    for (Handle handle : current) {
+      retired.increment();
+
+      if (handle.retire()) {
+        library.delete_Client(handle.client);
+      }
+    }
+  }
+
+  /**
+   * Selects a handle and marks it as having a call in progress.
+   *
+   * @return the handle.
+   * @throws IllegalStateException if the pool has been closed.
+   */
+  private Handle acquire() {
+    while (true) {
+      Handle[] current = handles;
+
+      if (closed || current.length == 0) {
+        throw new IllegalStateException("The client has been closed");
+      }
+
+      Handle handle = select(current);
+
+      if (handle.inFlight.get() > 0 && current.length < maxSize) {
+        Handle added = grow();
+
+        if (added != null) {
+          handle = added;
+        }
+      }
+
+      if (handle.tryAcquire()) {
+        calls.increment();
+        int count = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(count, Math::max);
+        return handle;
+      }
+    }
+  }
+
+  /**
+   * Marks a call on a handle as complete, deleting the handle if the pool was closed during the
+   * call, and deletes idle handles if they are due to be checked.
+   *
+   * @param handle the handle.
+   */
+  private void release(Handle handle) {
+    long now = System.nanoTime();
+    handle.lastUsed = now;
+    inFlight.decrementAndGet();
+
+    if (handle.inFlight.decrementAndGet() == Handle.RETIRED) {
+      // the pool was closed while the call was in progress
+      library.delete_Client(handle.client);
+      return;
+    }
+
+    long due = nextTrim.get();
+
+    if (now - due >= 0L && nextTrim.compareAndSet(due, now + idleTimeout)) {
+      trim(now);
+    }
+  }
+
+  /**
+   * Chooses the handle for a call.
+   *
+   * @param current the handles in the pool.
+   * @return the handle.
+   */
+  private Handle select(Handle[] current) {
+    if (selection == HandleSelection.THREAD_AFFINITY) {
+      long id = Thread.currentThread().getId();
+      return current[(int) Math.floorMod(id, (long) current.length)];
+    }
+
+    Handle selected = current[0];
+    int selectedLoad = selected.inFlight.get();
+
+    for (int i = 1; i < current.length && selectedLoad != 0; i++) {
+      int load = current[i].inFlight.get();
+
+      if (load >= 0 && (selectedLoad < 0 || load < selectedLoad)) {
+        selected = current[i];
+        selectedLoad = load;
+      }
+    }
+
+    return selected;
+  }
+
+  /**
+   * Adds a new handle to the pool, unless another thread is already adding one or the new handle
+   * could not be created.
+   *
+   * @return the new handle or {@code null} if none was added.
+   */
+  private Handle grow() {
+    if (!growing.compareAndSet(false, true)) {
+      return null;
+    }
+
+    try {
+      Handle handle;
+
+      try {
+        handle = createHandle();
+      } catch (SecretHubException e) {
+        // keep sharing the existing handles
+        return null;
+      }
+
+      synchronized (this) {
+        Handle[] current = handles;
+
+        if (closed || current.length >= maxSize) {
+          library.delete_Client(handle.client);
+          return null;
+        }
+
+        Handle[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = handle;
+        handles = updated;
+      }
+
+      return handle;
+    } finally {
+      growing.set(false);
+    }
+  }
+
+  /**
+   * Deletes handles above the minimum size that have been idle for the idle timeout.
+   *
+   * @param now the current value of {@link System#nanoTime()}.
+   */
+  private void trim(long now) {
+    List<Handle> removed = new ArrayList<>();
+
+    synchronized (this) {
+      Handle[] current = handles;
+      List<Handle> kept = new ArrayList<>(Arrays.asList(current));
+
+      for (int i = current.length - 1; i >= 0 && kept.size() > minSize; i--) {
+        Handle handle = current[i];
+
+        if (now - handle.lastUsed >= idleTimeout
+            && handle.inFlight.compareAndSet(0, Handle.RETIRED)) {
+          kept.remove(i);
+          removed.add(handle);
+        }
+      }
+
+      if (removed.isEmpty()) {
+        return;
+      }
+
+      handles = kept.toArray(new Handle[0]);
+    }
+
+    for (Handle handle : removed) {
+      library.delete_Client(handle.client);
+      retired.increment();
+    }
+  }
+
+  /**
+   * Creates a new native client handle.
+   *
+   * @return the handle.
+   * @throws SecretHubException if the handle could not be created.
+   */
+  private Handle createHandle() throws SecretHubException {
+    PointerByReference errMessage = new PointerByReference();
+    SecretHubLibrary.Client client = library.new_Client(errMessage);
+    String message = Client.getErrorMessage(errMessage);
+
+    if (message != null) {
+      throw new SecretHubException(message);
+    }
+
+    created.increment();
+    return new Handle(client);
+  }
+
+  /**
+   * {@code HandleCall} is a call made with a native client handle.
+   *
+   * @param <T> the type of value produced by the call.
+   */
+  @FunctionalInterface
+  interface HandleCall<T> {
+
+    /**
+     * Makes the call.
+     *
+     * @param client the native client handle.
+     * @return the value produced by the call.
+     * @throws SecretHubException if an error prevented the call from completing.
+     */
+    T call(SecretHubLibrary.Client client) throws SecretHubException;
+  }
+
+  /**
+   * {@code Handle} is a native client handle and the number of calls in progress on it. The sign
+   * bit of the count is set once the handle has been retired, and the remaining bits still count
+   * the calls in progress.
+   */
+  private static final class Handle {
+
+    static final int RETIRED = Integer.MIN_VALUE;
+
+    private final SecretHubLibrary.Client client;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long lastUsed = System.nanoTime();
+
+    Handle(SecretHubLibrary.Client client) {
+      this.client = client;
+    }
+
+    boolean tryAcquire() {
+      int count;
+
+      do {
+        count = inFlight.get();
+
+        if (count < 0) {
+          return false;
+        }
+      } while (!inFlight.compareAndSet(count, count + 1));
+
+      return true;
+    }
+
+    /**
+     * Retires the handle, so that it cannot be acquired again.
+     *
+     * @return {@code true} if the handle was idle and can be deleted or {@code false} if it will
+     *     be deleted when its last call completes.
+     */
+    boolean retire() {
+      int count;
+
+      do {
+        count = inFlight.get();
+
+        if (count < 0) {
+          return false;
+        }
+      } while (!inFlight.compareAndSet(count, count | RETIRED));
+
+      return count == 0;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code HandleSelection} identifies the ways that a {@link Client} chooses which of its native
+ * client handles makes a call, when it uses more than one.
+ *
+ * @see ClientOptions#getHandlePoolMaxSize()
+ */
+public enum HandleSelection {
+
+  /**
+   * Each call is made with the handle that has the fewest calls in progress.
+   */
+  LEAST_LOADED,
+
+  /**
+   * Each thread makes its calls with the same handle, chosen by its thread ID, for as long as the
+   * size of the pool does not change.
+   */
+  THREAD_AFFINITY
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code Hedging} cuts the tail latency of reads by sending a second, identical request when the
+ * first one has not completed within the hedge delay. The first successful response is returned
+ * and the other is discarded.
+ *
+ * <p>The hedge delay is the configured quantile of the latencies of the reads made so far, and
+ * is recalculated every {@value #RECALCULATE_INTERVAL} reads. No read is hedged until that many
+ * reads have completed. The number of hedged requests is limited by a token bucket that earns a
+ * fraction of a token for each read, so that hedging cannot double the load on the SecretHub API
+ * while it is slow.</p>
+ *
+ * <p>Both requests run on a separate, bounded pool of hedge threads rather than on the client's
+ * worker threads. The requests themselves never wait for other queued work, so a read made by a
+ * worker thread, for example by {@link Client#readAsync(String)}, cannot wait for a request that
+ * is queued behind it. If the hedge threads are saturated, the read is made on the calling thread
+ * without a hedge. With a handle pool larger than one, the hedged request normally uses a
+ * different native client handle from the first.</p>
+ *
+ * <p>The first request cannot run on the calling thread, because a native call cannot be
+ * abandoned, and the caller would have to wait for it even after the hedge had returned. Handing
+ * it to a hedge thread costs a few microseconds per read (see {@code ClientBenchmark.readHedged}),
+ * which is small next to a request to the SecretHub API. Reads that could not be hedged anyway,
+ * because the budget is empty, are made on the calling thread and do not pay this cost.</p>
+ */
+class Hedging {
+
+  private static final int RECALCULATE_INTERVAL = 64;
+  private static final long TOKEN = 1_000_000L;
+  private static final long MAX_TOKENS = 10L * TOKEN;
+
+  private final NativeExecutor executor;
+  private final NativeExecutor requests;
+  private final double quantile;
+  private final long minDelay;
+  private final long tokensPerRead;
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private final AtomicLong samples = new AtomicLong();
+  private final AtomicLong tokens = new AtomicLong(TOKEN);
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder wins = new LongAdder();
+  private volatile long delay = -1L;
+
+  /**
+   * Creates a new instance of {@code Hedging}.
+   *
+   * @param executor the executor used to make the calls that are not hedged.
+   * @param options  the client options.
+   */
+  Hedging(NativeExecutor executor, ClientOptions options) {
+    this.executor = executor;
+    this.requests = new NativeExecutor("hedge", options.getWorkerThreads(),
+        options.getWorkerQueueCapacity());
+    this.quantile = Math.max(0.0, Math.min(1.0, options.getHedgeQuantile()));
+    this.minDelay = Math.max(0L, options.getHedgeMinDelay().toNanos());
+    this.tokensPerRead = (long) (Math.max(0.0, Math.min(1.0, options.getHedgeMaxRate())) * TOKEN);
+  }
+
+  /**
+   * Makes a read, hedging it if it does not complete within the hedge delay.
+   *
+   * @param call the read.
+   * @param <T>  the type of value produced by the read.
+   * @return the first successful result.
+   * @throws SecretHubException if the read failed.
+   */
+  <T> T call(NativeCall<T> call) throws SecretHubException {
+    deposit();
+    NativeCall<T> timed = () -> {
+      long start = System.nanoTime();
+      T result = call.call();
+      record(System.nanoTime() - start);
+      return result;
+    };
+    long hedgeDelay = delay;
+
+    if (hedgeDelay < 0L || tokens.get() < TOKEN) {
+      return executor.call(timed);
+    }
+
+    CompletableFuture<T> primary = requests.submit(timed);
+
+    try {
+      return primary.get(hedgeDelay, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      // hedge below, if the budget allows
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RejectedExecutionException) {
+        return executor.call(timed);
+      }
+
+      throw Client.toSecretHubException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SecretHubException("Interrupted while reading a secret", e);
+    }
+
+    CompletableFuture<T> hedge = acquire() ? requests.submit(timed) : null;
+
+    if (hedge == null || hedge.isCompletedExceptionally()) {
+      return await(primary);
+    }
+
+    hedges.increment();
+    CompletableFuture<T> winner = new CompletableFuture<>();
+    AtomicInteger remaining = new AtomicInteger(2);
+    primary.whenComplete((result, error) -> complete(winner, remaining, result, error, null));
+    hedge.whenComplete((result, error) -> complete(winner, remaining, result, error, wins));
+
+    try {
+      return await(winner);
+    } finally {
+      // a request that is still queued is never sent
+      primary.cancel(false);
+      hedge.cancel(false);
+    }
+  }
+
+  /**
+   * Stops the hedge threads. Requests that have not started fail with an
+   * {@link IllegalStateException}.
+   */
+  void close() {
+    requests.close();
+  }
+
+  /**
+   * Gets the number of reads that were hedged.
+   *
+   * @return the number of reads.
+   */
+  long getHedgeCount() {
+    return hedges.sum();
+  }
+
+  /**
+   * Gets the number of hedged reads for which the second request returned first.
+   *
+   * @return the number of reads.
+   */
+  long getHedgeWinCount() {
+    return wins.sum();
+  }
+
+  /**
+   * Gets the current hedge delay.
+   *
+   * @return the delay in nanoseconds or {@code -1} if not enough reads have completed.
+   */
+  long getDelay() {
+    return delay;
+  }
+
+  /**
+   * Records the latency of a successful request and periodically recalculates the hedge delay.
+   *
+   * @param nanos the latency in nanoseconds.
+   */
+  private void record(long nanos) {
+    latencies.record(nanos);
+
+    if (samples.incrementAndGet() % RECALCULATE_INTERVAL == 0L) {
+      delay = Math.max(minDelay, latencies.getValueAtQuantile(quantile));
+    }
+  }
+
+  /**
+   * Adds the tokens earned by a read to the hedge budget.
+   */
+  private void deposit() {
+    long current = tokens.get();
+
+    while (current < MAX_TOKENS
+        && !tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + tokensPerRead))) {
+      current = tokens.get();
+    }
+  }
+
+  /**
+   * Takes a token from the hedge budget.
+   *
+   * @return {@code true} if a hedge may be sent or {@code false} if the budget is exhausted.
+   */
+  private boolean acquire() {
+    long current = tokens.get();
+
+    while (current >= TOKEN) {
+      if (tokens.compareAndSet(current, current - TOKEN)) {
+        return true;
+      }
+
+      current = tokens.get();
+    }
+
+    return false;
+  }
+
+  /**
+   * Completes the result of a hedged read with the first successful response, or with the error
+   * of the last request if both fail.
+   *
+   * @param winner    the result of the hedged read.
+   * @param remaining the number of requests that have not completed.
+   * @param result    the result of the request.
+   * @param error     the error of the request or {@code null} if it succeeded.
+   * @param counter   the counter incremented if the request is the first to succeed, or
+   *                  {@code null}.
+   * @param <T>       the type of value produced by the read.
+   */
+  private static <T> void complete(CompletableFuture<T> winner, AtomicInteger remaining,
+      T result, Throwable error, LongAdder counter) {
+    if (error == null) {
+      // the count is claimed before the waiting caller is released
+      if (remaining.getAndSet(-1) >= 0 && counter != null) {
+        counter.increment();
+      }
+
+      winner.complete(result);
+    } else if (remaining.decrementAndGet() == 0) {
+      winner.completeExceptionally(error);
+    }
+  }
+
+  /**
+   * Waits for a request to complete.
+   *
+   * @param future the result of the request.
+   * @param <T>    the type of value produced by the request.
+   * @return the result.
+   * @throws SecretHubException if the request failed.
+   */
+  private static <T> T await(CompletableFuture<T> future) throws SecretHubException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw Client.toSecretHubException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SecretHubException("Interrupted while reading a secret", e);
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code LatencyHistogram} is a lock-free, fixed-size histogram of latencies in nanoseconds.
+ *
+ * <p>Each power of two is split into {@value #SUB_BUCKETS} linear buckets, so a recorded value
+ * is reported with a relative error of at most 1/{@value #SUB_BUCKETS}. Recording a value updates
+ * one slot of a preallocated array and does not allocate.</p>
+ */
+class LatencyHistogram {
+
+  private static final int SUB_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder total = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a latency.
+   *
+   * @param nanos the latency in nanoseconds.
+   */
+  void record(long nanos) {
+    long value = Math.max(0L, nanos);
+    counts.incrementAndGet(index(value));
+    total.add(value);
+
+    long current = max.get();
+
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * Gets the number of recorded latencies.
+   *
+   * @return the count.
+   */
+  long getCount() {
+    long count = 0L;
+
+    for (int i = 0; i < BUCKETS; i++) {
+      count += counts.get(i);
+    }
+
+    return count;
+  }
+
+  /**
+   * Gets the mean of the recorded latencies.
+   *
+   * @return the mean in nanoseconds or {@code 0} if none have been recorded.
+   */
+  long getMean() {
+    long count = getCount();
+    return count == 0L ? 0L : total.sum() / count;
+  }
+
+  /**
+   * Gets the maximum recorded latency.
+   *
+   * @return the maximum in nanoseconds.
+   */
+  long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Gets the latency below which a fraction of the recorded latencies fall.
+   *
+   * @param quantile the fraction, between {@code 0} and {@code 1}.
+   * @return the latency in nanoseconds or {@code 0} if none have been recorded.
+   */
+  long getValueAtQuantile(double quantile) {
+    long[] snapshot = new long[BUCKETS];
+    long count = 0L;
+
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      count += snapshot[i];
+    }
+
+    if (count == 0L) {
+      return 0L;
+    }
+
+    long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+    long seen = 0L;
+
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+
+      if (seen >= rank) {
+        return Math.min(highestValue(i), max.get());
+      }
+    }
+
+    return max.get();
+  }
+
+  /**
+   * Gets the index of the bucket that holds a value.
+   *
+   * @param value the value, which must not be negative.
+   * @return the index.
+   */
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * Gets the highest value held by a bucket.
+   *
+   * @param index the index of the bucket.
+   * @return the value.
+   */
+  static long highestValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    int shift = index / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1L;
+  }
+}
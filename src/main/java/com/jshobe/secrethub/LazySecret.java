@@ -0,0 +1,182 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static com.jshobe.secrethub.Client.getDateTime;
+import static com.jshobe.secrethub.Client.getUUID;
+import static com.jshobe.secrethub.NativeMemory.take;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * {@code LazySecret} is a {@link Secret} that keeps the identifiers and timestamp returned by the
+ * SecretHub library, and only converts them to {@link UUID}s and a {@link LocalDateTime} when
+ * their getters are first called. Values are converted and replaced under the lock on the
+ * instance, as they are by {@link LazySecretVersion}.
+ *
+ * @see LazySecretVersion
+ */
+final class LazySecret extends Secret {
+
+  private final long rawCreatedAt;
+  private String rawSecretId;
+  private String rawDirectoryId;
+  private String rawRepositoryId;
+  private volatile boolean secretIdConverted;
+  private volatile boolean directoryIdConverted;
+  private volatile boolean repositoryIdConverted;
+  private volatile boolean createdAtConverted;
+
+  /**
+   * Creates a new instance of {@code LazySecret}.
+   *
+   * @param secret the secret to copy. The strings that it references are freed.
+   */
+  LazySecret(SecretHubLibrary.Secret secret) {
+    this.rawSecretId = take(secret.SecretID);
+    this.rawDirectoryId = take(secret.DirID);
+    this.rawRepositoryId = take(secret.RepoID);
+    this.rawCreatedAt = secret.CreatedAt;
+    super.setName(take(secret.Name));
+    super.setBlindName(take(secret.BlindName));
+    super.setVersionCount(secret.VersionCount);
+    super.setLatestVersion(secret.LatestVersion);
+    super.setStatus(take(secret.Status));
+  }
+
+  /**
+   * Creates a copy of a {@code LazySecret}. Values that the original has not converted are left to
+   * be converted by the copy.
+   *
+   * @param secret the secret to copy.
+   */
+  private LazySecret(LazySecret secret) {
+    this.rawCreatedAt = secret.rawCreatedAt;
+    super.setName(secret.getName());
+    super.setBlindName(secret.getBlindName());
+    super.setVersionCount(secret.getVersionCount());
+    super.setLatestVersion(secret.getLatestVersion());
+    super.setStatus(secret.getStatus());
+
+    synchronized (secret) {
+      this.rawSecretId = secret.rawSecretId;
+      this.rawDirectoryId = secret.rawDirectoryId;
+      this.rawRepositoryId = secret.rawRepositoryId;
+
+      if (secret.secretIdConverted) {
+        setSecretId(secret.getSecretId());
+      }
+
+      if (secret.directoryIdConverted) {
+        setDirectoryId(secret.getDirectoryId());
+      }
+
+      if (secret.repositoryIdConverted) {
+        setRepositoryId(secret.getRepositoryId());
+      }
+
+      if (secret.createdAtConverted) {
+        setCreatedAt(secret.getCreatedAt());
+      }
+    }
+  }
+
+  @Override
+  Secret copy() {
+    return new LazySecret(this);
+  }
+
+  @Override
+  public UUID getSecretId() {
+    if (!secretIdConverted) {
+      synchronized (this) {
+        if (!secretIdConverted) {
+          setSecretId(getUUID(rawSecretId));
+        }
+      }
+    }
+
+    return super.getSecretId();
+  }
+
+  @Override
+  public synchronized void setSecretId(UUID secretId) {
+    super.setSecretId(secretId);
+    rawSecretId = null;
+    secretIdConverted = true;
+  }
+
+  @Override
+  public UUID getDirectoryId() {
+    if (!directoryIdConverted) {
+      synchronized (this) {
+        if (!directoryIdConverted) {
+          setDirectoryId(getUUID(rawDirectoryId));
+        }
+      }
+    }
+
+    return super.getDirectoryId();
+  }
+
+  @Override
+  public synchronized void setDirectoryId(UUID directoryId) {
+    super.setDirectoryId(directoryId);
+    rawDirectoryId = null;
+    directoryIdConverted = true;
+  }
+
+  @Override
+  public UUID getRepositoryId() {
+    if (!repositoryIdConverted) {
+      synchronized (this) {
+        if (!repositoryIdConverted) {
+          setRepositoryId(getUUID(rawRepositoryId));
+        }
+      }
+    }
+
+    return super.getRepositoryId();
+  }
+
+  @Override
+  public synchronized void setRepositoryId(UUID repositoryId) {
+    super.setRepositoryId(repositoryId);
+    rawRepositoryId = null;
+    repositoryIdConverted = true;
+  }
+
+  @Override
+  public LocalDateTime getCreatedAt() {
+    if (!createdAtConverted) {
+      synchronized (this) {
+        if (!createdAtConverted) {
+          setCreatedAt(getDateTime(rawCreatedAt));
+        }
+      }
+    }
+
+    return super.getCreatedAt();
+  }
+
+  @Override
+  public synchronized void setCreatedAt(LocalDateTime createdAt) {
+    super.setCreatedAt(createdAt);
+    createdAtConverted = true;
+  }
+}
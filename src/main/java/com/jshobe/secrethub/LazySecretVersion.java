@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static com.jshobe.secrethub.Client.getDateTime;
+import static com.jshobe.secrethub.Client.getUUID;
+import static com.jshobe.secrethub.NativeMemory.take;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * {@code LazySecretVersion} is a {@link SecretVersion} that keeps the identifier and timestamp
+ * returned by the SecretHub library, and only converts them to a {@link UUID} and a
+ * {@link LocalDateTime} when their getters are first called.
+ *
+ * <p>Instances may be shared by the cache, so each value is converted and published while
+ * holding the lock on the instance, and then flagged through a volatile field that lets later
+ * reads skip the lock. Calling a setter replaces the value under the same lock, and discards the
+ * raw value so that a conversion cannot overwrite it.</p>
+ */
+final class LazySecretVersion extends SecretVersion {
+
+  private final long rawCreatedAt;
+  private String rawSecretVersionId;
+  private volatile boolean secretVersionIdConverted;
+  private volatile boolean createdAtConverted;
+
+  /**
+   * Creates a new instance of {@code LazySecretVersion}.
+   *
+   * @param version the version to copy. The strings that it references are freed.
+   */
+  LazySecretVersion(SecretHubLibrary.SecretVersion version) {
+    this.rawSecretVersionId = take(version.SecretVersionID);
+    this.rawCreatedAt = version.CreatedAt;
+    super.setSecret(new LazySecret(version.Secret));
+    super.setVersion(version.Version);
+    super.setData(take(version.Data));
+    super.setStatus(take(version.Status));
+  }
+
+  /**
+   * Creates a copy of a {@code LazySecretVersion}. Values that the original has not converted are
+   * left to be converted by the copy.
+   *
+   * @param version the version to copy.
+   */
+  private LazySecretVersion(LazySecretVersion version) {
+    this.rawCreatedAt = version.rawCreatedAt;
+    super.setSecret(version.getSecret() == null ? null : version.getSecret().copy());
+    super.setVersion(version.getVersion());
+    super.setData(version.getData());
+    super.setStatus(version.getStatus());
+
+    synchronized (version) {
+      this.rawSecretVersionId = version.rawSecretVersionId;
+
+      if (version.secretVersionIdConverted) {
+        setSecretVersionId(version.getSecretVersionId());
+      }
+
+      if (version.createdAtConverted) {
+        setCreatedAt(version.getCreatedAt());
+      }
+    }
+  }
+
+  @Override
+  SecretVersion copy() {
+    return new LazySecretVersion(this);
+  }
+
+  @Override
+  public UUID getSecretVersionId() {
+    if (!secretVersionIdConverted) {
+      synchronized (this) {
+        if (!secretVersionIdConverted) {
+          setSecretVersionId(getUUID(rawSecretVersionId));
+        }
+      }
+    }
+
+    return super.getSecretVersionId();
+  }
+
+  @Override
+  public synchronized void setSecretVersionId(UUID secretVersionId) {
+    super.setSecretVersionId(secretVersionId);
+    rawSecretVersionId = null;
+    secretVersionIdConverted = true;
+  }
+
+  @Override
+  public LocalDateTime getCreatedAt() {
+    if (!createdAtConverted) {
+      synchronized (this) {
+        if (!createdAtConverted) {
+          setCreatedAt(getDateTime(rawCreatedAt));
+        }
+      }
+    }
+
+    return super.getCreatedAt();
+  }
+
+  @Override
+  public synchronized void setCreatedAt(LocalDateTime createdAt) {
+    super.setCreatedAt(createdAt);
+    createdAtConverted = true;
+  }
+}
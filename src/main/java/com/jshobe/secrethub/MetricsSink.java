@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code MetricsSink} receives the duration and outcome of each operation of a {@link Client}, so
+ * that they can be published to a metrics system.
+ *
+ * <p>The sink is called by the thread that made the call, as soon as it completes, so the
+ * implementation must be thread-safe and should not block.</p>
+ *
+ * @see ClientOptions#getMetricsSink()
+ */
+@FunctionalInterface
+public interface MetricsSink {
+
+  /**
+   * Records a completed call.
+   *
+   * @param operation     the operation.
+   * @param durationNanos the duration of the call in nanoseconds.
+   * @param failed        {@code true} if the call threw an exception or {@code false} if not.
+   */
+  void record(ClientOperation operation, long durationNanos, boolean failed);
+
+  /**
+   * Records a change in the state of the circuit breaker. The default implementation does nothing.
+   *
+   * @param previous the previous state.
+   * @param current  the new state.
+   * @see ClientOptions#getCircuitBreakerFailureThreshold()
+   */
+  default void onCircuitStateChange(CircuitState previous, CircuitState current) {
+  }
+}
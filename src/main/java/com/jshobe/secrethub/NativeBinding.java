@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.Locale;
+
+/**
+ * {@code NativeBinding} identifies how the SecretHub native library is bound to Java.
+ *
+ * <p>The default binding can be set with the {@value #PROPERTY} system property, using either
+ * {@code direct} or {@code proxy}. If it is not set, {@link #DIRECT} is used.</p>
+ */
+public enum NativeBinding {
+
+  /**
+   * The native functions are bound with JNA direct mapping. This avoids the overhead of the
+   * reflective interface proxy on each call. If the functions cannot be registered, the
+   * {@link #PROXY} binding is used instead.
+   */
+  DIRECT {
+    @Override
+    SecretHubLibrary getLibrary() {
+      return DirectSecretHubLibrary.load();
+    }
+  },
+
+  /**
+   * The native functions are bound with a JNA interface proxy.
+   */
+  PROXY {
+    @Override
+    SecretHubLibrary getLibrary() {
+      return SecretHubLibrary.INSTANCE;
+    }
+  };
+
+  /**
+   * The name of the system property that sets the default binding.
+   */
+  public static final String PROPERTY = "com.jshobe.secrethub.binding";
+
+  /**
+   * Gets the library instance for this binding.
+   *
+   * @return the library.
+   */
+  abstract SecretHubLibrary getLibrary();
+
+  /**
+   * Gets the default binding.
+   *
+   * @return the binding set by the {@value #PROPERTY} system property or {@link #DIRECT} if it is
+   *     not set.
+   * @throws IllegalArgumentException if the system property is not a valid binding.
+   */
+  public static NativeBinding getDefault() {
+    String value = System.getProperty(PROPERTY);
+    return value == null || value.isEmpty()
+        ? DIRECT : valueOf(value.trim().toUpperCase(Locale.ROOT));
+  }
+}
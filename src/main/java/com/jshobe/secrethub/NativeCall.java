@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code NativeCall} is a call to the SecretHub library that produces a value.
+ *
+ * @param <T> the type of value produced by the call.
+ */
+@FunctionalInterface
+interface NativeCall<T> {
+
+  /**
+   * Performs the call.
+   *
+   * @return the value produced by the call.
+   * @throws SecretHubException if an error prevented the call from completing.
+   */
+  T call() throws SecretHubException;
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code NativeExecutor} runs calls to the SecretHub library in the background for a
+ * {@link Client}.
+ *
+ * <p>Unless an executor is provided in the client options, calls are run by a fixed number of
+ * daemon worker threads with a bounded queue. When the queue is full, new calls are rejected and
+ * the returned future fails with a {@link RejectedExecutionException}, rather than blocking the
+ * caller or letting the backlog grow without limit.</p>
+ *
+ * <p>Calls made from virtual threads are handed to the worker threads by {@link #call}, so that
+ * the virtual thread parks while it waits instead of pinning its carrier thread. The worker
+ * threads are created on demand, so they are only started for this purpose when an executor is
+ * provided in the client options.</p>
+ */
+class NativeExecutor implements AutoCloseable {
+
+  private final Executor executor;
+  private final ThreadPoolExecutor workers;
+  private final boolean offloadVirtualThreads;
+
+  /**
+   * Creates a new instance of {@code NativeExecutor}.
+   *
+   * @param options the client options.
+   */
+  NativeExecutor(ClientOptions options) {
+    this("worker", options.getWorkerThreads(), options.getWorkerQueueCapacity(),
+        options.getExecutor(), options.isOffloadVirtualThreads());
+  }
+
+  /**
+   * Creates a new instance of {@code NativeExecutor} that always uses its own threads, and never
+   * offloads calls from virtual threads.
+   *
+   * @param name          the base name of the threads.
+   * @param threads       the number of threads.
+   * @param queueCapacity the maximum number of calls that can wait for a thread.
+   */
+  NativeExecutor(String name, int threads, int queueCapacity) {
+    this(name, threads, queueCapacity, null, false);
+  }
+
+  /**
+   * Creates a new instance of {@code NativeExecutor}.
+   *
+   * @param name                  the base name of the threads.
+   * @param threads               the number of threads.
+   * @param queueCapacity         the maximum number of calls that can wait for a thread.
+   * @param executor              the executor used to run calls in the background, or
+   *                              {@code null} to use the threads.
+   * @param offloadVirtualThreads {@code true} to hand calls made from virtual threads to the
+   *                              threads.
+   */
+  private NativeExecutor(String name, int threads, int queueCapacity, Executor executor,
+      boolean offloadVirtualThreads) {
+    int size = Math.max(1, threads);
+    this.workers = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), new DaemonThreadFactory(name),
+        new ThreadPoolExecutor.AbortPolicy());
+    this.workers.allowCoreThreadTimeOut(true);
+    this.executor = executor == null ? workers : executor;
+    this.offloadVirtualThreads = offloadVirtualThreads;
+  }
+
+  /**
+   * Makes a call and waits for its result. If the current thread is a virtual thread, the call is
+   * made by a worker thread, unless the worker queue is full.
+   *
+   * @param call the call.
+   * @param <T>  the type of value produced by the call.
+   * @return the result of the call.
+   * @throws SecretHubException if the call failed or the thread was interrupted while waiting.
+   */
+  <T> T call(NativeCall<T> call) throws SecretHubException {
+    if (!offloadVirtualThreads || !VirtualThreads.isCurrentThreadVirtual()) {
+      return call.call();
+    }
+
+    Task<T> task = new Task<>(call);
+
+    try {
+      workers.execute(task);
+    } catch (RejectedExecutionException e) {
+      // pinning the carrier thread is better than failing the call
+      return call.call();
+    }
+
+    try {
+      return task.future.get();
+    } catch (ExecutionException e) {
+      throw Client.toSecretHubException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SecretHubException("Interrupted while calling the SecretHub library", e);
+    }
+  }
+
+  /**
+   * Runs a call in the background.
+   *
+   * @param call the call.
+   * @param <T>  the type of value produced by the call.
+   * @return a future that completes with the result of the call. If the executor is saturated,
+   *     the future fails with a {@link RejectedExecutionException}.
+   */
+  <T> CompletableFuture<T> submit(NativeCall<T> call) {
+    Task<T> task = new Task<>(call);
+
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      task.future.completeExceptionally(e);
+    }
+
+    return task.future;
+  }
+
+  /**
+   * Stops the worker threads. Calls that have not started fail with an
+   * {@link IllegalStateException}. An executor provided in the client options is not stopped.
+   */
+  @Override
+  public void close() {
+    for (Runnable pending : workers.shutdownNow()) {
+      if (pending instanceof Task) {
+        ((Task<?>) pending).future.completeExceptionally(
+            new IllegalStateException("The client has been closed"));
+      }
+    }
+  }
+
+  /**
+   * {@code Task} runs a call and completes its future.
+   *
+   * @param <T> the type of value produced by the call.
+   */
+  private static final class Task<T> implements Runnable {
+
+    private final NativeCall<T> call;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    Task(NativeCall<T> call) {
+      this.call = call;
+    }
+
+    @Override
+    public void run() {
+      if (future.isDone()) {
+        return;
+      }
+
+      try {
+        future.complete(call.call());
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * {@code NativeMemory} takes ownership of the strings allocated by the SecretHub library.
+ *
+ * <p>The library returns strings, including error messages, in memory allocated with
+ * {@code malloc} that the caller must free. Each string is copied into a Java string, or into a
+ * {@link SecretValue}, and then freed immediately. The strings and bytes handed over by the library
+ * are counted for all clients against those freed, so that off-heap usage can be monitored and a
+ * string that is never freed shows up as outstanding.</p>
+ */
+final class NativeMemory {
+
+  private static final LongAdder OUTSTANDING_BYTES = new LongAdder();
+  private static final LongAdder OUTSTANDING_COUNT = new LongAdder();
+  private static final LongAdder RELEASED_BYTES = new LongAdder();
+  private static final LongAdder RELEASED_COUNT = new LongAdder();
+
+  /**
+   * Creates a new instance of {@code NativeMemory}.
+   */
+  private NativeMemory() {
+  }
+
+  /**
+   * Copies a string allocated by the SecretHub library and frees its memory.
+   *
+   * @param pointer a pointer to the null-terminated UTF-8 string.
+   * @return the string or {@code null} if <i>pointer</i> is {@code null}.
+   */
+  static String take(Pointer pointer) {
+    return take(pointer, false,
+        (p, length) -> new String(p.getByteArray(0L, length), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Copies a secret allocated by the SecretHub library into a direct buffer, then fills its memory
+   * with zeros and frees it. The secret is never copied onto the Java heap.
+   *
+   * @param pointer a pointer to the null-terminated UTF-8 string.
+   * @return the secret value or {@code null} if <i>pointer</i> is {@code null}.
+   */
+  static SecretValue takeValue(Pointer pointer) {
+    return take(pointer, true, (p, length) -> {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+      buffer.put(p.getByteBuffer(0L, length));
+      buffer.clear();
+      return new SecretValue(buffer);
+    });
+  }
+
+  /**
+   * Gets the statistics for the native memory received from the SecretHub library.
+   *
+   * @return the native memory statistics.
+   */
+  static NativeMemoryStats getStats() {
+    return new NativeMemoryStats(OUTSTANDING_BYTES.sum(), OUTSTANDING_COUNT.sum(),
+        RELEASED_BYTES.sum(), RELEASED_COUNT.sum());
+  }
+
+  /**
+   * Copies a string allocated by the SecretHub library and frees its memory.
+   *
+   * @param pointer a pointer to the null-terminated UTF-8 string.
+   * @param wipe    {@code true} to fill the memory with zeros before it is freed.
+   * @param copy    copies the string from the pointer, given its length in bytes.
+   * @param <T>     the type of the copy.
+   * @return the copy or {@code null} if <i>pointer</i> is {@code null}.
+   */
+  private static <T> T take(Pointer pointer, boolean wipe, BiFunction<Pointer, Integer, T> copy) {
+    if (pointer == null) {
+      return null;
+    }
+
+    long length = pointer.indexOf(0L, (byte) 0);
+    OUTSTANDING_BYTES.add(length + 1L);
+    OUTSTANDING_COUNT.increment();
+
+    try {
+      return copy.apply(pointer, (int) length);
+    } finally {
+      if (wipe) {
+        pointer.setMemory(0L, length, (byte) 0);
+      }
+
+      Native.free(Pointer.nativeValue(pointer));
+      OUTSTANDING_BYTES.add(-(length + 1L));
+      OUTSTANDING_COUNT.decrement();
+      RELEASED_BYTES.add(length + 1L);
+      RELEASED_COUNT.increment();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import lombok.Value;
+
+/**
+ * {@code NativeMemoryStats} is a snapshot of the statistics for the native memory that the
+ * SecretHub library has returned to all clients in the JVM.
+ */
+@Value
+public class NativeMemoryStats {
+
+  /**
+   * The number of bytes that have been handed over by the library and not yet freed.
+   */
+  long outstandingBytes;
+
+  /**
+   * The number of strings that have been handed over by the library and not yet freed.
+   */
+  long outstandingCount;
+
+  /**
+   * The number of bytes that have been freed.
+   */
+  long releasedBytes;
+
+  /**
+   * The number of strings that have been freed.
+   */
+  long releasedCount;
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code NegativeCache} remembers, for a short time, the paths that were found not to exist, so
+ * that repeated reads and existence checks of absent secrets do not each call the SecretHub
+ * library.
+ *
+ * <p>Any modification made through the client increments a generation counter. A miss observed
+ * by a call that started before a modification is not cached, so a secret written while it was
+ * being read is never hidden by a stale entry.</p>
+ */
+class NegativeCache {
+
+  private final ConcurrentMap<String, Miss> misses = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+  private final long ttl;
+  private final int maxSize;
+
+  /**
+   * Creates a new instance of {@code NegativeCache}.
+   *
+   * @param options the client options.
+   */
+  NegativeCache(ClientOptions options) {
+    this.ttl = options.getNegativeCacheTtl().toNanos();
+    this.maxSize = options.getNegativeCacheMaxSize();
+  }
+
+  /**
+   * Gets the current generation, which must be passed to {@link #put} for a miss observed by a
+   * call that starts now.
+   *
+   * @return the generation.
+   */
+  long mark() {
+    return generation.get();
+  }
+
+  /**
+   * Determines if a path is known to be absent.
+   *
+   * @param path the path to the secret.
+   * @return {@code true} if the path is absent or {@code false} if it is not known.
+   */
+  boolean isAbsent(String path) {
+    return find(path) != null;
+  }
+
+  /**
+   * Gets the error message reported by a read of a path that is known to be absent. Misses
+   * recorded by an existence check have no error message.
+   *
+   * @param path the path to the secret.
+   * @return the error message or {@code null} if it is not known.
+   */
+  String getMessage(String path) {
+    Miss miss = misses.get(path);
+    return miss == null || miss.message == null ? null : find(path);
+  }
+
+  /**
+   * Records that a path does not exist. If the cache is full, expired misses are removed first and
+   * the miss is not recorded if there is still no room.
+   *
+   * @param path    the path to the secret.
+   * @param message the error message reported for the path, or {@code null} if the miss was
+   *                observed by an existence check.
+   * @param mark    the generation when the call that observed the miss started.
+   */
+  void put(String path, String message, long mark) {
+    long now = System.nanoTime();
+
+    if (misses.size() >= maxSize) {
+      removeExpired(now);
+
+      if (misses.size() >= maxSize) {
+        return;
+      }
+    }
+
+    misses.put(path, new Miss(message, now + ttl));
+
+    if (generation.get() != mark) {
+      misses.remove(path);
+    }
+  }
+
+  /**
+   * Removes the misses for a path that has been modified, including any for versions of the path
+   * ({@code path:version}).
+   *
+   * @param path the path to the secret.
+   */
+  void invalidate(String path) {
+    generation.incrementAndGet();
+    misses.keySet().removeIf(key -> SecretCache.Key.isFor(key, path));
+  }
+
+  /**
+   * Finds an unexpired miss, removing it if it has expired.
+   *
+   * @param path the path to the secret.
+   * @return the error message of the miss, or an empty string if it has none, or {@code null} if
+   *     the path is not known to be absent.
+   */
+  private String find(String path) {
+    Miss miss = misses.get(path);
+
+    if (miss == null) {
+      return null;
+    }
+
+    if (System.nanoTime() - miss.expiresAt >= 0L) {
+      misses.remove(path, miss);
+      return null;
+    }
+
+    return miss.message == null ? "" : miss.message;
+  }
+
+  /**
+   * Removes all of the expired misses.
+   *
+   * @param now the current value of {@link System#nanoTime()}.
+   */
+  private void removeExpired(long now) {
+    Iterator<Map.Entry<String, Miss>> i = misses.entrySet().iterator();
+
+    while (i.hasNext()) {
+      if (now - i.next().getValue().expiresAt >= 0L) {
+        i.remove();
+      }
+    }
+  }
+
+  /**
+   * {@code Miss} is a path that was found not to exist.
+   */
+  private static final class Miss {
+
+    private final String message;
+    private final long expiresAt;
+
+    Miss(String message, long expiresAt) {
+      this.message = message;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code OperationMetrics} records the latency, call count, error count and calls in progress of
+ * a single {@link ClientOperation}.
+ */
+class OperationMetrics implements OperationMetricsMXBean {
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private final ClientOperation operation;
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  /**
+   * Creates a new instance of {@code OperationMetrics}.
+   *
+   * @param operation the operation.
+   */
+  OperationMetrics(ClientOperation operation) {
+    this.operation = operation;
+  }
+
+  /**
+   * Records the start of a call.
+   */
+  void start() {
+    inFlight.incrementAndGet();
+  }
+
+  /**
+   * Records the end of a call.
+   *
+   * @param nanos  the duration of the call in nanoseconds.
+   * @param failed {@code true} if the call threw an exception or {@code false} if not.
+   */
+  void end(long nanos, boolean failed) {
+    inFlight.decrementAndGet();
+    calls.increment();
+
+    if (failed) {
+      errors.increment();
+    }
+
+    latencies.record(nanos);
+  }
+
+  /**
+   * Gets a snapshot of the metrics.
+   *
+   * @return the statistics.
+   */
+  OperationStats getStats() {
+    return new OperationStats(operation, calls.sum(), errors.sum(), inFlight.get(),
+        Duration.ofNanos(latencies.getMean()), Duration.ofNanos(latencies.getValueAtQuantile(0.5)),
+        Duration.ofNanos(latencies.getValueAtQuantile(0.99)),
+        Duration.ofNanos(latencies.getValueAtQuantile(0.999)),
+        Duration.ofNanos(latencies.getMax()));
+  }
+
+  @Override
+  public long getCallCount() {
+    return calls.sum();
+  }
+
+  @Override
+  public long getErrorCount() {
+    return errors.sum();
+  }
+
+  @Override
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  @Override
+  public double getMeanMillis() {
+    return latencies.getMean() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP50Millis() {
+    return latencies.getValueAtQuantile(0.5) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP99Millis() {
+    return latencies.getValueAtQuantile(0.99) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP999Millis() {
+    return latencies.getValueAtQuantile(0.999) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getMaxMillis() {
+    return latencies.getMax() / NANOS_PER_MILLI;
+  }
+}
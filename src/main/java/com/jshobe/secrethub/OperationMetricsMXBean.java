@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code OperationMetricsMXBean} publishes the metrics of a {@link ClientOperation} through JMX.
+ * One MBean is registered for each operation, named
+ * {@code com.jshobe.secrethub:type=Client,name=<name>,operation=<operation>}.
+ *
+ * <p>The latencies are measured since the client was created.</p>
+ *
+ * @see ClientOptions#isJmxEnabled()
+ */
+public interface OperationMetricsMXBean {
+
+  /**
+   * Gets the number of calls that have completed.
+   *
+   * @return the number of calls.
+   */
+  long getCallCount();
+
+  /**
+   * Gets the number of calls that threw an exception.
+   *
+   * @return the number of errors.
+   */
+  long getErrorCount();
+
+  /**
+   * Gets the number of calls in progress.
+   *
+   * @return the number of calls in progress.
+   */
+  int getInFlight();
+
+  /**
+   * Gets the mean latency.
+   *
+   * @return the latency in milliseconds.
+   */
+  double getMeanMillis();
+
+  /**
+   * Gets the median latency.
+   *
+   * @return the latency in milliseconds.
+   */
+  double getP50Millis();
+
+  /**
+   * Gets the 99th percentile latency.
+   *
+   * @return the latency in milliseconds.
+   */
+  double getP99Millis();
+
+  /**
+   * Gets the 99.9th percentile latency.
+   *
+   * @return the latency in milliseconds.
+   */
+  double getP999Millis();
+
+  /**
+   * Gets the maximum latency.
+   *
+   * @return the latency in milliseconds.
+   */
+  double getMaxMillis();
+}
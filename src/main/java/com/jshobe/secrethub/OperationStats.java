@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.time.Duration;
+import lombok.Value;
+
+/**
+ * {@code OperationStats} is a snapshot of the metrics recorded for a {@link ClientOperation}
+ * since the client was created.
+ */
+@Value
+public class OperationStats {
+
+  /**
+   * The operation.
+   */
+  ClientOperation operation;
+
+  /**
+   * The number of calls that have completed.
+   */
+  long callCount;
+
+  /**
+   * The number of calls that threw an exception.
+   */
+  long errorCount;
+
+  /**
+   * The number of calls in progress.
+   */
+  int inFlight;
+
+  /**
+   * The mean latency.
+   */
+  Duration mean;
+
+  /**
+   * The median latency.
+   */
+  Duration p50;
+
+  /**
+   * The 99th percentile latency.
+   */
+  Duration p99;
+
+  /**
+   * The 99.9th percentile latency.
+   */
+  Duration p999;
+
+  /**
+   * The maximum latency.
+   */
+  Duration max;
+}
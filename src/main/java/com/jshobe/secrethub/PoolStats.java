@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import lombok.Value;
+
+/**
+ * {@code PoolStats} is a snapshot of the statistics for the pool of native client handles of a
+ * {@link Client}.
+ */
+@Value
+public class PoolStats {
+
+  /**
+   * The number of handles currently in the pool.
+   */
+  int size;
+
+  /**
+   * The maximum number of handles that the pool can hold.
+   */
+  int maxSize;
+
+  /**
+   * The number of handles that currently have at least one call in progress.
+   */
+  int busyCount;
+
+  /**
+   * The number of calls currently in progress on all handles.
+   */
+  int inFlightCount;
+
+  /**
+   * The largest number of calls that have been in progress at the same time.
+   */
+  int peakInFlightCount;
+
+  /**
+   * The number of calls that have been made.
+   */
+  long callCount;
+
+  /**
+   * The number of handles that have been created.
+   */
+  long createdCount;
+
+  /**
+   * The number of handles that have been retired, either because they were idle and the pool
+   * shrank or because the pool was closed.
+   */
+  long retiredCount;
+
+  /**
+   * Gets the fraction of the handles in the pool that have a call in progress.
+   *
+   * @return the utilization, between {@code 0.0} and {@code 1.0}.
+   */
+  public double getUtilization() {
+    return size == 0 ? 0.0 : (double) busyCount / size;
+  }
+}
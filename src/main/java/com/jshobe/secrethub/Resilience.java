@@ -0,0 +1,196 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * {@code Resilience} retries the calls made by a {@link Client} after transient errors, with
+ * exponential backoff and full jitter, and passes them through the {@link CircuitBreaker}, if it
+ * is enabled.
+ *
+ * <p>An error is transient if its error code shows that the SecretHub API is overloaded or
+ * temporarily unavailable, or if its message reports a network failure. The delay before each
+ * retry is chosen at random between zero and the current backoff, so that clients that failed
+ * together do not retry together.</p>
+ */
+class Resilience {
+
+  private static final Pattern TRANSIENT_CODE = Pattern.compile(
+      "\\([\\w.]*(service_unavailable|too_many_requests|gateway_timeout|bad_gateway"
+          + "|request_timeout|timeout)\\)");
+  private static final String[] TRANSIENT_MESSAGES = {"timeout", "timed out",
+      "connection refused", "connection reset", "deadline exceeded", "temporarily unavailable",
+      "no such host", "eof"};
+
+  private final int maxAttempts;
+  private final long initialBackoff;
+  private final long maxBackoff;
+  private final double multiplier;
+  private final CircuitBreaker breaker;
+  private final LongAdder retries = new LongAdder();
+
+  /**
+   * Creates a new instance of {@code Resilience}.
+   *
+   * @param options the client options.
+   */
+  Resilience(ClientOptions options) {
+    this.maxAttempts = Math.max(1, options.getRetryMaxAttempts());
+    this.initialBackoff = options.getRetryInitialBackoff().toNanos();
+    this.maxBackoff = Math.max(initialBackoff, options.getRetryMaxBackoff().toNanos());
+    this.multiplier = Math.max(1.0, options.getRetryMultiplier());
+    this.breaker = options.getCircuitBreakerFailureThreshold() > 0
+        ? new CircuitBreaker(options) : null;
+  }
+
+  /**
+   * Makes a call, retrying it after transient errors if required.
+   *
+   * @param call  the call.
+   * @param retry {@code true} if the call is idempotent and may be retried.
+   * @param <T>   the type of value produced by the call.
+   * @return the result of the call.
+   * @throws CircuitBreakerOpenException if the circuit breaker is open.
+   * @throws SecretHubException          if the call failed.
+   */
+  <T> T call(NativeCall<T> call, boolean retry) throws SecretHubException {
+    for (int attempt = 1; ; attempt++) {
+      long permit = breaker != null ? breaker.acquire() : 0L;
+
+      try {
+        T result = call.call();
+
+        if (breaker != null) {
+          breaker.onSuccess(permit);
+        }
+
+        return result;
+      } catch (ConcurrencyLimitExceededException e) {
+        // the call never reached the SecretHub API
+        if (breaker != null) {
+          breaker.onIgnored(permit);
+        }
+
+        throw e;
+      } catch (SecretHubException e) {
+        boolean retryable = isTransient(e);
+
+        if (breaker != null) {
+          if (retryable) {
+            breaker.onFailure(permit);
+          } else {
+            breaker.onSuccess(permit);
+          }
+        }
+
+        if (!retry || !retryable || attempt >= maxAttempts) {
+          throw e;
+        }
+      } catch (RuntimeException | Error e) {
+        if (breaker != null) {
+          breaker.onIgnored(permit);
+        }
+
+        throw e;
+      }
+
+      retries.increment();
+      backOff(attempt);
+    }
+  }
+
+  /**
+   * Gets the circuit breaker.
+   *
+   * @return the circuit breaker or {@code null} if it is disabled.
+   */
+  CircuitBreaker getCircuitBreaker() {
+    return breaker;
+  }
+
+  /**
+   * Gets a snapshot of the statistics.
+   *
+   * @param hedging the hedging of reads or {@code null} if it is disabled.
+   * @return the statistics.
+   */
+  ResilienceStats getStats(Hedging hedging) {
+    long hedges = hedging == null ? 0L : hedging.getHedgeCount();
+    long wins = hedging == null ? 0L : hedging.getHedgeWinCount();
+
+    if (breaker == null) {
+      return new ResilienceStats(CircuitState.CLOSED, 0L, 0L, retries.sum(), hedges, wins);
+    }
+
+    return new ResilienceStats(breaker.getCircuitState(), breaker.getOpenCount(),
+        breaker.getRejectedCount(), retries.sum(), hedges, wins);
+  }
+
+  /**
+   * Determines if an error is transient, so that the call may succeed if it is retried.
+   *
+   * @param e the error.
+   * @return {@code true} if the error is transient or {@code false} if not.
+   */
+  static boolean isTransient(SecretHubException e) {
+    String message = e.getMessage();
+
+    if (e instanceof SecretNotFoundException || e instanceof CircuitBreakerOpenException
+        || e instanceof ConcurrencyLimitExceededException || message == null
+        || e.getCause() instanceof InterruptedException) {
+      return false;
+    }
+
+    if (TRANSIENT_CODE.matcher(message).find()) {
+      return true;
+    }
+
+    String lower = message.toLowerCase(Locale.ROOT);
+
+    for (String fragment : TRANSIENT_MESSAGES) {
+      if (lower.contains(fragment)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Waits before a retry.
+   *
+   * @param attempt the number of the attempt that failed, starting at one.
+   * @throws SecretHubException if the thread was interrupted while waiting.
+   */
+  private void backOff(int attempt) throws SecretHubException {
+    double backoff = initialBackoff * Math.pow(multiplier, attempt - 1.0);
+    long cap = (long) Math.min(maxBackoff, backoff);
+    long delay = cap > 0L ? ThreadLocalRandom.current().nextLong(cap + 1L) : 0L;
+
+    try {
+      TimeUnit.NANOSECONDS.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SecretHubException("Interrupted while waiting to retry", e);
+    }
+  }
+}
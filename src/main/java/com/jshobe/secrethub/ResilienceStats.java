@@ -0,0 +1,58 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import lombok.Value;
+
+/**
+ * {@code ResilienceStats} is a snapshot of the retry, circuit breaker and hedging statistics of
+ * a {@link Client}.
+ */
+@Value
+public class ResilienceStats {
+
+  /**
+   * The state of the circuit breaker. Always {@link CircuitState#CLOSED} if the circuit breaker
+   * is disabled.
+   */
+  CircuitState circuitState;
+
+  /**
+   * The number of times the circuit breaker has opened.
+   */
+  long openCount;
+
+  /**
+   * The number of calls that failed immediately because the circuit breaker was open.
+   */
+  long rejectedCount;
+
+  /**
+   * The number of times a call was retried after a transient error.
+   */
+  long retryCount;
+
+  /**
+   * The number of reads for which a second request was sent because the first was slow.
+   */
+  long hedgeCount;
+
+  /**
+   * The number of hedged reads for which the second request returned first.
+   */
+  long hedgeWinCount;
+}
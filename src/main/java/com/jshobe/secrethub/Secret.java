@@ -18,6 +18,7 @@ package com.jshobe.secrethub;
 
 import static com.jshobe.secrethub.Client.getDateTime;
 import static com.jshobe.secrethub.Client.getUUID;
+import static com.jshobe.secrethub.NativeMemory.take;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -79,17 +80,39 @@ public class Secret {
   /**
    * Creates a new instance of {@code Secret}.
    *
-   * @param secret the secret to copy.
+   * @param secret the secret to copy. The strings that it references are freed.
    */
   Secret(SecretHubLibrary.Secret secret) {
-    setSecretId(getUUID(secret.SecretID));
-    setDirectoryId(getUUID(secret.DirID));
-    setRepositoryId(getUUID(secret.RepoID));
-    setName(secret.Name);
-    setBlindName(secret.BlindName);
+    String secretId = take(secret.SecretID);
+    String directoryId = take(secret.DirID);
+    String repositoryId = take(secret.RepoID);
+    setName(take(secret.Name));
+    setBlindName(take(secret.BlindName));
+    setStatus(take(secret.Status));
+    setSecretId(getUUID(secretId));
+    setDirectoryId(getUUID(directoryId));
+    setRepositoryId(getUUID(repositoryId));
     setVersionCount(secret.VersionCount);
     setLatestVersion(secret.LatestVersion);
-    setStatus(secret.Status);
     setCreatedAt(getDateTime(secret.CreatedAt));
   }
+
+  /**
+   * Creates a copy of this secret that can be modified independently.
+   *
+   * @return the copy.
+   */
+  Secret copy() {
+    Secret copy = new Secret();
+    copy.setSecretId(getSecretId());
+    copy.setDirectoryId(getDirectoryId());
+    copy.setRepositoryId(getRepositoryId());
+    copy.setName(getName());
+    copy.setBlindName(getBlindName());
+    copy.setVersionCount(getVersionCount());
+    copy.setLatestVersion(getLatestVersion());
+    copy.setStatus(getStatus());
+    copy.setCreatedAt(getCreatedAt());
+    return copy;
+  }
 }
@@ -0,0 +1,502 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.Value;
+
+/**
+ * {@code SecretCache} is a size-limited, least recently used cache for the values read by a
+ * {@link Client}. Each entry expires after a fixed amount of time.
+ *
+ * <p>If refresh-ahead is enabled, entries that have been read since they were loaded are reloaded
+ * on a background thread shortly before they expire, so that only reads of values that are not
+ * in the cache block on the SecretHub library.</p>
+ *
+ * <p>If stale-if-error is enabled, expired entries are kept for the stale period. A read of an
+ * expired entry returns it immediately and starts a single background reload of the entry, so
+ * reads never wait for retries while the SecretHub library is failing. The entry is replaced once
+ * the reload succeeds, and removed if the secret no longer exists. Only reads of values that are
+ * not in the cache at all block on the library.</p>
+ */
+class SecretCache implements AutoCloseable {
+
+  private final long ttlNanos;
+  private final int maxSize;
+  private final long refreshAheadNanos;
+  private final long refreshJitterNanos;
+  private final long staleNanos;
+  private final StaleSecretListener staleListener;
+  private final ScheduledExecutorService scheduler;
+  private final Map<Key, CachedValue> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder refreshes = new LongAdder();
+  private final LongAdder refreshFailures = new LongAdder();
+  private final LongAdder staleServes = new LongAdder();
+  private long generation;
+
+  /**
+   * Creates a new instance of {@code SecretCache}.
+   *
+   * @param options the client options.
+   */
+  SecretCache(ClientOptions options) {
+    this.ttlNanos = options.getCacheTtl().toNanos();
+    this.maxSize = options.getCacheMaxSize();
+    Duration staleIfError = options.getCacheStaleIfError();
+    this.staleNanos = staleIfError == null ? 0L : Math.max(0L, staleIfError.toNanos());
+    this.staleListener = options.getStaleSecretListener();
+
+    if (options.isRefreshAheadEnabled()) {
+      Duration refreshAhead = options.getCacheRefreshAhead();
+      this.refreshAheadNanos = Math.min(refreshAhead.toNanos(), ttlNanos);
+      this.refreshJitterNanos = (long) (refreshAheadNanos
+          * Math.max(0.0, Math.min(1.0, options.getCacheRefreshJitter())));
+    } else {
+      this.refreshAheadNanos = 0L;
+      this.refreshJitterNanos = 0L;
+    }
+
+    if (refreshAheadNanos > 0L || staleNanos > 0L) {
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+          Math.max(1, options.getCacheRefreshThreads()), new DaemonThreadFactory("cache-refresh"));
+      executor.setRemoveOnCancelPolicy(true);
+      this.scheduler = executor;
+    } else {
+      this.scheduler = null;
+    }
+
+    this.entries = new LinkedHashMap<Key, CachedValue>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, CachedValue> eldest) {
+        if (size() > maxSize) {
+          evictions.increment();
+          return true;
+        }
+
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Gets a cached value, loading it if it is not present or has expired. If the value has expired
+   * but is within the stale period, it is returned immediately and reloaded in the background.
+   *
+   * @param key    the cache key.
+   * @param loader the call used to load the value.
+   * @param <T>    the type of value.
+   * @return the value.
+   * @throws SecretHubException if an error prevented the value from being loaded.
+   */
+  @SuppressWarnings("unchecked")
+  <T> T get(Key key, NativeCall<T> loader) throws SecretHubException {
+    long now = System.nanoTime();
+    long loadGeneration;
+    CachedValue stale = null;
+
+    synchronized (entries) {
+      CachedValue entry = entries.get(key);
+
+      if (entry != null) {
+        if (now - entry.getExpiresAt() < 0L) {
+          hits.increment();
+
+          if (scheduler != null && !entry.isAccessed()) {
+            entry.setAccessed(true);
+          }
+
+          return (T) entry.getValue();
+        }
+
+        if (now - entry.getExpiresAt() < staleNanos) {
+          stale = entry;
+        } else {
+          entries.remove(key);
+        }
+      }
+
+      if (stale == null) {
+        misses.increment();
+      }
+
+      loadGeneration = generation;
+    }
+
+    if (stale != null) {
+      return serveStale(key, stale);
+    }
+
+    T value = loader.call();
+
+    synchronized (entries) {
+      // don't cache the value if the path was modified while it was being loaded
+      if (loadGeneration == generation) {
+        put(key, value, loader);
+      }
+    }
+
+    return value;
+  }
+
+  /**
+   * Gets a cached value without loading it. Looking up a value this way does not count as a hit
+   * or a miss.
+   *
+   * @param key the cache key.
+   * @param <T> the type of value.
+   * @return the value or {@code null} if it is not present or has expired.
+   */
+  @SuppressWarnings("unchecked")
+  <T> T peek(Key key) {
+    synchronized (entries) {
+      CachedValue entry = entries.get(key);
+      return entry == null || System.nanoTime() - entry.getExpiresAt() >= 0L
+          ? null : (T) entry.getValue();
+    }
+  }
+
+  /**
+   * Returns an expired value and starts reloading it in the background, unless a reload of the
+   * entry is already in progress.
+   *
+   * @param key   the cache key.
+   * @param stale the expired entry.
+   * @param <T>   the type of value.
+   * @return the expired value.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> T serveStale(Key key, CachedValue stale) {
+    if (stale.getReloading().compareAndSet(false, true)) {
+      try {
+        scheduler.execute(() -> reload(key, stale));
+      } catch (RejectedExecutionException e) {
+        // the cache has been closed
+      }
+    }
+
+    staleServes.increment();
+
+    if (staleListener != null) {
+      try {
+        staleListener.onStaleSecret(key.getPath(),
+            Duration.ofNanos(System.nanoTime() - stale.getExpiresAt()), stale.getReloadError());
+      } catch (RuntimeException e) {
+        // a faulty listener must not fail the read
+      }
+    }
+
+    return (T) stale.getValue();
+  }
+
+  /**
+   * Reloads an expired value that is being served stale. The entry is replaced if the reload
+   * succeeds and removed if the secret no longer exists. Otherwise the error is kept for the
+   * listener, and the next read of the entry starts another reload.
+   *
+   * @param key   the cache key.
+   * @param entry the expired entry.
+   */
+  private void reload(Key key, CachedValue entry) {
+    long reloadGeneration;
+
+    synchronized (entries) {
+      if (entries.get(key) != entry) {
+        return;
+      }
+
+      reloadGeneration = generation;
+    }
+
+    Object value;
+
+    try {
+      value = entry.getLoader().call();
+    } catch (Exception e) {
+      refreshFailures.increment();
+
+      synchronized (entries) {
+        if (e instanceof SecretNotFoundException && reloadGeneration == generation
+            && entries.get(key) == entry) {
+          entries.remove(key);
+        }
+      }
+
+      entry.setReloadError(e instanceof SecretHubException ? (SecretHubException) e
+          : new SecretHubException("Failed to reload secret", e));
+      entry.getReloading().set(false);
+      return;
+    }
+
+    refreshes.increment();
+
+    synchronized (entries) {
+      if (reloadGeneration == generation && entries.get(key) == entry) {
+        put(key, value, entry.getLoader());
+      }
+    }
+  }
+
+  /**
+   * Removes all cached values for a path, including those for specific versions of it.
+   *
+   * @param path the path to the secret.
+   */
+  void invalidate(String path) {
+    synchronized (entries) {
+      generation++;
+      Iterator<Key> keys = entries.keySet().iterator();
+
+      while (keys.hasNext()) {
+        if (keys.next().isFor(path)) {
+          keys.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes all cached values.
+   */
+  void clear() {
+    synchronized (entries) {
+      generation++;
+      entries.clear();
+    }
+  }
+
+  /**
+   * Gets a snapshot of the cache statistics.
+   *
+   * @return the statistics.
+   */
+  CacheStats getStats() {
+    int size;
+
+    synchronized (entries) {
+      size = entries.size();
+    }
+
+    return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), refreshes.sum(),
+        refreshFailures.sum(), staleServes.sum(), size);
+  }
+
+  /**
+   * Stops any background refreshes and removes all cached values.
+   */
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+
+    clear();
+  }
+
+  /**
+   * Adds a value to the cache and schedules its refresh. The caller must hold the lock on the
+   * entries.
+   *
+   * @param key    the cache key.
+   * @param value  the value.
+   * @param loader the call used to load the value.
+   */
+  private void put(Key key, Object value, NativeCall<?> loader) {
+    CachedValue entry = new CachedValue(value, System.nanoTime() + ttlNanos, loader);
+    entries.put(key, entry);
+
+    if (scheduler != null) {
+      // spread the refreshes over the jitter window so that entries loaded together don't all
+      // renew at the same time
+      long jitter = refreshJitterNanos > 0L
+          ? ThreadLocalRandom.current().nextLong(refreshJitterNanos) : 0L;
+      long delay = ttlNanos - refreshAheadNanos + jitter;
+
+      try {
+        scheduler.schedule(() -> refresh(key, entry), delay, TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException e) {
+        // the cache has been closed
+      }
+    }
+  }
+
+  /**
+   * Reloads a cached value if it has been read since it was loaded.
+   *
+   * @param key   the cache key.
+   * @param entry the cached value at the time the refresh was scheduled.
+   */
+  private void refresh(Key key, CachedValue entry) {
+    long refreshGeneration;
+
+    synchronized (entries) {
+      // skip the refresh if the entry has expired in the meantime and is already being reloaded
+      if (!entry.isAccessed() || entries.get(key) != entry
+          || !entry.getReloading().compareAndSet(false, true)) {
+        return;
+      }
+
+      refreshGeneration = generation;
+    }
+
+    Object value;
+
+    try {
+      value = entry.getLoader().call();
+    } catch (Exception e) {
+      // the entry is left to expire, so the next read will report the error
+      refreshFailures.increment();
+      entry.getReloading().set(false);
+      return;
+    }
+
+    refreshes.increment();
+
+    synchronized (entries) {
+      if (refreshGeneration == generation && entries.get(key) == entry) {
+        put(key, value, entry.getLoader());
+      }
+    }
+  }
+
+  /**
+   * {@code Kind} identifies the type of value held in a cache entry or produced by a coalesced
+   * call.
+   */
+  enum Kind {
+    /**
+     * A {@link SecretVersion} returned by {@link Client#read(String)}.
+     */
+    VERSION,
+
+    /**
+     * A string returned by {@link Client#readString(String)}.
+     */
+    STRING,
+
+    /**
+     * A string returned by {@link Client#resolve(String)}. These values are not cached.
+     */
+    RESOLVE,
+
+    /**
+     * A boolean returned by {@link Client#exists(String)}. These values are not cached.
+     */
+    EXISTS,
+
+    /**
+     * The environment returned by {@link Client#resolveEnv()}. These values are cached by
+     * {@link EnvironmentCache} instead.
+     */
+    ENVIRONMENT
+  }
+
+  /**
+   * {@code Key} identifies a cache entry or a coalesced call.
+   */
+  @Value
+  static class Key {
+
+    /**
+     * The type of value.
+     */
+    Kind kind;
+
+    /**
+     * The path to the secret.
+     */
+    String path;
+
+    /**
+     * Determines if this key is for a path or a version of the path ({@code path:version}).
+     *
+     * @param path the path to the secret.
+     * @return {@code true} if this key is for the path or {@code false} if not.
+     */
+    boolean isFor(String path) {
+      return isFor(this.path, path);
+    }
+
+    /**
+     * Determines if a key path is a path or a version of the path ({@code path:version}).
+     *
+     * @param keyPath the path of the key.
+     * @param path    the path to the secret.
+     * @return {@code true} if the key path is for the path or {@code false} if not.
+     */
+    static boolean isFor(String keyPath, String path) {
+      return keyPath.equals(path)
+          || (keyPath.length() > path.length() && keyPath.startsWith(path)
+          && keyPath.charAt(path.length()) == ':');
+    }
+  }
+
+  /**
+   * {@code CachedValue} is a value held in the cache.
+   */
+  @Getter
+  @RequiredArgsConstructor
+  private static class CachedValue {
+
+    /**
+     * The value.
+     */
+    private final Object value;
+
+    /**
+     * The time, in nanoseconds, at which the entry expires.
+     */
+    private final long expiresAt;
+
+    /**
+     * The call used to load the value.
+     */
+    private final NativeCall<?> loader;
+
+    /**
+     * A flag that indicates if the value has been read since it was loaded.
+     */
+    @Setter
+    private volatile boolean accessed;
+
+    /**
+     * A flag that indicates if the expired value is being reloaded in the background.
+     */
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    /**
+     * The error of the last failed background reload of the expired value, or {@code null}.
+     */
+    @Setter
+    private volatile SecretHubException reloadError;
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+/**
+ * {@code SecretChangeListener} is notified when a secret watched with
+ * {@link Client#watch(String, SecretChangeListener)} changes.
+ *
+ * <p>Listeners are called by the client's watch thread, so the implementation must be
+ * thread-safe and should return quickly. A slow listener delays the polling of every watched
+ * path.</p>
+ */
+@FunctionalInterface
+public interface SecretChangeListener {
+
+  /**
+   * Handles a change to a secret.
+   *
+   * @param path    the watched path.
+   * @param version the new version of the secret or {@code null} if it has been removed.
+   */
+  void onChange(String path, SecretVersion version);
+}
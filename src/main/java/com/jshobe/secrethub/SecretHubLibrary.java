@@ -52,8 +52,10 @@ public interface SecretHubLibrary extends Library {
    *
    * @param client     the client.
    * @param path       the path to the secret.
-   * @param errMessage a pointer where any error message will be stored.
-   * @return the secret.
+   * @param errMessage a pointer where any error message will be stored. The message is allocated
+   *                   by the library and must be freed by the caller.
+   * @return the secret. The strings referenced by the structure are allocated by the library and
+   *     must be freed by the caller.
    */
   SecretVersion.ByValue Client_Read(Client client, String path, PointerByReference errMessage);
 
@@ -62,10 +64,11 @@ public interface SecretHubLibrary extends Library {
    *
    * @param client     the client.
    * @param path       the path to the secret.
-   * @param errMessage a pointer where any error message will be stored.
-   * @return the secret.
+   * @param errMessage a pointer where any error message will be stored. The message is allocated
+   *                   by the library and must be freed by the caller.
+   * @return a pointer to the secret, which must be freed by the caller.
    */
-  String Client_ReadString(Client client, String path, PointerByReference errMessage);
+  Pointer Client_ReadString(Client client, String path, PointerByReference errMessage);
 
   /**
    * Fetches the value of a secret from SecretHub, when the <i>ref</i> parameter has the format
@@ -73,20 +76,23 @@ public interface SecretHubLibrary extends Library {
    *
    * @param client     the client.
    * @param ref        the secret reference.
-   * @param errMessage a pointer where any error message will be stored.
-   * @return the secret.
+   * @param errMessage a pointer where any error message will be stored. The message is allocated
+   *                   by the library and must be freed by the caller.
+   * @return a pointer to the secret, which must be freed by the caller.
    */
-  String Client_Resolve(Client client, String ref, PointerByReference errMessage);
+  Pointer Client_Resolve(Client client, String ref, PointerByReference errMessage);
 
   /**
    * Takes a map of environment variables and replaces the values of those which store references
    * of secrets in SecretHub ({@code secrethub://path})
    *
    * @param client     the client.
-   * @param errMessage a pointer where any error message will be stored.
-   * @return the JSON-encoded environment variables with the secrets replaced.
+   * @param errMessage a pointer where any error message will be stored. The message is allocated
+   *                   by the library and must be freed by the caller.
+   * @return a pointer to the JSON-encoded environment variables with the secrets replaced, which
+   *     must be freed by the caller.
    */
-  String Client_ResolveEnv(Client client, PointerByReference errMessage);
+  Pointer Client_ResolveEnv(Client client, PointerByReference errMessage);
 
   /**
    * Checks if a secret exists at <i>path</i>.
@@ -123,21 +129,22 @@ public interface SecretHubLibrary extends Library {
   SecretHubLibrary INSTANCE = Native.load("secrethub", SecretHubLibrary.class);
 
   /**
-   * The SecretHub {@code Secret} structure.
+   * The SecretHub {@code Secret} structure. The string fields point to null-terminated UTF-8
+   * strings allocated with {@code malloc}.
    */
   @FieldOrder({
       "SecretID", "DirID", "RepoID", "Name", "BlindName", "VersionCount", "LatestVersion",
       "Status", "CreatedAt"})
   class Secret extends Structure {
 
-    public String SecretID;
-    public String DirID;
-    public String RepoID;
-    public String Name;
-    public String BlindName;
+    public Pointer SecretID;
+    public Pointer DirID;
+    public Pointer RepoID;
+    public Pointer Name;
+    public Pointer BlindName;
     public int VersionCount;
     public int LatestVersion;
-    public String Status;
+    public Pointer Status;
     public long CreatedAt;
 
     public Secret() {
@@ -149,17 +156,18 @@ public interface SecretHubLibrary extends Library {
   }
 
   /**
-   * The SecretHub {@code SecretVersion} structure.
+   * The SecretHub {@code SecretVersion} structure. The string fields point to null-terminated
+   * UTF-8 strings allocated with {@code malloc}.
    */
   @FieldOrder({"SecretVersionID", "Secret", "Version", "Data", "CreatedAt", "Status"})
   class SecretVersion extends Structure {
 
-    public String SecretVersionID;
+    public Pointer SecretVersionID;
     public Secret Secret;
     public int Version;
-    public String Data;
+    public Pointer Data;
     public long CreatedAt;
-    public String Status;
+    public Pointer Status;
 
     public SecretVersion() {
     }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.regex.Pattern;
+
+/**
+ * {@code SecretNotFoundException} signals that a secret, or the requested version of it, does not
+ * exist. It is thrown instead of a plain {@link SecretHubException} when the error code reported by
+ * the SecretHub client library is a {@code not_found} code, so that callers can tell a missing
+ * secret apart from a failure without parsing the error message.
+ */
+public class SecretNotFoundException extends SecretHubException {
+
+  private static final Pattern NOT_FOUND_CODE = Pattern.compile("\\([\\w.]*not_found\\)");
+
+  /**
+   * Creates a new instance of {@code SecretNotFoundException}.
+   *
+   * @param message the error message.
+   */
+  public SecretNotFoundException(String message) {
+    super(message);
+  }
+
+  /**
+   * Determines if an error message reported by the SecretHub client library has a
+   * {@code not_found} error code, such as {@code (server.secret_not_found)}.
+   *
+   * @param message the error message.
+   * @return {@code true} if the message reports a missing secret or {@code false} if not.
+   */
+  static boolean isNotFound(String message) {
+    return NOT_FOUND_CODE.matcher(message).find();
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@code SecretValue} holds the value of a secret outside of the Java heap, so that it can be
+ * wiped when it is no longer needed instead of remaining on the heap until it is garbage
+ * collected.
+ *
+ * <p>The value is copied directly from the memory returned by the SecretHub library into a direct
+ * byte buffer, without creating a {@link String}. The views returned by {@link #asByteBuffer()},
+ * {@link #asCharSequence()} and {@link #getInputStream()} share that memory. Once the value has
+ * been closed, its memory is filled with zeros, the views only see zeros, and the methods of this
+ * class throw an {@link IllegalStateException}.</p>
+ *
+ * <pre>{@code
+ * try (SecretValue password = client.readValue("example/repo/db-password")) {
+ *   connect(user, password.asCharSequence());
+ * }
+ * }</pre>
+ */
+public final class SecretValue implements AutoCloseable {
+
+  private final ByteBuffer bytes;
+  private ByteBuffer charBytes;
+  private CharBuffer chars;
+  private volatile boolean closed;
+
+  /**
+   * Creates a new instance of {@code SecretValue}.
+   *
+   * @param bytes a direct buffer containing the UTF-8 encoded value, which is owned by the new
+   *              instance.
+   */
+  SecretValue(ByteBuffer bytes) {
+    this.bytes = bytes;
+  }
+
+  /**
+   * Gets the length of the value in bytes, when encoded as UTF-8.
+   *
+   * @return the number of bytes.
+   * @throws IllegalStateException if this value has been closed.
+   */
+  public int size() {
+    checkOpen();
+    return bytes.capacity();
+  }
+
+  /**
+   * Gets a read-only view of the UTF-8 encoded value.
+   *
+   * @return the byte buffer.
+   * @throws IllegalStateException if this value has been closed.
+   */
+  public ByteBuffer asByteBuffer() {
+    checkOpen();
+    return bytes.asReadOnlyBuffer();
+  }
+
+  /**
+   * Gets a read-only view of the value as characters. The value is decoded into a direct buffer
+   * the first time that this method is called.
+   *
+   * @return the characters.
+   * @throws IllegalStateException if this value has been closed.
+   */
+  public synchronized CharSequence asCharSequence() {
+    checkOpen();
+
+    if (chars == null) {
+      charBytes = ByteBuffer.allocateDirect(bytes.capacity() * 2);
+      CharBuffer decoded = charBytes.asCharBuffer();
+      CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      decoder.decode(bytes.duplicate(), decoded, true);
+      decoder.flush(decoded);
+      decoded.flip();
+      chars = decoded;
+    }
+
+    return chars.asReadOnlyBuffer();
+  }
+
+  /**
+   * Gets a stream that reads the UTF-8 encoded value. Reading from the stream after this value
+   * has been closed throws an {@link IOException}.
+   *
+   * @return the input stream.
+   * @throws IllegalStateException if this value has been closed.
+   */
+  public InputStream getInputStream() {
+    checkOpen();
+    return new ValueInputStream(bytes.duplicate());
+  }
+
+  /**
+   * Determines if this value has been closed.
+   *
+   * @return {@code true} if this value has been closed or {@code false} if not.
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Fills the memory holding the value with zeros.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    wipe(bytes);
+
+    if (charBytes != null) {
+      wipe(charBytes);
+    }
+  }
+
+  /**
+   * Gets a description of this value that does not include the value itself.
+   *
+   * @return the description.
+   */
+  @Override
+  public String toString() {
+    return closed ? "SecretValue[closed]" : "SecretValue[size=" + bytes.capacity() + "]";
+  }
+
+  /**
+   * Checks that this value has not been closed.
+   *
+   * @throws IllegalStateException if this value has been closed.
+   */
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("The secret value has been closed");
+    }
+  }
+
+  /**
+   * Fills a buffer with zeros.
+   *
+   * @param buffer the buffer.
+   */
+  private static void wipe(ByteBuffer buffer) {
+    int capacity = buffer.capacity();
+    int i = 0;
+
+    for (; i + Long.BYTES <= capacity; i += Long.BYTES) {
+      buffer.putLong(i, 0L);
+    }
+
+    for (; i < capacity; i++) {
+      buffer.put(i, (byte) 0);
+    }
+  }
+
+  /**
+   * {@code ValueInputStream} reads the bytes of a value.
+   */
+  private final class ValueInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ValueInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() throws IOException {
+      checkStream();
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      checkStream();
+
+      if (len == 0) {
+        return 0;
+      }
+
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+
+      int count = Math.min(len, buffer.remaining());
+      buffer.get(b, off, count);
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      checkStream();
+      int count = (int) Math.max(0L, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + count);
+      return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+      checkStream();
+      return buffer.remaining();
+    }
+
+    private void checkStream() throws IOException {
+      if (closed) {
+        throw new IOException("The secret value has been closed");
+      }
+    }
+  }
+}
@@ -18,6 +18,7 @@ package com.jshobe.secrethub;
 
 import static com.jshobe.secrethub.Client.getDateTime;
 import static com.jshobe.secrethub.Client.getUUID;
+import static com.jshobe.secrethub.NativeMemory.take;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -64,14 +65,31 @@ public class SecretVersion {
   /**
    * Creates a new instance of {@code SecretVersion}.
    *
-   * @param version the version to copy.
+   * @param version the version to copy. The strings that it references are freed.
    */
   SecretVersion(SecretHubLibrary.SecretVersion version) {
-    setSecretVersionId(getUUID(version.SecretVersionID));
+    String secretVersionId = take(version.SecretVersionID);
+    setData(take(version.Data));
+    setStatus(take(version.Status));
     setSecret(new Secret(version.Secret));
+    setSecretVersionId(getUUID(secretVersionId));
     setVersion(version.Version);
-    setData(version.Data);
     setCreatedAt(getDateTime(version.CreatedAt));
-    setStatus(version.Status);
+  }
+
+  /**
+   * Creates a copy of this version, and of its secret, that can be modified independently.
+   *
+   * @return the copy.
+   */
+  SecretVersion copy() {
+    SecretVersion copy = new SecretVersion();
+    copy.setSecretVersionId(getSecretVersionId());
+    copy.setSecret(getSecret() == null ? null : getSecret().copy());
+    copy.setVersion(getVersion());
+    copy.setData(getData());
+    copy.setCreatedAt(getCreatedAt());
+    copy.setStatus(getStatus());
+    return copy;
   }
 }
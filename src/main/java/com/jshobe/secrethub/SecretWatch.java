@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import lombok.Getter;
+
+/**
+ * {@code SecretWatch} is a listener registered with
+ * {@link Client#watch(String, SecretChangeListener)}. Closing it stops the notifications.
+ */
+public final class SecretWatch implements AutoCloseable {
+
+  private final SecretWatcher watcher;
+
+  /**
+   * The watched path.
+   */
+  @Getter
+  private final String path;
+
+  /**
+   * The listener notified when the secret changes.
+   */
+  @Getter
+  private final SecretChangeListener listener;
+
+  /**
+   * Creates a new instance of {@code SecretWatch}.
+   *
+   * @param watcher  the watcher that polls the path.
+   * @param path     the watched path.
+   * @param listener the listener notified when the secret changes.
+   */
+  SecretWatch(SecretWatcher watcher, String path, SecretChangeListener listener) {
+    this.watcher = watcher;
+    this.path = path;
+    this.listener = listener;
+  }
+
+  /**
+   * Stops notifying the listener. The path is no longer polled once it has no listeners.
+   */
+  @Override
+  public void close() {
+    watcher.unwatch(this);
+  }
+}
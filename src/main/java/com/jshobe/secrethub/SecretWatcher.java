@@ -0,0 +1,255 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@code SecretWatcher} polls the paths watched through a {@link Client} on a single shared
+ * thread and notifies their listeners when the version of a secret changes.
+ *
+ * <p>Each interval, at most the configured number of paths are read, taken in turn from a queue
+ * of all watched paths, so the number of calls to the SecretHub API does not grow with the number
+ * of watched paths. Each path is read once however many listeners watch it. The first read of a
+ * path only records its version.</p>
+ */
+class SecretWatcher implements AutoCloseable {
+
+  private final Reader reader;
+  private final Consumer<String> onChange;
+  private final long intervalNanos;
+  private final int maxReads;
+  private final Map<String, WatchedPath> watched = new HashMap<>();
+  private final ArrayDeque<WatchedPath> queue = new ArrayDeque<>();
+  private ScheduledThreadPoolExecutor scheduler;
+  private boolean closed;
+
+  /**
+   * Creates a new instance of {@code SecretWatcher}.
+   *
+   * @param options  the client options.
+   * @param reader   reads the current version of a secret from the library.
+   * @param onChange called with the path of a secret that has changed, before its listeners.
+   */
+  SecretWatcher(ClientOptions options, Reader reader, Consumer<String> onChange) {
+    this.reader = reader;
+    this.onChange = onChange;
+    this.intervalNanos = Math.max(1L, options.getWatchInterval().toNanos());
+    this.maxReads = Math.max(1, options.getWatchMaxReadsPerInterval());
+  }
+
+  /**
+   * Starts notifying a listener when a secret changes.
+   *
+   * @param path     the path to the secret.
+   * @param listener the listener.
+   * @return the registration of the listener.
+   * @throws IllegalStateException if the watcher has been closed.
+   */
+  synchronized SecretWatch watch(String path, SecretChangeListener listener) {
+    if (closed) {
+      throw new IllegalStateException("The client has been closed");
+    }
+
+    SecretWatch watch = new SecretWatch(this, path, listener);
+    WatchedPath watchedPath = watched.get(path);
+
+    if (watchedPath == null) {
+      watchedPath = new WatchedPath(path);
+      watched.put(path, watchedPath);
+      queue.add(watchedPath);
+    }
+
+    watchedPath.watches.add(watch);
+
+    if (scheduler == null) {
+      scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("watch"));
+      scheduler.scheduleWithFixedDelay(this::poll, intervalNanos, intervalNanos,
+          TimeUnit.NANOSECONDS);
+    }
+
+    return watch;
+  }
+
+  /**
+   * Stops notifying a listener.
+   *
+   * @param watch the registration of the listener.
+   */
+  synchronized void unwatch(SecretWatch watch) {
+    WatchedPath watchedPath = watched.get(watch.getPath());
+
+    if (watchedPath != null && watchedPath.watches.remove(watch)
+        && watchedPath.watches.isEmpty()) {
+      watched.remove(watch.getPath());
+      queue.remove(watchedPath);
+    }
+  }
+
+  /**
+   * Gets the number of watched paths.
+   *
+   * @return the number of paths.
+   */
+  synchronized int size() {
+    return watched.size();
+  }
+
+  /**
+   * Stops polling and forgets all of the listeners.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+
+    watched.clear();
+    queue.clear();
+  }
+
+  /**
+   * Reads the next batch of watched paths and notifies the listeners of those that have changed.
+   * Called once per interval by the watch thread.
+   */
+  void poll() {
+    List<WatchedPath> batch = new ArrayList<>();
+
+    synchronized (this) {
+      int count = Math.min(maxReads, queue.size());
+
+      for (int i = 0; i < count; i++) {
+        WatchedPath watchedPath = queue.poll();
+        queue.add(watchedPath);
+        batch.add(watchedPath);
+      }
+    }
+
+    for (WatchedPath watchedPath : batch) {
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+
+      try {
+        poll(watchedPath);
+      } catch (RuntimeException e) {
+        // a failure for one path must not stop the others from being polled
+      }
+    }
+  }
+
+  /**
+   * Reads a watched path and notifies its listeners if it has changed.
+   *
+   * @param watchedPath the watched path.
+   */
+  private void poll(WatchedPath watchedPath) {
+    SecretVersion current;
+
+    try {
+      current = reader.read(watchedPath.path);
+    } catch (SecretNotFoundException e) {
+      current = null;
+    } catch (SecretHubException e) {
+      // try again on the next round
+      return;
+    }
+
+    SecretVersion previous = watchedPath.version;
+    boolean first = !watchedPath.polled;
+    watchedPath.version = current;
+    watchedPath.polled = true;
+
+    if (first || isSameVersion(previous, current)) {
+      return;
+    }
+
+    onChange.accept(watchedPath.path);
+
+    for (SecretWatch watch : watchedPath.watches) {
+      try {
+        watch.getListener().onChange(watchedPath.path, current);
+      } catch (RuntimeException e) {
+        // a faulty listener must not prevent the others from being notified
+      }
+    }
+  }
+
+  /**
+   * Determines if two reads of a secret returned the same version.
+   *
+   * @param previous the previous version or {@code null} if the secret did not exist.
+   * @param current  the current version or {@code null} if the secret does not exist.
+   * @return {@code true} if the versions are the same or {@code false} if not.
+   */
+  private static boolean isSameVersion(SecretVersion previous, SecretVersion current) {
+    if (previous == null || current == null) {
+      return previous == current;
+    }
+
+    return previous.getVersion() == current.getVersion()
+        && Objects.equals(previous.getSecretVersionId(), current.getSecretVersionId());
+  }
+
+  /**
+   * {@code Reader} reads the current version of a secret.
+   */
+  @FunctionalInterface
+  interface Reader {
+
+    /**
+     * Reads the current version of a secret.
+     *
+     * @param path the path to the secret.
+     * @return the secret version.
+     * @throws SecretHubException if an error prevented the secret from being read.
+     */
+    SecretVersion read(String path) throws SecretHubException;
+  }
+
+  /**
+   * {@code WatchedPath} is a path polled by the watcher. Its version is only accessed by the
+   * watch thread.
+   */
+  private static final class WatchedPath {
+
+    private final String path;
+    private final List<SecretWatch> watches = new CopyOnWriteArrayList<>();
+    private SecretVersion version;
+    private boolean polled;
+
+    /**
+     * Creates a new instance of {@code WatchedPath}.
+     *
+     * @param path the path to the secret.
+     */
+    WatchedPath(String path) {
+      this.path = path;
+    }
+  }
+}
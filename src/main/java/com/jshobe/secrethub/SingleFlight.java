@@ -0,0 +1,156 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import com.jshobe.secrethub.SecretCache.Key;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * {@code SingleFlight} coalesces concurrent calls with the same key, so that only one of them is
+ * in progress at a time. Callers that arrive while a call is in progress share its result or its
+ * exception instead of making their own call.
+ *
+ * <p>A call is forgotten as soon as it completes, so results are never reused by callers that
+ * arrive later. Synchronous and asynchronous callers with the same key share the same call.</p>
+ */
+class SingleFlight {
+
+  private final ConcurrentMap<Key, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+
+  /**
+   * Makes a call on the current thread, or waits for the call already in progress with the same
+   * key.
+   *
+   * @param key  the key.
+   * @param call the call.
+   * @param <T>  the type of value produced by the call.
+   * @return the result of the call.
+   * @throws SecretHubException if the call failed or the thread was interrupted while waiting.
+   */
+  @SuppressWarnings("unchecked")
+  <T> T call(Key key, NativeCall<T> call) throws SecretHubException {
+    CompletableFuture<Object> flight = new CompletableFuture<>();
+    CompletableFuture<Object> existing = calls.putIfAbsent(key, flight);
+
+    if (existing != null) {
+      return await((CompletableFuture<T>) (CompletableFuture<?>) existing, call);
+    }
+
+    try {
+      T result = call.call();
+      calls.remove(key, flight);
+      flight.complete(result);
+      return result;
+    } catch (SecretHubException | RuntimeException | Error e) {
+      calls.remove(key, flight);
+      flight.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Starts a call in the background, or joins the call already in progress with the same key.
+   *
+   * @param key   the key.
+   * @param start starts the call and returns a future for its result.
+   * @param <T>   the type of value produced by the call.
+   * @return a future that completes with the result of the call. Cancelling the future does not
+   *     affect the other callers.
+   */
+  @SuppressWarnings("unchecked")
+  <T> CompletableFuture<T> submit(Key key, Supplier<CompletableFuture<T>> start) {
+    CompletableFuture<Object> flight = new CompletableFuture<>();
+    CompletableFuture<Object> existing = calls.putIfAbsent(key, flight);
+
+    if (existing == null) {
+      start.get().whenComplete((result, error) -> {
+        calls.remove(key, flight);
+
+        if (error == null) {
+          flight.complete(result);
+        } else {
+          flight.completeExceptionally(unwrap(error));
+        }
+      });
+      existing = flight;
+    }
+
+    return ((CompletableFuture<T>) (CompletableFuture<?>) existing).thenApply(value -> value);
+  }
+
+  /**
+   * Forgets the calls in progress for a path that has been modified, so that callers that arrive
+   * later make a new call instead of sharing a result that may be out of date.
+   *
+   * @param path the path to the secret.
+   */
+  void forget(String path) {
+    calls.keySet().removeIf(key -> key.isFor(path));
+  }
+
+  /**
+   * Gets the number of calls in progress.
+   *
+   * @return the number of calls.
+   */
+  int size() {
+    return calls.size();
+  }
+
+  /**
+   * Waits for the result of a call made by another caller. If it was rejected by a saturated
+   * executor, the call is made on the current thread instead.
+   *
+   * @param flight the future for the call in progress.
+   * @param call   the call.
+   * @param <T>    the type of value produced by the call.
+   * @return the result of the call.
+   * @throws SecretHubException if the call failed or the thread was interrupted while waiting.
+   */
+  private static <T> T await(CompletableFuture<T> flight, NativeCall<T> call)
+      throws SecretHubException {
+    try {
+      return flight.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RejectedExecutionException) {
+        return call.call();
+      }
+
+      throw Client.toSecretHubException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SecretHubException("Interrupted while waiting for the SecretHub library", e);
+    }
+  }
+
+  /**
+   * Removes the wrapper added by a dependent future from an exception.
+   *
+   * @param error the exception.
+   * @return the cause of the failure.
+   */
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+        ? error.getCause() : error;
+  }
+}
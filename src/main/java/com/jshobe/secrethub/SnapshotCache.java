@@ -0,0 +1,271 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import com.jshobe.secrethub.SnapshotFile.Entry;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * {@code SnapshotCache} keeps the secret versions recently read by a {@link Client} in an
+ * encrypted file, so that a new client can serve them immediately instead of reading every secret
+ * from SecretHub before it can be used.
+ *
+ * <p>A version loaded from the file is served until it has been revalidated. The first time it
+ * is served, it is read again from SecretHub in the background, and the result replaces it.
+ * Versions read in this JVM are recorded, but never served by the snapshot cache, and the file is
+ * rewritten when the client is closed.</p>
+ *
+ * <p>Deriving the key from the passphrase is deliberately slow, so the key is derived and the
+ * file is loaded on a separate thread. Creating the client does not wait for it, but serving a
+ * version does, so the first reads may be delayed until the file has been loaded.</p>
+ */
+class SnapshotCache {
+
+  private static final String CREDENTIAL_VARIABLE = "SECRETHUB_CREDENTIAL";
+  private static final DaemonThreadFactory THREADS = new DaemonThreadFactory("snapshot");
+
+  private final CompletableFuture<SnapshotFile> file = new CompletableFuture<>();
+  private final long maxAge;
+  private final int maxSize;
+  private final ConcurrentMap<String, Stored> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new instance of {@code SnapshotCache}. The snapshot file is loaded by
+   * {@link #load}.
+   *
+   * @param options the client options.
+   */
+  private SnapshotCache(ClientOptions options) {
+    this.maxAge = options.getSnapshotMaxAge().toMillis();
+    this.maxSize = options.getSnapshotMaxSize();
+  }
+
+  /**
+   * Opens the snapshot cache configured by the client options, and starts loading the snapshot
+   * file in the background. The key is derived from the snapshot passphrase or, if it is not set,
+   * from the SecretHub credential.
+   *
+   * @param options the client options.
+   * @return the snapshot cache.
+   */
+  static SnapshotCache open(ClientOptions options) {
+    SnapshotCache cache = new SnapshotCache(options);
+    char[] passphrase = options.getSnapshotPassphrase() == null ? null
+        : options.getSnapshotPassphrase().clone();
+    THREADS.newThread(() -> cache.load(options.getSnapshotPath(), passphrase)).start();
+    return cache;
+  }
+
+  /**
+   * Derives the key and loads the versions in the snapshot file. Versions recorded while the file
+   * was being loaded are kept. If the file cannot be read or decrypted, the cache starts empty
+   * and the file is replaced when it is saved. If there is no key material, or the key could not
+   * be derived, no snapshot is kept.
+   *
+   * @param path       the path to the snapshot file.
+   * @param passphrase the snapshot passphrase or {@code null} to use the SecretHub credential.
+   */
+  private void load(Path path, char[] passphrase) {
+    char[] key = passphrase == null ? readCredential() : passphrase;
+    SnapshotFile loaded = null;
+
+    try {
+      if (key != null) {
+        loaded = new SnapshotFile(path, key);
+        long now = System.currentTimeMillis();
+
+        for (Entry entry : loaded.read()) {
+          if (entries.size() < maxSize && now - entry.getSavedAt() < maxAge) {
+            entries.putIfAbsent(entry.getPath(), new Stored(entry, true));
+          }
+        }
+      }
+    } catch (SecretHubException e) {
+      // the snapshot is only an optimization, so a damaged file is ignored
+    } finally {
+      if (key != null) {
+        Arrays.fill(key, '\0');
+      }
+
+      file.complete(loaded);
+    }
+  }
+
+  /**
+   * Gets a version loaded from the snapshot file that has not been revalidated yet. The first
+   * time a version is served, <i>revalidate</i> is called to read it again in the background.
+   * Waits for the file to be loaded if it has not been yet.
+   *
+   * @param path       the path to the secret.
+   * @param revalidate starts reading the secret again.
+   * @return the version or {@code null} if the path is not in the snapshot or has been
+   *     revalidated.
+   */
+  SecretVersion serve(String path, Consumer<String> revalidate) {
+    file.join();
+    Stored stored = entries.get(path);
+
+    if (stored == null || !stored.loaded) {
+      return null;
+    }
+
+    if (System.currentTimeMillis() - stored.entry.getSavedAt() >= maxAge) {
+      entries.remove(path, stored);
+      return null;
+    }
+
+    if (stored.revalidating.compareAndSet(false, true)) {
+      revalidate.accept(path);
+    }
+
+    return stored.entry.getVersion();
+  }
+
+  /**
+   * Records a version read from SecretHub, so that it is written to the snapshot file.
+   *
+   * @param path    the path to the secret.
+   * @param version the version.
+   */
+  void record(String path, SecretVersion version) {
+    if (entries.size() < maxSize || entries.containsKey(path)) {
+      Entry entry = new Entry(path, System.currentTimeMillis(), version);
+      entries.put(path, new Stored(entry, false));
+    }
+  }
+
+  /**
+   * Handles the result of revalidating a version that was loaded from the snapshot file.
+   *
+   * @param path    the path to the secret.
+   * @param version the version read from SecretHub or {@code null} if the read failed.
+   * @param error   the error that caused the read to fail or {@code null} if it succeeded.
+   * @return {@code true} if the served version was replaced by a different one or removed.
+   */
+  boolean revalidated(String path, SecretVersion version, Throwable error) {
+    Stored stored = entries.get(path);
+
+    if (stored == null || !stored.loaded) {
+      return false;
+    }
+
+    if (error == null) {
+      Entry entry = new Entry(path, System.currentTimeMillis(), version);
+      entries.replace(path, stored, new Stored(entry, false));
+      return !version.equals(stored.entry.getVersion());
+    }
+
+    Throwable cause = error.getCause() == null ? error : error.getCause();
+
+    if (error instanceof SecretNotFoundException || cause instanceof SecretNotFoundException) {
+      entries.remove(path, stored);
+      return true;
+    }
+
+    // try again the next time the version is served
+    stored.revalidating.set(false);
+    return false;
+  }
+
+  /**
+   * Removes the versions of a path that has been modified. Waits for the file to be loaded if it
+   * has not been yet, so that the versions are not loaded again afterwards.
+   *
+   * @param path the path to the secret.
+   */
+  void invalidate(String path) {
+    file.join();
+    entries.keySet().removeIf(key -> SecretCache.Key.isFor(key, path));
+  }
+
+  /**
+   * Writes the recorded versions to the snapshot file, once it has been loaded. Nothing is written
+   * if there is no key.
+   *
+   * @throws SecretHubException if the file could not be written.
+   */
+  void save() throws SecretHubException {
+    SnapshotFile target = file.join();
+
+    if (target == null) {
+      return;
+    }
+
+    List<Entry> saved = new ArrayList<>(entries.size());
+
+    for (Stored stored : entries.values()) {
+      saved.add(stored.entry);
+    }
+
+    target.write(saved);
+  }
+
+  /**
+   * Reads the SecretHub credential from the environment or from the credential file.
+   *
+   * @return the credential or {@code null} if it is not available.
+   */
+  private static char[] readCredential() {
+    String credential = System.getenv(CREDENTIAL_VARIABLE);
+
+    if (credential != null && !credential.isEmpty()) {
+      return credential.toCharArray();
+    }
+
+    Path path = Paths.get(System.getProperty("user.home"), ".secrethub", "credential");
+
+    try {
+      byte[] bytes = Files.readAllBytes(path);
+      CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes));
+      Arrays.fill(bytes, (byte) 0);
+      char[] result = Arrays.copyOf(chars.array(), chars.limit());
+      Arrays.fill(chars.array(), '\0');
+      return result.length == 0 ? null : result;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * {@code Stored} is an entry in the snapshot cache.
+   */
+  private static final class Stored {
+
+    private final Entry entry;
+    private final boolean loaded;
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
+    Stored(Entry entry, boolean loaded) {
+      this.entry = entry;
+      this.loaded = loaded;
+    }
+  }
+}
@@ -0,0 +1,541 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.Value;
+
+/**
+ * {@code SnapshotFile} reads and writes the encrypted file that holds a {@link SnapshotCache}.
+ *
+ * <p>The file starts with a header containing a magic number, the format version, the number of
+ * key derivation iterations, the salt and the initialization vector. The rest of the file is the
+ * snapshot, encrypted with AES-GCM using a key derived from a passphrase with PBKDF2. The header
+ * is authenticated along with the snapshot, so any change to the file is detected. The key is
+ * derived with the salt and number of iterations in the header of an existing file, as long as
+ * the number is between the default and a sanity limit, so a file written with more iterations
+ * can still be read and is rewritten with the same number.</p>
+ *
+ * <p>The file is memory-mapped when it is read and decrypted directly from the mapping. The
+ * decrypted bytes are overwritten with zeros as soon as the secrets have been copied out of
+ * them. When the file is written, the snapshot is serialized into a single array of exactly the
+ * right size, which is overwritten with zeros once it has been encrypted.</p>
+ */
+class SnapshotFile {
+
+  private static final int MAGIC = 0x53485331;
+  private static final byte FORMAT_VERSION = 1;
+  private static final int ITERATIONS = 100_000;
+  private static final int MAX_ITERATIONS = 10_000_000;
+  private static final int SALT_LENGTH = 16;
+  private static final int IV_LENGTH = 12;
+  private static final int TAG_BITS = 128;
+  private static final int HEADER_LENGTH = 4 + 1 + 4 + SALT_LENGTH + IV_LENGTH;
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private final Path path;
+  private final byte[] salt = new byte[SALT_LENGTH];
+  private final int iterations;
+  private final SecretKey key;
+
+  /**
+   * Creates a new instance of {@code SnapshotFile}. The key is derived using the salt and number
+   * of iterations of the existing file, if there is one, so that the file can be decrypted.
+   *
+   * @param path       the path to the file.
+   * @param passphrase the passphrase from which the key is derived.
+   * @throws SecretHubException if the key could not be derived.
+   */
+  SnapshotFile(Path path, char[] passphrase) throws SecretHubException {
+    this.path = path;
+    this.iterations = readHeader(path, salt);
+    this.key = deriveKey(passphrase, salt, iterations);
+  }
+
+  /**
+   * Reads the entries in the file.
+   *
+   * @return the entries or an empty list if the file does not exist.
+   * @throws SecretHubException if the file could not be read or decrypted.
+   */
+  List<Entry> read() throws SecretHubException {
+    byte[] plain = null;
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+
+      if (mapped.remaining() < HEADER_LENGTH || mapped.getInt(0) != MAGIC
+          || mapped.get(4) != FORMAT_VERSION || mapped.getInt(5) != iterations) {
+        throw new SecretHubException("Unrecognized snapshot file: " + path);
+      }
+
+      byte[] header = new byte[HEADER_LENGTH];
+      mapped.get(header);
+      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, header,
+          HEADER_LENGTH - IV_LENGTH, IV_LENGTH));
+      cipher.updateAAD(header);
+      plain = new byte[cipher.getOutputSize(mapped.remaining())];
+      ByteBuffer buffer = ByteBuffer.wrap(plain);
+      cipher.doFinal(mapped, buffer);
+      buffer.flip();
+      return readEntries(buffer);
+    } catch (NoSuchFileException e) {
+      return new ArrayList<>();
+    } catch (IOException | GeneralSecurityException | RuntimeException e) {
+      throw new SecretHubException("Failed to read snapshot file: " + path, e);
+    } finally {
+      if (plain != null) {
+        Arrays.fill(plain, (byte) 0);
+      }
+    }
+  }
+
+  /**
+   * Replaces the file with one containing <i>entries</i>. The file is written to a temporary file
+   * that is readable only by its owner, and then moved into place.
+   *
+   * @param entries the entries.
+   * @throws SecretHubException if the file could not be written.
+   */
+  void write(Collection<Entry> entries) throws SecretHubException {
+    byte[] plain = new byte[sizeOf(entries)];
+    Path temp = null;
+
+    try {
+      writeEntries(ByteBuffer.wrap(plain), entries);
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+      byte[] iv = new byte[IV_LENGTH];
+      RANDOM.nextBytes(iv);
+      header.putInt(MAGIC).put(FORMAT_VERSION).putInt(iterations).put(salt).put(iv);
+
+      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+      cipher.updateAAD(header.array());
+      byte[] encrypted = cipher.doFinal(plain);
+
+      Path directory = path.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      temp = createTempFile(directory);
+      Files.write(temp, header.array());
+      Files.write(temp, encrypted, StandardOpenOption.APPEND);
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      temp = null;
+    } catch (IOException | GeneralSecurityException | RuntimeException e) {
+      throw new SecretHubException("Failed to write snapshot file: " + path, e);
+    } finally {
+      Arrays.fill(plain, (byte) 0);
+
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException e) {
+          // the temporary file only holds encrypted data
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the salt and number of iterations from an existing file. If there is no file, or its
+   * header is not recognized or has a number of iterations outside the accepted range, a new salt
+   * is generated and the default number of iterations is used.
+   *
+   * @param path the path to the file.
+   * @param salt the array into which the salt is read.
+   * @return the number of iterations.
+   */
+  private static int readHeader(Path path, byte[] salt) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+
+      while (header.hasRemaining() && channel.read(header) != -1) {
+        // keep reading until the header is complete
+      }
+
+      int iterations = header.getInt(5);
+
+      if (!header.hasRemaining() && header.getInt(0) == MAGIC
+          && header.get(4) == FORMAT_VERSION && iterations >= ITERATIONS
+          && iterations <= MAX_ITERATIONS) {
+        header.position(9);
+        header.get(salt);
+        return iterations;
+      }
+    } catch (IOException e) {
+      // the file does not exist or cannot be read, so it will be replaced
+    }
+
+    RANDOM.nextBytes(salt);
+    return ITERATIONS;
+  }
+
+  /**
+   * Derives the encryption key from a passphrase.
+   *
+   * @param passphrase the passphrase.
+   * @param salt       the salt.
+   * @param iterations the number of iterations.
+   * @return the key.
+   * @throws SecretHubException if the key could not be derived.
+   */
+  private static SecretKey deriveKey(char[] passphrase, byte[] salt, int iterations)
+      throws SecretHubException {
+    PBEKeySpec spec = new PBEKeySpec(passphrase, salt, iterations, 256);
+
+    try {
+      byte[] encoded = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+          .generateSecret(spec).getEncoded();
+      SecretKey key = new SecretKeySpec(encoded, "AES");
+      Arrays.fill(encoded, (byte) 0);
+      return key;
+    } catch (GeneralSecurityException e) {
+      throw new SecretHubException("Failed to derive snapshot key", e);
+    } finally {
+      spec.clearPassword();
+    }
+  }
+
+  /**
+   * Creates an empty temporary file, readable only by its owner if the file system supports
+   * POSIX permissions.
+   *
+   * @param directory the directory in which the file is created.
+   * @return the path to the file.
+   * @throws IOException if the file could not be created.
+   */
+  private static Path createTempFile(Path directory) throws IOException {
+    try {
+      return Files.createTempFile(directory, ".snapshot", ".tmp",
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } catch (UnsupportedOperationException e) {
+      return Files.createTempFile(directory, ".snapshot", ".tmp");
+    }
+  }
+
+  /**
+   * Calculates the number of bytes written by {@link #writeEntries}.
+   *
+   * @param entries the entries.
+   * @return the size of the serialized entries.
+   */
+  private static int sizeOf(Collection<Entry> entries) {
+    int size = 4;
+
+    for (Entry entry : entries) {
+      SecretVersion version = entry.getVersion();
+      Secret secret = version.getSecret();
+      size += sizeOf(entry.getPath()) + 8 + sizeOf(version.getSecretVersionId()) + 4
+          + sizeOf(version.getData()) + sizeOf(version.getCreatedAt())
+          + sizeOf(version.getStatus()) + 1;
+
+      if (secret != null) {
+        size += sizeOf(secret.getSecretId()) + sizeOf(secret.getDirectoryId())
+            + sizeOf(secret.getRepositoryId()) + sizeOf(secret.getName())
+            + sizeOf(secret.getBlindName()) + 4 + 4 + sizeOf(secret.getStatus())
+            + sizeOf(secret.getCreatedAt());
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Writes the entries of a snapshot.
+   *
+   * @param out     the buffer, which must have exactly the size of the entries remaining.
+   * @param entries the entries.
+   */
+  private static void writeEntries(ByteBuffer out, Collection<Entry> entries) {
+    CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    out.putInt(entries.size());
+
+    for (Entry entry : entries) {
+      SecretVersion version = entry.getVersion();
+      Secret secret = version.getSecret();
+      writeString(out, encoder, entry.getPath());
+      out.putLong(entry.getSavedAt());
+      writeUUID(out, version.getSecretVersionId());
+      out.putInt(version.getVersion());
+      writeString(out, encoder, version.getData());
+      writeDateTime(out, version.getCreatedAt());
+      writeString(out, encoder, version.getStatus());
+      out.put((byte) (secret == null ? 0 : 1));
+
+      if (secret != null) {
+        writeUUID(out, secret.getSecretId());
+        writeUUID(out, secret.getDirectoryId());
+        writeUUID(out, secret.getRepositoryId());
+        writeString(out, encoder, secret.getName());
+        writeString(out, encoder, secret.getBlindName());
+        out.putInt(secret.getVersionCount());
+        out.putInt(secret.getLatestVersion());
+        writeString(out, encoder, secret.getStatus());
+        writeDateTime(out, secret.getCreatedAt());
+      }
+    }
+
+    if (out.hasRemaining()) {
+      throw new IllegalStateException("The snapshot was modified while it was written");
+    }
+  }
+
+  /**
+   * Reads the entries of a snapshot.
+   *
+   * @param in the decrypted snapshot.
+   * @return the entries.
+   */
+  private static List<Entry> readEntries(ByteBuffer in) {
+    int count = in.getInt();
+    List<Entry> entries = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+      String path = readString(in);
+      long savedAt = in.getLong();
+      SecretVersion version = new SecretVersion();
+      version.setSecretVersionId(readUUID(in));
+      version.setVersion(in.getInt());
+      version.setData(readString(in));
+      version.setCreatedAt(readDateTime(in));
+      version.setStatus(readString(in));
+
+      if (in.get() != 0) {
+        Secret secret = new Secret();
+        secret.setSecretId(readUUID(in));
+        secret.setDirectoryId(readUUID(in));
+        secret.setRepositoryId(readUUID(in));
+        secret.setName(readString(in));
+        secret.setBlindName(readString(in));
+        secret.setVersionCount(in.getInt());
+        secret.setLatestVersion(in.getInt());
+        secret.setStatus(readString(in));
+        secret.setCreatedAt(readDateTime(in));
+        version.setSecret(secret);
+      }
+
+      entries.add(new Entry(path, savedAt, version));
+    }
+
+    return entries;
+  }
+
+  /**
+   * Calculates the number of bytes written by {@link #writeString}.
+   *
+   * @param value the string.
+   * @return the size of the serialized string.
+   */
+  private static int sizeOf(String value) {
+    return value == null ? 4 : 4 + utf8Length(value);
+  }
+
+  /**
+   * Calculates the length of a string encoded as UTF-8, without encoding it. Unpaired surrogates
+   * are counted as the single byte of their replacement.
+   *
+   * @param value the string.
+   * @return the number of bytes.
+   */
+  private static int utf8Length(String value) {
+    int length = 0;
+
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+
+    return length;
+  }
+
+  /**
+   * Writes a nullable string as its length in UTF-8 bytes, or {@code -1}, followed by the bytes.
+   * The string is encoded directly into the buffer, so no other copy of it is made.
+   *
+   * @param out     the buffer.
+   * @param encoder the UTF-8 encoder.
+   * @param value   the string.
+   */
+  private static void writeString(ByteBuffer out, CharsetEncoder encoder, String value) {
+    if (value == null) {
+      out.putInt(-1);
+    } else {
+      out.putInt(utf8Length(value));
+      encoder.reset();
+      encoder.encode(CharBuffer.wrap(value), out, true);
+      encoder.flush(out);
+    }
+  }
+
+  /**
+   * Reads a string written by {@link #writeString}.
+   *
+   * @param in the buffer.
+   * @return the string.
+   */
+  private static String readString(ByteBuffer in) {
+    int length = in.getInt();
+
+    if (length < 0) {
+      return null;
+    }
+
+    String value = new String(in.array(), in.arrayOffset() + in.position(), length,
+        StandardCharsets.UTF_8);
+    in.position(in.position() + length);
+    return value;
+  }
+
+  /**
+   * Calculates the number of bytes written by {@link #writeUUID}.
+   *
+   * @param value the UUID.
+   * @return the size of the serialized UUID.
+   */
+  private static int sizeOf(UUID value) {
+    return value == null ? 1 : 17;
+  }
+
+  /**
+   * Writes a nullable UUID as a presence flag followed by its two halves.
+   *
+   * @param out   the buffer.
+   * @param value the UUID.
+   */
+  private static void writeUUID(ByteBuffer out, UUID value) {
+    out.put((byte) (value == null ? 0 : 1));
+
+    if (value != null) {
+      out.putLong(value.getMostSignificantBits());
+      out.putLong(value.getLeastSignificantBits());
+    }
+  }
+
+  /**
+   * Reads a UUID written by {@link #writeUUID}.
+   *
+   * @param in the buffer.
+   * @return the UUID.
+   */
+  private static UUID readUUID(ByteBuffer in) {
+    return in.get() == 0 ? null : new UUID(in.getLong(), in.getLong());
+  }
+
+  /**
+   * Calculates the number of bytes written by {@link #writeDateTime}.
+   *
+   * @param value the date and time.
+   * @return the size of the serialized date and time.
+   */
+  private static int sizeOf(LocalDateTime value) {
+    return value == null ? 1 : 13;
+  }
+
+  /**
+   * Writes a nullable date and time as a presence flag followed by its epoch second and nanosecond
+   * in UTC, so that it is read back unchanged in any time zone.
+   *
+   * @param out   the buffer.
+   * @param value the date and time.
+   */
+  private static void writeDateTime(ByteBuffer out, LocalDateTime value) {
+    out.put((byte) (value == null ? 0 : 1));
+
+    if (value != null) {
+      out.putLong(value.toEpochSecond(ZoneOffset.UTC));
+      out.putInt(value.getNano());
+    }
+  }
+
+  /**
+   * Reads a date and time written by {@link #writeDateTime}.
+   *
+   * @param in the buffer.
+   * @return the date and time.
+   */
+  private static LocalDateTime readDateTime(ByteBuffer in) {
+    return in.get() == 0 ? null
+        : LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+  }
+
+  /**
+   * {@code Entry} is a secret version held in a snapshot.
+   */
+  @Value
+  static class Entry {
+
+    /**
+     * The path from which the version was read.
+     */
+    String path;
+
+    /**
+     * The time at which the version was read from SecretHub, in milliseconds since the epoch.
+     */
+    long savedAt;
+
+    /**
+     * The version.
+     */
+    SecretVersion version;
+  }
+}
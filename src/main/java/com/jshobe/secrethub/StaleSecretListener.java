@@ -0,0 +1,42 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.time.Duration;
+
+/**
+ * {@code StaleSecretListener} is notified when a {@link Client} serves an expired cached secret
+ * while it is reloaded in the background.
+ *
+ * <p>The listener is called by the thread that read the secret, before the stale value is
+ * returned, so the implementation must be thread-safe and should not block.</p>
+ *
+ * @see ClientOptions#getCacheStaleIfError()
+ */
+@FunctionalInterface
+public interface StaleSecretListener {
+
+  /**
+   * Records a stale value served from the cache.
+   *
+   * @param path      the path to the secret.
+   * @param staleness the amount of time since the cached value expired.
+   * @param error     the error of the last failed attempt to reload the secret, or {@code null}
+   *                  if no attempt has failed yet.
+   */
+  void onStaleSecret(String path, Duration staleness, SecretHubException error);
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@code TemplateResolver} replaces the secret references in a template
+ * ({@code {{ secrethub://path }}}) with the values of the secrets.
+ *
+ * <p>The template is read in a single pass. Each distinct reference is resolved once, in the
+ * background, as soon as it is found, so that the references are resolved in parallel while the
+ * rest of the template is read. The output is written in order as the values become available.
+ * Only the text that follows the first unresolved reference is held in memory, and reading pauses
+ * until that reference is resolved if the text grows beyond a limit.</p>
+ *
+ * <p>Text between double braces that is not a secret reference is copied unchanged.</p>
+ */
+public class TemplateResolver {
+
+  /**
+   * The default number of characters that may be held while waiting for a reference to be
+   * resolved.
+   */
+  public static final int DEFAULT_MAX_PENDING = 64 * 1024;
+
+  private static final String REFERENCE_PREFIX = "secrethub://";
+  private static final int MAX_TAG_LENGTH = 1024;
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Client client;
+  private final int maxPending;
+
+  /**
+   * Creates a new instance of {@code TemplateResolver}.
+   *
+   * @param client the client used to resolve the references.
+   */
+  public TemplateResolver(Client client) {
+    this(client, DEFAULT_MAX_PENDING);
+  }
+
+  /**
+   * Creates a new instance of {@code TemplateResolver}.
+   *
+   * @param client     the client used to resolve the references.
+   * @param maxPending the number of characters that may be held while waiting for a reference to
+   *                   be resolved.
+   */
+  public TemplateResolver(Client client, int maxPending) {
+    this.client = client;
+    this.maxPending = Math.max(BUFFER_SIZE, maxPending);
+  }
+
+  /**
+   * Resolves the references in a template.
+   *
+   * @param template the template.
+   * @return the resolved template.
+   * @throws SecretHubException    if an error prevented a reference from being resolved.
+   * @throws IllegalStateException if the client has been closed.
+   */
+  public String resolve(CharSequence template) throws SecretHubException {
+    StringWriter out = new StringWriter(template.length());
+
+    try {
+      resolve(template, out);
+    } catch (IOException e) {
+      // StringWriter does not throw IOException
+      throw new IllegalStateException(e);
+    }
+
+    return out.toString();
+  }
+
+  /**
+   * Resolves the references in a template, writing the result to <i>out</i>.
+   *
+   * @param template the template.
+   * @param out      the writer to which the resolved template is written.
+   * @return the references that were resolved and the time taken to resolve each of them.
+   * @throws SecretHubException    if an error prevented a reference from being resolved.
+   * @throws IOException           if the result could not be written.
+   * @throws IllegalStateException if the client has been closed.
+   */
+  public TemplateResult resolve(CharSequence template, Writer out)
+      throws SecretHubException, IOException {
+    Pass pass = new Pass(out);
+    CharBuffer in = CharBuffer.wrap(template);
+    char[] buffer = new char[Math.min(BUFFER_SIZE, Math.max(1, template.length()))];
+
+    while (in.hasRemaining()) {
+      int count = Math.min(buffer.length, in.remaining());
+      in.get(buffer, 0, count);
+      pass.scan(buffer, count);
+    }
+
+    return pass.finish();
+  }
+
+  /**
+   * Resolves the references in a template read from <i>in</i>, writing the result to
+   * <i>out</i>. Neither stream is closed.
+   *
+   * @param in  the reader from which the template is read.
+   * @param out the writer to which the resolved template is written.
+   * @return the references that were resolved and the time taken to resolve each of them.
+   * @throws SecretHubException    if an error prevented a reference from being resolved.
+   * @throws IOException           if the template could not be read or the result written.
+   * @throws IllegalStateException if the client has been closed.
+   */
+  public TemplateResult resolve(Reader in, Writer out) throws SecretHubException, IOException {
+    Pass pass = new Pass(out);
+    char[] buffer = new char[BUFFER_SIZE];
+    int count;
+
+    while ((count = in.read(buffer)) != -1) {
+      pass.scan(buffer, count);
+    }
+
+    return pass.finish();
+  }
+
+  /**
+   * {@code State} is the state of the template scanner.
+   */
+  private enum State {
+    /**
+     * Copying text.
+     */
+    TEXT,
+
+    /**
+     * An opening brace was found in the text.
+     */
+    OPEN,
+
+    /**
+     * Reading the text between double braces.
+     */
+    TAG,
+
+    /**
+     * A closing brace was found between double braces.
+     */
+    CLOSE
+  }
+
+  /**
+   * {@code Pass} holds the state of a single resolution of a template.
+   */
+  private final class Pass {
+
+    private final Writer out;
+    private final Map<String, Reference> references = new LinkedHashMap<>();
+    private final Deque<Object> segments = new ArrayDeque<>();
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder tag = new StringBuilder();
+    private State state = State.TEXT;
+    private int pending;
+    private int occurrences;
+
+    Pass(Writer out) {
+      this.out = out;
+    }
+
+    /**
+     * Scans a block of the template.
+     *
+     * @param buffer the buffer holding the block.
+     * @param count  the number of characters in the block.
+     * @throws SecretHubException if an error prevented a reference from being resolved.
+     * @throws IOException        if the result could not be written.
+     */
+    void scan(char[] buffer, int count) throws SecretHubException, IOException {
+      for (int i = 0; i < count; i++) {
+        char c = buffer[i];
+
+        switch (state) {
+          case TEXT:
+            if (c == '{') {
+              state = State.OPEN;
+            } else {
+              text.append(c);
+            }
+            break;
+
+          case OPEN:
+            if (c == '{') {
+              tag.setLength(0);
+              state = State.TAG;
+            } else {
+              text.append('{').append(c);
+              state = State.TEXT;
+            }
+            break;
+
+          case CLOSE:
+            if (c == '}') {
+              endTag();
+              break;
+            }
+
+            tag.append('}');
+            state = State.TAG;
+            // the character is part of the tag
+            appendTag(c);
+            break;
+
+          default:
+            if (c == '}') {
+              state = State.CLOSE;
+            } else {
+              appendTag(c);
+            }
+        }
+      }
+
+      if (text.length() >= BUFFER_SIZE) {
+        pushText();
+        flush(false);
+      }
+    }
+
+    /**
+     * Writes the rest of the template, waiting for any references that have not been resolved.
+     *
+     * @return the references that were resolved and the time taken to resolve each of them.
+     * @throws SecretHubException if an error prevented a reference from being resolved.
+     * @throws IOException        if the result could not be written.
+     */
+    TemplateResult finish() throws SecretHubException, IOException {
+      switch (state) {
+        case OPEN:
+          text.append('{');
+          break;
+
+        case TAG:
+          text.append("{{").append(tag);
+          break;
+
+        case CLOSE:
+          text.append("{{").append(tag).append('}');
+          break;
+
+        default:
+      }
+
+      pushText();
+      flush(true);
+
+      Map<String, Duration> times = new LinkedHashMap<>();
+
+      for (Reference reference : references.values()) {
+        times.put(reference.reference, Duration.ofNanos(reference.end - reference.start));
+      }
+
+      return new TemplateResult(occurrences, times);
+    }
+
+    /**
+     * Adds a character to the text between double braces. If the text is too long to be a
+     * reference, it is copied to the output instead.
+     *
+     * @param c the character.
+     */
+    private void appendTag(char c) {
+      tag.append(c);
+
+      if (tag.length() > MAX_TAG_LENGTH) {
+        text.append("{{").append(tag);
+        state = State.TEXT;
+      }
+    }
+
+    /**
+     * Handles the closing braces of a tag, starting to resolve it if it is a reference.
+     *
+     * @throws SecretHubException if an error prevented a reference from being resolved.
+     * @throws IOException        if the result could not be written.
+     */
+    private void endTag() throws SecretHubException, IOException {
+      state = State.TEXT;
+      String content = tag.toString().trim();
+
+      if (!isReference(content)) {
+        text.append("{{").append(tag).append("}}");
+        return;
+      }
+
+      occurrences++;
+      pushText();
+      segments.add(references.computeIfAbsent(content, Reference::new));
+      flush(false);
+    }
+
+    /**
+     * Determines if the text between double braces is a secret reference.
+     *
+     * @param content the trimmed text.
+     * @return {@code true} if the text is a reference or {@code false} if not.
+     */
+    private boolean isReference(String content) {
+      if (content.length() <= REFERENCE_PREFIX.length()
+          || !content.startsWith(REFERENCE_PREFIX)) {
+        return false;
+      }
+
+      for (int i = REFERENCE_PREFIX.length(); i < content.length(); i++) {
+        if (Character.isWhitespace(content.charAt(i))) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * Adds the text that has been read to the segments waiting to be written.
+     */
+    private void pushText() {
+      if (text.length() > 0) {
+        segments.add(text.toString());
+        pending += text.length();
+        text.setLength(0);
+      }
+    }
+
+    /**
+     * Writes the segments that are ready. If more than the maximum number of characters would
+     * still be held, waits for the references that precede them.
+     *
+     * @param all {@code true} to wait for every reference.
+     * @throws SecretHubException if an error prevented a reference from being resolved.
+     * @throws IOException        if the result could not be written.
+     */
+    private void flush(boolean all) throws SecretHubException, IOException {
+      while (!segments.isEmpty()) {
+        Object segment = segments.peek();
+
+        if (segment instanceof Reference) {
+          Reference reference = (Reference) segment;
+
+          if (!all && pending <= maxPending && !reference.future.isDone()) {
+            return;
+          }
+
+          out.write(reference.get());
+        } else {
+          String value = (String) segment;
+          out.write(value);
+          pending -= value.length();
+        }
+
+        segments.remove();
+      }
+    }
+
+    /**
+     * Cancels the references that are still being resolved.
+     */
+    private void cancel() {
+      for (Reference reference : references.values()) {
+        reference.future.cancel(true);
+      }
+    }
+
+    /**
+     * {@code Reference} is a distinct reference found in the template.
+     */
+    private final class Reference {
+
+      private final String reference;
+      private final long start = System.nanoTime();
+      private final CompletableFuture<String> future;
+      private volatile long end;
+      private String value;
+
+      Reference(String reference) {
+        this.reference = reference;
+        this.future = client.resolveAsync(reference);
+        this.future.whenComplete((v, e) -> end = System.nanoTime());
+      }
+
+      /**
+       * Gets the value of the reference, waiting for it to be resolved if necessary.
+       *
+       * @return the value.
+       * @throws SecretHubException if an error prevented the reference from being resolved.
+       */
+      String get() throws SecretHubException {
+        if (value != null) {
+          return value;
+        }
+
+        try {
+          value = future.get();
+        } catch (ExecutionException e) {
+          if (!(e.getCause() instanceof RejectedExecutionException)) {
+            cancel();
+            throw Client.toSecretHubException(e.getCause());
+          }
+
+          // the worker queue is full, so resolve the reference on the calling thread instead
+          value = client.resolve(reference);
+          end = System.nanoTime();
+        } catch (InterruptedException e) {
+          cancel();
+          Thread.currentThread().interrupt();
+          throw new SecretHubException("Interrupted while resolving template", e);
+        }
+
+        return value;
+      }
+    }
+  }
+}
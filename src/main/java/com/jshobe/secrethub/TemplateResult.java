@@ -0,0 +1,44 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.time.Duration;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * {@code TemplateResult} describes the references resolved by a {@link TemplateResolver}.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class TemplateResult {
+
+  /**
+   * The number of references in the template, including duplicates.
+   */
+  int referenceCount;
+
+  /**
+   * The time taken to resolve each distinct reference, keyed by reference, in the order in which
+   * the references first appear in the template. Each time is measured from when the reference
+   * was found until its value was available, so it includes any time spent waiting for a worker
+   * thread.
+   */
+  Map<String, Duration> resolveTimes;
+}
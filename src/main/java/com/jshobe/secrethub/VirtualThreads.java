@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * {@code VirtualThreads} detects if code is running on a virtual thread.
+ *
+ * <p>Virtual threads were added in Java 21, but this library targets Java 8, so
+ * {@code Thread.isVirtual()} is looked up once when this class is loaded. On earlier versions of
+ * Java, no thread is virtual.</p>
+ */
+final class VirtualThreads {
+
+  private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+  /**
+   * Creates a new instance of {@code VirtualThreads}.
+   */
+  private VirtualThreads() {
+  }
+
+  /**
+   * Determines if virtual threads are supported by the running JVM.
+   *
+   * @return {@code true} if virtual threads are supported or {@code false} if not.
+   */
+  static boolean isSupported() {
+    return IS_VIRTUAL != null;
+  }
+
+  /**
+   * Determines if the current thread is a virtual thread.
+   *
+   * @return {@code true} if the current thread is virtual or {@code false} if not.
+   */
+  static boolean isCurrentThreadVirtual() {
+    if (IS_VIRTUAL == null) {
+      return false;
+    }
+
+    try {
+      return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+    } catch (Throwable e) {
+      return false;
+    }
+  }
+
+  /**
+   * Finds the {@code Thread.isVirtual()} method.
+   *
+   * @return the method handle or {@code null} if the method does not exist.
+   */
+  private static MethodHandle findIsVirtual() {
+    try {
+      return MethodHandles.publicLookup()
+          .findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+}
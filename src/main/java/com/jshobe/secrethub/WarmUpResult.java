@@ -0,0 +1,57 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * {@code WarmUpResult} describes the outcome of {@link Client#warmUp(java.util.Collection,
+ * Duration)}.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class WarmUpResult {
+
+  /**
+   * The paths of the secrets that were read, in the order in which they were requested.
+   */
+  List<String> loadedPaths;
+
+  /**
+   * The errors that prevented secrets from being read before the deadline, keyed by path.
+   */
+  Map<String, SecretHubException> failures;
+
+  /**
+   * The time taken by the warm-up.
+   */
+  Duration duration;
+
+  /**
+   * Determines if all of the secrets were read.
+   *
+   * @return {@code true} if there were no failures or {@code false} if not.
+   */
+  public boolean isSuccessful() {
+    return failures.isEmpty();
+  }
+}
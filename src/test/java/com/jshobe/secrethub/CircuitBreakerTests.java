@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Circuit Breaker")
+class CircuitBreakerTests {
+
+  @Test
+  @DisplayName("should open after consecutive failures")
+  void shouldOpenAfterConsecutiveFailures() throws Exception {
+    CircuitBreaker breaker = createBreaker(Duration.ofMinutes(1L));
+
+    breaker.onFailure(breaker.acquire());
+    breaker.onSuccess(breaker.acquire());
+    breaker.onFailure(breaker.acquire());
+    assertEquals(CircuitState.CLOSED, breaker.getCircuitState());
+
+    breaker.onFailure(breaker.acquire());
+    assertEquals(CircuitState.OPEN, breaker.getCircuitState());
+    assertThrows(CircuitBreakerOpenException.class, breaker::acquire);
+    assertEquals(1L, breaker.getOpenCount());
+    assertEquals(1L, breaker.getRejectedCount());
+  }
+
+  @Test
+  @DisplayName("should allow a single trial call when half open")
+  void shouldAllowSingleTrialCallWhenHalfOpen() throws Exception {
+    CircuitBreaker breaker = createBreaker(Duration.ofNanos(1L));
+    breaker.onFailure(breaker.acquire());
+    breaker.onFailure(breaker.acquire());
+    Thread.sleep(1L);
+
+    long trial = breaker.acquire();
+    assertEquals(CircuitState.HALF_OPEN, breaker.getCircuitState());
+    assertThrows(CircuitBreakerOpenException.class, breaker::acquire);
+
+    breaker.onFailure(trial);
+    assertEquals(CircuitState.OPEN, breaker.getCircuitState());
+    Thread.sleep(1L);
+
+    breaker.onSuccess(breaker.acquire());
+    assertEquals(CircuitState.CLOSED, breaker.getCircuitState());
+    assertEquals(0, breaker.getConsecutiveFailures());
+  }
+
+  @Test
+  @DisplayName("should ignore outcome of call allowed before opening")
+  void shouldIgnoreOutcomeOfCallAllowedBeforeOpening() throws Exception {
+    CircuitBreaker breaker = createBreaker(Duration.ofNanos(1L));
+    long slow = breaker.acquire();
+    breaker.onFailure(breaker.acquire());
+    breaker.onFailure(breaker.acquire());
+    Thread.sleep(1L);
+
+    long trial = breaker.acquire();
+    breaker.onSuccess(slow);
+    breaker.onIgnored(slow);
+    assertEquals(CircuitState.HALF_OPEN, breaker.getCircuitState());
+    assertThrows(CircuitBreakerOpenException.class, breaker::acquire);
+
+    breaker.onFailure(slow);
+    breaker.onSuccess(trial);
+    assertEquals(CircuitState.CLOSED, breaker.getCircuitState());
+    assertEquals(0, breaker.getConsecutiveFailures());
+  }
+
+  @Test
+  @DisplayName("should stay open when call allowed before opening succeeds")
+  void shouldStayOpenWhenCallAllowedBeforeOpeningSucceeds() throws Exception {
+    CircuitBreaker breaker = createBreaker(Duration.ofMinutes(1L));
+    breaker.onFailure(breaker.acquire());
+    long slow = breaker.acquire();
+    breaker.onFailure(breaker.acquire());
+    assertEquals(CircuitState.OPEN, breaker.getCircuitState());
+
+    breaker.onSuccess(slow);
+    assertEquals(CircuitState.OPEN, breaker.getCircuitState());
+    assertEquals(1L, breaker.getOpenCount());
+  }
+
+  @Test
+  @DisplayName("should classify transient errors")
+  void shouldClassifyTransientErrors() {
+    assertTrue(Resilience.isTransient(
+        new SecretHubException(InMemorySecretHubLibrary.SERVICE_UNAVAILABLE)));
+    assertTrue(Resilience.isTransient(new SecretHubException("dial tcp: connection refused")));
+    assertFalse(Resilience.isTransient(
+        new SecretNotFoundException("Secret not found (server.secret_not_found)")));
+    assertFalse(Resilience.isTransient(new SecretHubException("Access denied (auth.denied)")));
+  }
+
+  private CircuitBreaker createBreaker(Duration openDuration) {
+    return new CircuitBreaker(ClientOptions.builder()
+        .circuitBreakerFailureThreshold(2)
+        .circuitBreakerOpenDuration(openDuration)
+        .build());
+  }
+}
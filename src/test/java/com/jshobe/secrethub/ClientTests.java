@@ -22,26 +22,50 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.core.JsonParseException;
-import com.sun.jna.Memory;
+import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import com.sun.jna.ptr.PointerByReference;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
@@ -56,7 +80,7 @@ class ClientTests {
   @Test
   @DisplayName("should throw exception when new client fails")
   void shouldThrowExceptionWhenNewClientFails() {
-    Memory error = createErrorMessage("test error");
+    Pointer error = createNativeString("test error");
     when(library.new_Client(any(PointerByReference.class))).thenAnswer(
         (Answer<SecretHubLibrary.Client>) invocation -> {
           PointerByReference pointer = invocation.getArgument(0);
@@ -73,43 +97,12 @@ class ClientTests {
   @Test
   @DisplayName("should return secret")
   void shouldReturnSecret() throws Exception {
-    SecretHubLibrary.SecretVersion.ByValue version = new SecretHubLibrary.SecretVersion.ByValue();
-    version.SecretVersionID = "0dd95e7b-a5c3-4982-b80c-6bd9e4e33c56";
-    version.Version = 1;
-    version.CreatedAt = 1612384987L;
-    version.Status = "ok";
-    version.Data = "SUCCESS";
-    version.Secret = new SecretHubLibrary.Secret();
-    version.Secret.SecretID = "89e453e1-4962-48cf-afc0-4f169c49da6b";
-    version.Secret.DirID = "1bb04779-89c7-4bf9-b7e9-7bdbec29841d";
-    version.Secret.RepoID = "11843657-61ed-49e1-996e-b124bc4ec28e";
-    version.Secret.Name = "test";
-    version.Secret.BlindName = "xwzC2LKr6lwNHW2odRkCcgKuevUC_VW8NeNizsSEG6g=";
-    version.Secret.VersionCount = 1;
-    version.Secret.LatestVersion = 1;
-    version.Secret.Status = "ok";
-    version.Secret.CreatedAt = 1612384987L;
-
+    SecretHubLibrary.SecretVersion.ByValue version = createVersion();
     when(library
         .Client_Read(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
             any(PointerByReference.class))).thenReturn(version);
 
-    SecretVersion expected = new SecretVersion();
-    expected.setSecretVersionId(Client.getUUID("0dd95e7b-a5c3-4982-b80c-6bd9e4e33c56"));
-    expected.setVersion(1);
-    expected.setCreatedAt(Client.getDateTime(1612384987L));
-    expected.setStatus("ok");
-    expected.setData("SUCCESS");
-    expected.setSecret(new Secret());
-    expected.getSecret().setSecretId(Client.getUUID("89e453e1-4962-48cf-afc0-4f169c49da6b"));
-    expected.getSecret().setDirectoryId(Client.getUUID("1bb04779-89c7-4bf9-b7e9-7bdbec29841d"));
-    expected.getSecret().setRepositoryId(Client.getUUID("11843657-61ed-49e1-996e-b124bc4ec28e"));
-    expected.getSecret().setName("test");
-    expected.getSecret().setBlindName("xwzC2LKr6lwNHW2odRkCcgKuevUC_VW8NeNizsSEG6g=");
-    expected.getSecret().setVersionCount(1);
-    expected.getSecret().setLatestVersion(1);
-    expected.getSecret().setStatus("ok");
-    expected.getSecret().setCreatedAt(Client.getDateTime(1612384987L));
+    SecretVersion expected = createExpectedVersion();
 
     try (Client client = createClient()) {
       SecretVersion actual = client.read("jasonshobe/secrethub-java/test");
@@ -123,10 +116,86 @@ class ClientTests {
     verifyNoMoreInteractions(library);
   }
 
+  @Test
+  @DisplayName("should return lazily converted secret")
+  void shouldReturnLazilyConvertedSecret() throws Exception {
+    SecretHubLibrary.SecretVersion.ByValue version = createVersion();
+    when(library
+        .Client_Read(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
+            any(PointerByReference.class))).thenReturn(version);
+
+    SecretVersion expected = createExpectedVersion();
+    ClientOptions options = ClientOptions.builder().lazyConversion(true).build();
+
+    try (Client client = createClient(options)) {
+      SecretVersion actual = client.read("jasonshobe/secrethub-java/test");
+      assertThat(actual, instanceOf(LazySecretVersion.class));
+      assertEquals(expected, actual);
+      assertEquals(expected.toString(), actual.toString());
+    }
+  }
+
+  @Test
+  @DisplayName("should replace lazily converted fields when set")
+  void shouldReplaceLazilyConvertedFields() {
+    UUID id = UUID.randomUUID();
+    LocalDateTime createdAt = LocalDateTime.now();
+    SecretVersion version = new LazySecretVersion(createVersion());
+    version.setSecretVersionId(id);
+    version.getSecret().setCreatedAt(createdAt);
+
+    assertEquals(id, version.getSecretVersionId());
+    assertEquals(createdAt, version.getSecret().getCreatedAt());
+    assertEquals(Client.getDateTime(1612384987L), version.getCreatedAt());
+  }
+
+  @Test
+  @DisplayName("should copy lazily converted fields")
+  void shouldCopyLazilyConvertedFields() {
+    UUID id = UUID.randomUUID();
+    SecretVersion version = new LazySecretVersion(createVersion());
+    version.getSecret().setSecretId(id);
+    SecretVersion copy = version.copy();
+
+    assertThat(copy, instanceOf(LazySecretVersion.class));
+    assertEquals(id, copy.getSecret().getSecretId());
+
+    SecretVersion expected = createExpectedVersion();
+    expected.getSecret().setSecretId(id);
+    assertEquals(expected, copy);
+    assertEquals(expected, version);
+  }
+
+  @Test
+  @DisplayName("should not share cached secret with callers")
+  void shouldNotShareCachedSecretWithCallers() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/secret", "value");
+
+    for (boolean lazy : new boolean[] {false, true}) {
+      ClientOptions options = cachingOptions().toBuilder().lazyConversion(lazy).build();
+
+      try (Client client = memory.createClient(options)) {
+        SecretVersion first = client.read("test/repo/secret");
+        UUID id = first.getSecretVersionId();
+        first.setData("changed");
+        first.setSecretVersionId(UUID.randomUUID());
+        first.getSecret().setName("changed");
+
+        SecretVersion second = client.read("test/repo/secret");
+        assertEquals("value", second.getData());
+        assertEquals(id, second.getSecretVersionId());
+        assertEquals("secret", second.getSecret().getName());
+        assertEquals(1L, memory.getCallCount(InMemorySecretHubLibrary.Operation.READ));
+        memory.resetCallCounts();
+      }
+    }
+  }
+
   @Test
   @DisplayName("should throw exception when read error is set")
   void shouldThrowExceptionWhenReadErrorIsSet() throws Exception {
-    Memory error = createErrorMessage("missing secret");
+    Pointer error = createNativeString("missing secret");
     when(library
         .Client_Read(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
             any(PointerByReference.class)))
@@ -166,7 +235,7 @@ class ClientTests {
   void shouldReturnSecretString() throws Exception {
     when(library
         .Client_ReadString(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
-            any(PointerByReference.class))).thenReturn("SUCCESS");
+            any(PointerByReference.class))).thenAnswer(invocation -> createNativeString("SUCCESS"));
 
     try (Client client = createClient()) {
       String actual = client.readString("jasonshobe/secrethub-java/test");
@@ -186,7 +255,7 @@ class ClientTests {
     when(library
         .Client_Resolve(any(SecretHubLibrary.Client.class),
             eq("secrethub://jasonshobe/secrethub-java/test"),
-            any(PointerByReference.class))).thenReturn("SUCCESS");
+            any(PointerByReference.class))).thenAnswer(invocation -> createNativeString("SUCCESS"));
 
     try (Client client = createClient()) {
       String actual = client.resolve("secrethub://jasonshobe/secrethub-java/test");
@@ -207,7 +276,7 @@ class ClientTests {
     String json = "{\"TEST_KEY\":\"SUCCESS\"}";
     when(library
         .Client_ResolveEnv(any(SecretHubLibrary.Client.class), any(PointerByReference.class)))
-        .thenReturn(json);
+        .thenAnswer(invocation -> createNativeString(json));
 
     Map<String, String> expected = new HashMap<>();
     expected.put("TEST_KEY", "SUCCESS");
@@ -223,13 +292,72 @@ class ClientTests {
     verifyNoMoreInteractions(library);
   }
 
+  @Test
+  @DisplayName("should return cached env")
+  void shouldReturnCachedEnv() throws Exception {
+    String json = "{\"TEST_KEY\":\"SUCCESS\"}";
+    when(library
+        .Client_ResolveEnv(any(SecretHubLibrary.Client.class), any(PointerByReference.class)))
+        .thenAnswer(invocation -> createNativeString(json));
+
+    ClientOptions options = ClientOptions.builder()
+        .environmentCacheTtl(Duration.ofMinutes(1L))
+        .build();
+
+    try (Client client = createClient(options)) {
+      client.resolveEnv().put("TEST_KEY", "MODIFIED");
+      assertEquals("SUCCESS", client.resolveEnv().get("TEST_KEY"));
+      client.write("jasonshobe/secrethub-java/test", "SUCCESS");
+      assertEquals("SUCCESS", client.resolveEnv().get("TEST_KEY"));
+    }
+
+    verify(library, times(2))
+        .Client_ResolveEnv(any(SecretHubLibrary.Client.class), any(PointerByReference.class));
+    verify(library)
+        .Client_Write(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
+            eq("SUCCESS"), any(PointerByReference.class));
+    verify(library).delete_Client(any(SecretHubLibrary.Client.class));
+    verifyNoMoreInteractions(library);
+  }
+
+  @Test
+  @DisplayName("should resolve selected env variables")
+  void shouldResolveSelectedEnvVariables() throws Exception {
+    Map<String, String> environment = new HashMap<>();
+    environment.put("PLAIN_KEY", "PLAIN");
+    environment.put("SECRET_KEY", "secrethub://jasonshobe/secrethub-java/test");
+    environment.put("OTHER_KEY", "secrethub://jasonshobe/secrethub-java/other");
+
+    when(library
+        .Client_Resolve(any(SecretHubLibrary.Client.class),
+            eq("secrethub://jasonshobe/secrethub-java/test"), any(PointerByReference.class)))
+        .thenAnswer(invocation -> createNativeString("SUCCESS"));
+
+    Map<String, String> expected = new HashMap<>();
+    expected.put("PLAIN_KEY", "PLAIN");
+    expected.put("SECRET_KEY", "SUCCESS");
+
+    try (Client client = createClient()) {
+      client.setEnvironment(environment::get);
+      Map<String, String> actual = client.resolveEnv(
+          new HashSet<>(Arrays.asList("PLAIN_KEY", "SECRET_KEY", "MISSING_KEY")));
+      assertEquals(expected, actual);
+    }
+
+    verify(library)
+        .Client_Resolve(any(SecretHubLibrary.Client.class),
+            eq("secrethub://jasonshobe/secrethub-java/test"), any(PointerByReference.class));
+    verify(library).delete_Client(any(SecretHubLibrary.Client.class));
+    verifyNoMoreInteractions(library);
+  }
+
   @Test
   @DisplayName("should throw exception for invalid JSON")
   void shouldThrowExceptionForInvalidJson() throws Exception {
     String json = "{\"TEST_KEY\":}";
     when(library
         .Client_ResolveEnv(any(SecretHubLibrary.Client.class), any(PointerByReference.class)))
-        .thenReturn(json);
+        .thenAnswer(invocation -> createNativeString(json));
 
     try (Client client = createClient()) {
       SecretHubException thrown = assertThrows(SecretHubException.class, client::resolveEnv);
@@ -309,6 +437,679 @@ class ClientTests {
     verifyNoMoreInteractions(library);
   }
 
+  @Test
+  @DisplayName("should return cached secret string")
+  void shouldReturnCachedSecretString() throws Exception {
+    when(library
+        .Client_ReadString(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
+            any(PointerByReference.class))).thenAnswer(invocation -> createNativeString("SUCCESS"));
+
+    try (Client client = createClient(cachingOptions())) {
+      assertEquals("SUCCESS", client.readString("jasonshobe/secrethub-java/test"));
+      assertEquals("SUCCESS", client.readString("jasonshobe/secrethub-java/test"));
+      assertEquals(new CacheStats(1L, 1L, 0L, 0L, 0L, 0L, 1), client.getCacheStats());
+    }
+
+    verify(library)
+        .Client_ReadString(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
+            any(PointerByReference.class));
+    verify(library).delete_Client(any(SecretHubLibrary.Client.class));
+    verifyNoMoreInteractions(library);
+  }
+
+  @Test
+  @DisplayName("should invalidate cached secret when written")
+  void shouldInvalidateCachedSecretWhenWritten() throws Exception {
+    when(library
+        .Client_ReadString(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
+            any(PointerByReference.class)))
+        .thenAnswer(invocation -> createNativeString("FIRST"))
+        .thenAnswer(invocation -> createNativeString("SECOND"));
+
+    try (Client client = createClient(cachingOptions())) {
+      assertEquals("FIRST", client.readString("jasonshobe/secrethub-java/test"));
+      client.write("jasonshobe/secrethub-java/test", "SECOND");
+      assertEquals("SECOND", client.readString("jasonshobe/secrethub-java/test"));
+    }
+
+    verify(library, times(2))
+        .Client_ReadString(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
+            any(PointerByReference.class));
+    verify(library)
+        .Client_Write(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
+            eq("SECOND"), any(PointerByReference.class));
+    verify(library).delete_Client(any(SecretHubLibrary.Client.class));
+    verifyNoMoreInteractions(library);
+  }
+
+  @Test
+  @DisplayName("should invalidate cached secret when removed")
+  void shouldInvalidateCachedSecretWhenRemoved() throws Exception {
+    SecretHubLibrary.SecretVersion.ByValue version = new SecretHubLibrary.SecretVersion.ByValue();
+    version.Version = 1;
+    version.Secret = new SecretHubLibrary.Secret();
+    when(library
+        .Client_Read(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
+            any(PointerByReference.class))).thenReturn(version);
+
+    try (Client client = createClient(cachingOptions())) {
+      client.read("jasonshobe/secrethub-java/test");
+      client.read("jasonshobe/secrethub-java/test");
+      client.remove("jasonshobe/secrethub-java/test");
+      client.read("jasonshobe/secrethub-java/test");
+      assertEquals(new CacheStats(1L, 2L, 0L, 0L, 0L, 0L, 1), client.getCacheStats());
+    }
+
+    verify(library, times(2))
+        .Client_Read(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
+            any(PointerByReference.class));
+    verify(library)
+        .Client_Remove(any(SecretHubLibrary.Client.class), eq("jasonshobe/secrethub-java/test"),
+            any(PointerByReference.class));
+    verify(library).delete_Client(any(SecretHubLibrary.Client.class));
+    verifyNoMoreInteractions(library);
+  }
+
+  @Test
+  @DisplayName("should read all secrets")
+  void shouldReadAllSecrets() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    memory.put("test/repo/second", "2");
+
+    try (Client client = memory.createClient()) {
+      BatchResult<SecretVersion> actual = client.readAll(
+          Arrays.asList("test/repo/first", "test/repo/second", "test/repo/first"));
+      assertTrue(actual.isSuccessful());
+      assertEquals(Arrays.asList("test/repo/first", "test/repo/second"),
+          new ArrayList<>(actual.getValues().keySet()));
+      assertEquals("1", actual.getValues().get("test/repo/first").getData());
+      assertEquals("2", actual.getValues().get("test/repo/second").getData());
+    }
+
+    assertEquals(2L, memory.getCallCount(InMemorySecretHubLibrary.Operation.READ));
+  }
+
+  @Test
+  @DisplayName("should record operation metrics")
+  void shouldRecordOperationMetrics() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    List<String> recorded = Collections.synchronizedList(new ArrayList<>());
+    ClientOptions options = ClientOptions.builder()
+        .metricsSink((operation, nanos, failed) -> recorded.add(operation + ":" + failed))
+        .build();
+
+    try (Client client = memory.createClient(options)) {
+      client.read("test/repo/first");
+      client.readString("test/repo/first");
+      assertThrows(SecretNotFoundException.class, () -> client.read("test/repo/missing"));
+
+      OperationStats read = client.getOperationStats().get(ClientOperation.READ);
+      assertEquals(2L, read.getCallCount());
+      assertEquals(1L, read.getErrorCount());
+      assertEquals(0, read.getInFlight());
+      assertTrue(read.getP50().compareTo(read.getMax()) <= 0);
+      assertEquals(1L,
+          client.getOperationStats().get(ClientOperation.READ_STRING).getCallCount());
+      assertEquals(0L, client.getOperationStats().get(ClientOperation.WRITE).getCallCount());
+    }
+
+    assertEquals(Arrays.asList("READ:false", "READ_STRING:false", "READ:true"), recorded);
+  }
+
+  @Test
+  @DisplayName("should publish operation metrics through JMX")
+  void shouldPublishOperationMetricsThroughJmx() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    ClientOptions options = ClientOptions.builder().jmxEnabled(true).jmxName("jmx-test").build();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name =
+        new ObjectName("com.jshobe.secrethub:type=Client,name=\"jmx-test\",operation=read");
+
+    try (Client client = memory.createClient(options)) {
+      client.read("test/repo/first");
+      assertEquals(1L, server.getAttribute(name, "CallCount"));
+    }
+
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  @DisplayName("should retry reads after transient errors")
+  void shouldRetryReadsAfterTransientErrors() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    memory.setErrorRate(InMemorySecretHubLibrary.Operation.READ, 1.0);
+    ClientOptions options = ClientOptions.builder()
+        .retryMaxAttempts(3)
+        .retryInitialBackoff(Duration.ofMillis(1L))
+        .build();
+
+    try (Client client = memory.createClient(options)) {
+      assertThrows(SecretHubException.class, () -> client.read("test/repo/first"));
+      assertEquals(3L, memory.getCallCount(InMemorySecretHubLibrary.Operation.READ));
+      assertEquals(2L, client.getResilienceStats().getRetryCount());
+
+      memory.setErrorRate(InMemorySecretHubLibrary.Operation.READ, 0.0);
+      assertEquals("1", client.read("test/repo/first").getData());
+    }
+  }
+
+  @Test
+  @DisplayName("should not retry missing secrets or writes")
+  void shouldNotRetryMissingSecretsOrWrites() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    ClientOptions options = ClientOptions.builder()
+        .retryMaxAttempts(3)
+        .retryInitialBackoff(Duration.ofMillis(1L))
+        .build();
+
+    try (Client client = memory.createClient(options)) {
+      assertThrows(SecretNotFoundException.class, () -> client.read("test/repo/missing"));
+      assertEquals(1L, memory.getCallCount(InMemorySecretHubLibrary.Operation.READ));
+
+      memory.setErrorRate(InMemorySecretHubLibrary.Operation.WRITE, 1.0);
+      assertThrows(SecretHubException.class, () -> client.write("test/repo/first", "1"));
+      assertEquals(1L, memory.getCallCount(InMemorySecretHubLibrary.Operation.WRITE));
+      assertEquals(0L, client.getResilienceStats().getRetryCount());
+    }
+  }
+
+  @Test
+  @DisplayName("should fail fast while circuit breaker is open")
+  void shouldFailFastWhileCircuitBreakerIsOpen() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    memory.setErrorRate(InMemorySecretHubLibrary.Operation.READ, 1.0);
+    List<String> transitions = Collections.synchronizedList(new ArrayList<>());
+    ClientOptions options = ClientOptions.builder()
+        .circuitBreakerFailureThreshold(2)
+        .circuitBreakerOpenDuration(Duration.ofMillis(50L))
+        .metricsSink(new MetricsSink() {
+          @Override
+          public void record(ClientOperation operation, long durationNanos, boolean failed) {
+          }
+
+          @Override
+          public void onCircuitStateChange(CircuitState previous, CircuitState current) {
+            transitions.add(previous + "->" + current);
+          }
+        })
+        .build();
+
+    try (Client client = memory.createClient(options)) {
+      assertThrows(SecretHubException.class, () -> client.read("test/repo/first"));
+      assertThrows(SecretHubException.class, () -> client.read("test/repo/first"));
+      assertThrows(CircuitBreakerOpenException.class, () -> client.read("test/repo/first"));
+      assertEquals(2L, memory.getCallCount(InMemorySecretHubLibrary.Operation.READ));
+
+      ResilienceStats stats = client.getResilienceStats();
+      assertEquals(CircuitState.OPEN, stats.getCircuitState());
+      assertEquals(1L, stats.getOpenCount());
+      assertEquals(1L, stats.getRejectedCount());
+
+      memory.setErrorRate(InMemorySecretHubLibrary.Operation.READ, 0.0);
+      Thread.sleep(60L);
+      client.read("test/repo/first");
+
+      assertEquals(CircuitState.CLOSED, client.getResilienceStats().getCircuitState());
+    }
+
+    assertEquals(Arrays.asList("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"),
+        transitions);
+  }
+
+  @Test
+  @DisplayName("should notify watchers when secret changes")
+  void shouldNotifyWatchersWhenSecretChanges() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    ClientOptions options = cachingOptions().toBuilder()
+        .watchInterval(Duration.ofMillis(10L))
+        .build();
+    CountDownLatch changed = new CountDownLatch(1);
+    List<String> values = Collections.synchronizedList(new ArrayList<>());
+
+    try (Client client = memory.createClient(options)) {
+      assertEquals("1", client.readString("test/repo/first"));
+      SecretWatch watch = client.watch("test/repo/first", (path, version) -> {
+        values.add(version.getData());
+        changed.countDown();
+      });
+
+      while (memory.getCallCount(InMemorySecretHubLibrary.Operation.READ) == 0L) {
+        Thread.sleep(5L);
+      }
+
+      memory.put("test/repo/first", "2");
+
+      assertTrue(changed.await(5L, TimeUnit.SECONDS));
+      assertEquals("2", values.get(0));
+      assertEquals("2", client.readString("test/repo/first"));
+      watch.close();
+    }
+  }
+
+  @Test
+  @DisplayName("should not use deleted handles when closed during reads")
+  void shouldNotUseDeletedHandlesWhenClosedDuringReads() throws Exception {
+    Set<Long> deleted = ConcurrentHashMap.newKeySet();
+    AtomicInteger violations = new AtomicInteger();
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary() {
+      @Override
+      public void delete_Client(SecretHubLibrary.Client client) {
+        if (!deleted.add(client.ID)) {
+          violations.incrementAndGet();
+        }
+
+        super.delete_Client(client);
+      }
+
+      @Override
+      public Pointer Client_ReadString(SecretHubLibrary.Client client, String path,
+          PointerByReference errMessage) {
+        Pointer result = super.Client_ReadString(client, path, errMessage);
+
+        if (deleted.contains(client.ID)) {
+          violations.incrementAndGet();
+        }
+
+        return result;
+      }
+    };
+    memory.put("test/repo/first", "1");
+    memory.setLatency(LatencyModel.uniform(Duration.ZERO, Duration.ofNanos(200_000L)));
+    ClientOptions options = ClientOptions.builder().handlePoolMaxSize(4).build();
+    ExecutorService readers = Executors.newFixedThreadPool(8);
+
+    try {
+      for (int i = 0; i < 50; i++) {
+        Client client = memory.createClient(options);
+        CountDownLatch started = new CountDownLatch(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int j = 0; j < 8; j++) {
+          futures.add(readers.submit(() -> {
+            started.countDown();
+
+            try {
+              while (true) {
+                client.readString("test/repo/first");
+              }
+            } catch (IllegalStateException e) {
+              // the client has been closed
+            }
+
+            return null;
+          }));
+        }
+
+        assertTrue(started.await(5L, TimeUnit.SECONDS));
+        Thread.sleep(2L);
+        client.close();
+
+        for (Future<?> future : futures) {
+          future.get(5L, TimeUnit.SECONDS);
+        }
+      }
+    } finally {
+      readers.shutdownNow();
+    }
+
+    assertEquals(0, violations.get());
+    assertEquals(memory.getCallCount(InMemorySecretHubLibrary.Operation.NEW_CLIENT),
+        memory.getCallCount(InMemorySecretHubLibrary.Operation.DELETE_CLIENT));
+  }
+
+  @Test
+  @DisplayName("should warm up cache")
+  void shouldWarmUpCache() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    memory.put("test/repo/second", "2");
+
+    try (Client client = memory.createClient(cachingOptions())) {
+      WarmUpResult result = client.warmUp(Arrays.asList("test/repo/first", "test/repo/second",
+          "test/repo/first", "test/repo/missing"), Duration.ofSeconds(5L));
+      assertFalse(result.isSuccessful());
+      assertEquals(Arrays.asList("test/repo/first", "test/repo/second"),
+          result.getLoadedPaths());
+      assertThat(result.getFailures().get("test/repo/missing"),
+          instanceOf(SecretNotFoundException.class));
+      assertEquals(3L, memory.getCallCount(InMemorySecretHubLibrary.Operation.READ));
+
+      memory.resetCallCounts();
+      assertEquals("1", client.read("test/repo/first").getData());
+      assertEquals("2", client.readString("test/repo/second"));
+      assertEquals(0L, memory.getTotalCallCount());
+    }
+  }
+
+  @Test
+  @DisplayName("should warm up cache from manifest")
+  void shouldWarmUpCacheFromManifest(@TempDir Path directory) throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    memory.put("test/repo/second", "2");
+    Path manifest = directory.resolve("manifest");
+    Files.write(manifest, Arrays.asList("# secrets", "test/repo/first", "", "  test/repo/second"));
+
+    try (Client client = memory.createClient(cachingOptions())) {
+      WarmUpResult result = client.warmUp(manifest, Duration.ofSeconds(5L));
+      assertTrue(result.isSuccessful());
+      assertEquals(Arrays.asList("test/repo/first", "test/repo/second"),
+          result.getLoadedPaths());
+    }
+  }
+
+  @Test
+  @DisplayName("should report secrets not warmed up before deadline")
+  void shouldReportSecretsNotWarmedUpBeforeDeadline() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    memory.setLatency(LatencyModel.fixed(Duration.ofMillis(500L)));
+
+    try (Client client = memory.createClient(cachingOptions())) {
+      WarmUpResult result = client.warmUp(Collections.singletonList("test/repo/first"),
+          Duration.ofMillis(10L));
+      assertEquals(Collections.emptyList(), result.getLoadedPaths());
+      assertEquals("Timed out warming up secret",
+          result.getFailures().get("test/repo/first").getMessage());
+      assertTrue(result.getDuration().compareTo(Duration.ofMillis(500L)) < 0);
+    }
+  }
+
+  @Test
+  @DisplayName("should not read secrets on calling thread after warm up deadline")
+  void shouldNotReadSecretsOnCallingThreadAfterWarmUpDeadline() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    List<String> paths = new ArrayList<>();
+
+    for (int i = 0; i < 5; i++) {
+      paths.add("test/repo/" + i);
+      memory.put(paths.get(i), Integer.toString(i));
+    }
+
+    memory.setLatency(LatencyModel.fixed(Duration.ofMillis(200L)));
+    ClientOptions options = cachingOptions().toBuilder()
+        .workerThreads(1)
+        .workerQueueCapacity(1)
+        .build();
+
+    try (Client client = memory.createClient(options)) {
+      WarmUpResult result = client.warmUp(paths, Duration.ofMillis(50L));
+      assertEquals(Collections.emptyList(), result.getLoadedPaths());
+      assertEquals(5, result.getFailures().size());
+      assertTrue(result.getDuration().compareTo(Duration.ofMillis(200L)) < 0);
+      assertEquals(1L, memory.getCallCount(InMemorySecretHubLibrary.Operation.READ));
+    }
+  }
+
+  @Test
+  @DisplayName("should read in background with hedging")
+  void shouldReadInBackgroundWithHedging() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    memory.put("test/repo/second", "2");
+    ClientOptions options = ClientOptions.builder()
+        .hedgeReads(true)
+        .hedgeMinDelay(Duration.ofMillis(1L))
+        .workerThreads(1)
+        .build();
+
+    try (Client client = memory.createClient(options)) {
+      for (int i = 0; i < 64; i++) {
+        client.read("test/repo/first");
+      }
+
+      assertTimeoutPreemptively(Duration.ofSeconds(10L), () -> {
+        assertEquals("1", client.readAsync("test/repo/first").get().getData());
+        BatchResult<SecretVersion> result = client.readAll(
+            Arrays.asList("test/repo/first", "test/repo/second"));
+        assertTrue(result.isSuccessful());
+        assertEquals("2", result.getValues().get("test/repo/second").getData());
+      });
+    }
+  }
+
+  @Test
+  @DisplayName("should report failures when reading all secret strings")
+  void shouldReportFailuresWhenReadingAllSecretStrings() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+
+    try (Client client = memory.createClient()) {
+      BatchResult<String> actual = client.readStringAll(
+          Arrays.asList("test/repo/first", "test/repo/missing"));
+      assertFalse(actual.isSuccessful());
+      assertEquals(Collections.singletonMap("test/repo/first", "1"), actual.getValues());
+      assertEquals(InMemorySecretHubLibrary.SECRET_NOT_FOUND,
+          actual.getFailures().get("test/repo/missing").getMessage());
+    }
+  }
+
+  @Test
+  @DisplayName("should read all secrets in parallel")
+  void shouldReadAllSecretsInParallel() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.setLatency(LatencyModel.fixed(Duration.ofMillis(200L)));
+    List<String> paths = new ArrayList<>();
+
+    for (int i = 0; i < 8; i++) {
+      paths.add("test/repo/secret" + i);
+      memory.put("test/repo/secret" + i, String.valueOf(i));
+    }
+
+    try (Client client = memory.createClient()) {
+      long start = System.nanoTime();
+      BatchResult<String> actual = client.readStringAll(paths);
+      long elapsed = System.nanoTime() - start;
+
+      assertEquals(8, actual.getValues().size());
+      assertTrue(elapsed < Duration.ofMillis(800L).toNanos());
+    }
+  }
+
+  @Test
+  @DisplayName("should read secrets asynchronously")
+  void shouldReadSecretsAsynchronously() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/secret", "value");
+
+    try (Client client = memory.createClient()) {
+      assertEquals("value",
+          client.readAsync("test/repo/secret").get(5L, TimeUnit.SECONDS).getData());
+      assertEquals("value", client.readStringAsync("test/repo/secret").get(5L, TimeUnit.SECONDS));
+      assertEquals("value",
+          client.resolveAsync("secrethub://test/repo/secret").get(5L, TimeUnit.SECONDS));
+      assertTrue(client.existsAsync("test/repo/secret").get(5L, TimeUnit.SECONDS));
+
+      client.writeAsync("test/repo/secret", "updated").get(5L, TimeUnit.SECONDS);
+      assertEquals("updated", client.readString("test/repo/secret"));
+
+      client.removeAsync("test/repo/secret").get(5L, TimeUnit.SECONDS);
+      assertFalse(client.exists("test/repo/secret"));
+    }
+  }
+
+  @Test
+  @DisplayName("should coalesce concurrent asynchronous reads")
+  void shouldCoalesceConcurrentAsynchronousReads() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.setLatency(LatencyModel.fixed(Duration.ofMillis(200L)));
+    memory.put("test/repo/secret", "value");
+
+    try (Client client = memory.createClient()) {
+      List<CompletableFuture<String>> futures = new ArrayList<>();
+
+      for (int i = 0; i < 10; i++) {
+        futures.add(client.readStringAsync("test/repo/secret"));
+      }
+
+      for (CompletableFuture<String> future : futures) {
+        assertEquals("value", future.get(5L, TimeUnit.SECONDS));
+      }
+
+      assertEquals(1L, memory.getCallCount(InMemorySecretHubLibrary.Operation.READ_STRING));
+    }
+  }
+
+  @Test
+  @DisplayName("should coalesce concurrent synchronous reads when enabled")
+  void shouldCoalesceConcurrentSynchronousReadsWhenEnabled() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.setLatency(LatencyModel.fixed(Duration.ofMillis(200L)));
+    memory.put("test/repo/secret", "value");
+    ClientOptions options = ClientOptions.builder().coalesceSyncCalls(true).build();
+
+    ExecutorService threads = Executors.newFixedThreadPool(4);
+
+    try (Client client = memory.createClient(options)) {
+      List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+      for (int i = 0; i < 4; i++) {
+        futures.add(CompletableFuture.supplyAsync(() -> {
+          try {
+            return client.exists("test/repo/secret");
+          } catch (SecretHubException e) {
+            throw new IllegalStateException(e);
+          }
+        }, threads));
+      }
+
+      for (CompletableFuture<Boolean> future : futures) {
+        assertTrue(future.get(5L, TimeUnit.SECONDS));
+      }
+
+      assertEquals(1L, memory.getCallCount(InMemorySecretHubLibrary.Operation.EXISTS));
+    } finally {
+      threads.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("should fail asynchronous read with exception")
+  void shouldFailAsynchronousReadWithException() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+
+    try (Client client = memory.createClient()) {
+      ExecutionException thrown = assertThrows(ExecutionException.class,
+          () -> client.readStringAsync("test/repo/missing").get(5L, TimeUnit.SECONDS));
+      assertThat(thrown.getCause(), instanceOf(SecretHubException.class));
+      assertEquals(InMemorySecretHubLibrary.SECRET_NOT_FOUND, thrown.getCause().getMessage());
+    }
+  }
+
+  @Test
+  @DisplayName("should throw not found exception for missing secret")
+  void shouldThrowNotFoundExceptionForMissingSecret() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/secret", "value");
+
+    try (Client client = memory.createClient()) {
+      assertThrows(SecretNotFoundException.class, () -> client.read("test/repo/missing"));
+      assertThrows(SecretNotFoundException.class, () -> client.readString("test/repo/secret:2"));
+
+      memory.setErrorRate(1.0);
+      SecretHubException thrown = assertThrows(SecretHubException.class,
+          () -> client.readString("test/repo/secret"));
+      assertFalse(thrown instanceof SecretNotFoundException);
+    }
+  }
+
+  @Test
+  @DisplayName("should cache missing paths until written")
+  void shouldCacheMissingPathsUntilWritten() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    ClientOptions options = ClientOptions.builder()
+        .negativeCacheTtl(Duration.ofMinutes(1L))
+        .build();
+
+    try (Client client = memory.createClient(options)) {
+      assertFalse(client.exists("test/repo/flag"));
+      assertFalse(client.exists("test/repo/flag"));
+      assertThrows(SecretNotFoundException.class, () -> client.readString("test/repo/missing"));
+      SecretNotFoundException thrown = assertThrows(SecretNotFoundException.class,
+          () -> client.readString("test/repo/missing"));
+      assertEquals(InMemorySecretHubLibrary.SECRET_NOT_FOUND, thrown.getMessage());
+
+      assertEquals(1L, memory.getCallCount(InMemorySecretHubLibrary.Operation.EXISTS));
+      assertEquals(1L, memory.getCallCount(InMemorySecretHubLibrary.Operation.READ_STRING));
+
+      client.write("test/repo/flag", "on");
+      assertTrue(client.exists("test/repo/flag"));
+      assertEquals(2L, memory.getCallCount(InMemorySecretHubLibrary.Operation.EXISTS));
+    }
+  }
+
+  @Test
+  @DisplayName("should free native strings")
+  void shouldFreeNativeStrings() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/secret", "value");
+
+    try (Client client = memory.createClient()) {
+      NativeMemoryStats before = Client.getNativeMemoryStats();
+      client.readString("test/repo/secret");
+      client.resolve("secrethub://test/repo/secret");
+      assertThrows(SecretNotFoundException.class, () -> client.readString("test/repo/missing"));
+      NativeMemoryStats after = Client.getNativeMemoryStats();
+
+      assertEquals(3L, after.getReleasedCount() - before.getReleasedCount());
+      assertEquals(2L * "value".length() + InMemorySecretHubLibrary.SECRET_NOT_FOUND.length() + 3L,
+          after.getReleasedBytes() - before.getReleasedBytes());
+    }
+  }
+
+  @Test
+  @DisplayName("should free native strings of secret version")
+  void shouldFreeNativeStringsOfSecretVersion() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/secret", "value");
+
+    try (Client client = memory.createClient()) {
+      NativeMemoryStats before = Client.getNativeMemoryStats();
+      client.read("test/repo/secret");
+      NativeMemoryStats after = Client.getNativeMemoryStats();
+
+      assertEquals(9L, after.getReleasedCount() - before.getReleasedCount());
+    }
+
+    try (Client client = memory.createClient(
+        ClientOptions.builder().lazyConversion(true).build())) {
+      NativeMemoryStats before = Client.getNativeMemoryStats();
+      client.read("test/repo/secret");
+      NativeMemoryStats after = Client.getNativeMemoryStats();
+
+      assertEquals(9L, after.getReleasedCount() - before.getReleasedCount());
+    }
+  }
+
+  @Test
+  @DisplayName("should have no outstanding native memory after reading secrets")
+  void shouldHaveNoOutstandingNativeMemoryAfterReadingSecrets() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/secret", "value");
+
+    try (Client client = memory.createClient()) {
+      NativeMemoryStats before = Client.getNativeMemoryStats();
+
+      for (int i = 0; i < 100; i++) {
+        client.read("test/repo/secret");
+        client.readString("test/repo/secret");
+        assertThrows(SecretNotFoundException.class, () -> client.read("test/repo/missing"));
+      }
+
+      NativeMemoryStats after = Client.getNativeMemoryStats();
+
+      assertEquals(0L, after.getOutstandingBytes());
+      assertEquals(0L, after.getOutstandingCount());
+      assertEquals(1100L, after.getReleasedCount() - before.getReleasedCount());
+    }
+  }
+
   @Test
   @DisplayName("should return UUID")
   void shouldReturnUUID() {
@@ -332,24 +1133,72 @@ class ClientTests {
     assertEquals(expected, actual);
   }
 
+  private SecretHubLibrary.SecretVersion.ByValue createVersion() {
+    SecretHubLibrary.SecretVersion.ByValue version = new SecretHubLibrary.SecretVersion.ByValue();
+    version.SecretVersionID = createNativeString("0dd95e7b-a5c3-4982-b80c-6bd9e4e33c56");
+    version.Version = 1;
+    version.CreatedAt = 1612384987L;
+    version.Status = createNativeString("ok");
+    version.Data = createNativeString("SUCCESS");
+    version.Secret = new SecretHubLibrary.Secret();
+    version.Secret.SecretID = createNativeString("89e453e1-4962-48cf-afc0-4f169c49da6b");
+    version.Secret.DirID = createNativeString("1bb04779-89c7-4bf9-b7e9-7bdbec29841d");
+    version.Secret.RepoID = createNativeString("11843657-61ed-49e1-996e-b124bc4ec28e");
+    version.Secret.Name = createNativeString("test");
+    version.Secret.BlindName = createNativeString("xwzC2LKr6lwNHW2odRkCcgKuevUC_VW8NeNizsSEG6g=");
+    version.Secret.VersionCount = 1;
+    version.Secret.LatestVersion = 1;
+    version.Secret.Status = createNativeString("ok");
+    version.Secret.CreatedAt = 1612384987L;
+    return version;
+  }
+
+  private SecretVersion createExpectedVersion() {
+    SecretVersion expected = new SecretVersion();
+    expected.setSecretVersionId(Client.getUUID("0dd95e7b-a5c3-4982-b80c-6bd9e4e33c56"));
+    expected.setVersion(1);
+    expected.setCreatedAt(Client.getDateTime(1612384987L));
+    expected.setStatus("ok");
+    expected.setData("SUCCESS");
+    expected.setSecret(new Secret());
+    expected.getSecret().setSecretId(Client.getUUID("89e453e1-4962-48cf-afc0-4f169c49da6b"));
+    expected.getSecret().setDirectoryId(Client.getUUID("1bb04779-89c7-4bf9-b7e9-7bdbec29841d"));
+    expected.getSecret().setRepositoryId(Client.getUUID("11843657-61ed-49e1-996e-b124bc4ec28e"));
+    expected.getSecret().setName("test");
+    expected.getSecret().setBlindName("xwzC2LKr6lwNHW2odRkCcgKuevUC_VW8NeNizsSEG6g=");
+    expected.getSecret().setVersionCount(1);
+    expected.getSecret().setLatestVersion(1);
+    expected.getSecret().setStatus("ok");
+    expected.getSecret().setCreatedAt(Client.getDateTime(1612384987L));
+    return expected;
+  }
+
   private Client createClient() throws SecretHubException {
+    return createClient(ClientOptions.defaults());
+  }
+
+  private Client createClient(ClientOptions options) throws SecretHubException {
     SecretHubLibrary.Client struct = new SecretHubLibrary.Client();
     struct.ID = 1L;
     when(library.new_Client(any(PointerByReference.class))).thenReturn(struct);
-    Client client = new Client(library);
+    Client client = new Client(library, options);
     verify(library).new_Client(any(PointerByReference.class));
     return client;
   }
 
-  private Memory createErrorMessage(String message) {
-    byte[] data = message.getBytes(StandardCharsets.US_ASCII);
-    Memory memory = new Memory(data.length + 1);
-    memory.write(0L, data, 0, data.length);
-    memory.setByte(data.length, (byte) 0);
-    return memory;
+  private ClientOptions cachingOptions() {
+    return ClientOptions.builder().cacheTtl(Duration.ofMinutes(5L)).build();
+  }
+
+  private Pointer createNativeString(String value) {
+    byte[] data = value.getBytes(StandardCharsets.UTF_8);
+    Pointer pointer = new Pointer(Native.malloc(data.length + 1L));
+    pointer.write(0L, data, 0, data.length);
+    pointer.setByte(data.length, (byte) 0);
+    return pointer;
   }
 
-  private void setErrorMessage(PointerByReference pointer, Memory message) {
-    pointer.getPointer().setLong(0L, Pointer.nativeValue(message));
+  private void setErrorMessage(PointerByReference pointer, Pointer message) {
+    pointer.setValue(message);
   }
 }
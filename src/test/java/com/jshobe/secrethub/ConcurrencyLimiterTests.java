@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Concurrency Limiter")
+class ConcurrencyLimiterTests {
+
+  @Test
+  @DisplayName("should reject calls beyond limit")
+  void shouldRejectCallsBeyondLimit() throws Exception {
+    ConcurrencyLimiter limiter = createLimiter(1, 1, Duration.ZERO);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> call(limiter, () -> {
+      started.countDown();
+      await(release);
+      return "first";
+    }));
+    assertTrue(started.await(5L, TimeUnit.SECONDS));
+
+    assertThrows(ConcurrencyLimitExceededException.class, () -> limiter.call(() -> "second"));
+    assertEquals(new ConcurrencyStats(1, 1, 0, 1L), limiter.getStats());
+
+    release.countDown();
+    assertEquals("first", first.get(5L, TimeUnit.SECONDS));
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  @DisplayName("should queue calls until below limit")
+  void shouldQueueCallsUntilBelowLimit() throws Exception {
+    ConcurrencyLimiter limiter = createLimiter(1, 1, Duration.ofSeconds(5L));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> call(limiter, () -> {
+      started.countDown();
+      await(release);
+      return "first";
+    }));
+    assertTrue(started.await(5L, TimeUnit.SECONDS));
+    CompletableFuture<String> second =
+        CompletableFuture.supplyAsync(() -> call(limiter, () -> "second"));
+
+    while (limiter.getQueueDepth() == 0) {
+      Thread.sleep(1L);
+    }
+
+    release.countDown();
+    assertEquals("first", first.get(5L, TimeUnit.SECONDS));
+    assertEquals("second", second.get(5L, TimeUnit.SECONDS));
+    assertEquals(0L, limiter.getRejectedCount());
+  }
+
+  @Test
+  @DisplayName("should raise limit while latency is stable")
+  void shouldRaiseLimitWhileLatencyIsStable() throws Exception {
+    ConcurrencyLimiter limiter = createLimiter(1, 10, Duration.ZERO);
+
+    for (int i = 0; i < 3; i++) {
+      limiter.call(() -> sleep(5L));
+    }
+
+    assertEquals(3, limiter.getLimit());
+  }
+
+  @Test
+  @DisplayName("should lower limit when latency rises")
+  void shouldLowerLimitWhenLatencyRises() throws Exception {
+    ConcurrencyLimiter limiter = createLimiter(10, 10, Duration.ZERO);
+    limiter.call(() -> sleep(5L));
+
+    limiter.call(() -> sleep(50L));
+
+    assertEquals(9, limiter.getLimit());
+  }
+
+  @Test
+  @DisplayName("should lower limit after transient errors")
+  void shouldLowerLimitAfterTransientErrors() {
+    ConcurrencyLimiter limiter = createLimiter(10, 10, Duration.ZERO);
+
+    assertThrows(SecretHubException.class, () -> limiter.call(() -> {
+      throw new SecretHubException(InMemorySecretHubLibrary.SERVICE_UNAVAILABLE);
+    }));
+
+    assertEquals(9, limiter.getLimit());
+  }
+
+  private ConcurrencyLimiter createLimiter(int limit, int maxLimit, Duration queueTimeout) {
+    return new ConcurrencyLimiter(ClientOptions.builder()
+        .concurrencyLimit(limit)
+        .concurrencyMaxLimit(maxLimit)
+        .concurrencyQueueTimeout(queueTimeout)
+        .build());
+  }
+
+  private String call(ConcurrencyLimiter limiter, NativeCall<String> call) {
+    try {
+      return limiter.call(call);
+    } catch (SecretHubException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void await(CountDownLatch latch) throws SecretHubException {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new SecretHubException("Interrupted", e);
+    }
+  }
+
+  private String sleep(long millis) throws SecretHubException {
+    try {
+      Thread.sleep(millis);
+      return "value";
+    } catch (InterruptedException e) {
+      throw new SecretHubException("Interrupted", e);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Environment Cache")
+class EnvironmentCacheTests {
+
+  private static final Map<String, String> ENVIRONMENT =
+      Collections.singletonMap("TEST_KEY", "SUCCESS");
+
+  @Test
+  @DisplayName("should return cached environment")
+  void shouldReturnCachedEnvironment() {
+    EnvironmentCache cache = createCache(Duration.ofMinutes(1L));
+    assertNull(cache.get());
+
+    cache.put(ENVIRONMENT, cache.mark());
+
+    assertEquals(ENVIRONMENT, cache.get());
+    assertEquals(ENVIRONMENT, cache.get());
+  }
+
+  @Test
+  @DisplayName("should forget expired environment")
+  void shouldForgetExpiredEnvironment() throws Exception {
+    EnvironmentCache cache = createCache(Duration.ofNanos(1L));
+    cache.put(ENVIRONMENT, cache.mark());
+    Thread.sleep(1L);
+
+    assertNull(cache.get());
+  }
+
+  @Test
+  @DisplayName("should forget invalidated environment")
+  void shouldForgetInvalidatedEnvironment() {
+    EnvironmentCache cache = createCache(Duration.ofMinutes(1L));
+    cache.put(ENVIRONMENT, cache.mark());
+
+    cache.invalidate();
+
+    assertNull(cache.get());
+  }
+
+  @Test
+  @DisplayName("should not cache environment resolved before invalidation")
+  void shouldNotCacheEnvironmentResolvedBeforeInvalidation() {
+    EnvironmentCache cache = createCache(Duration.ofMinutes(1L));
+    long mark = cache.mark();
+    cache.invalidate();
+    cache.put(ENVIRONMENT, mark);
+
+    assertNull(cache.get());
+  }
+
+  private EnvironmentCache createCache(Duration ttl) {
+    return new EnvironmentCache(ClientOptions.builder().environmentCacheTtl(ttl).build());
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.jshobe.secrethub.InMemorySecretHubLibrary.Operation;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Handle Pool")
+class HandlePoolTests {
+
+  private final InMemorySecretHubLibrary library = new InMemorySecretHubLibrary();
+
+  @Test
+  @DisplayName("should create minimum number of handles")
+  void shouldCreateMinimumNumberOfHandles() throws Exception {
+    try (HandlePool pool = createPool(3, 5, HandleSelection.LEAST_LOADED)) {
+      PoolStats stats = pool.getStats();
+      assertEquals(3, stats.getSize());
+      assertEquals(5, stats.getMaxSize());
+      assertEquals(3L, stats.getCreatedCount());
+      assertEquals(3L, library.getCallCount(Operation.NEW_CLIENT));
+    }
+  }
+
+  @Test
+  @DisplayName("should add handle when selected handle is busy")
+  void shouldAddHandleWhenSelectedHandleIsBusy() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    try (HandlePool pool = createPool(1, 2, HandleSelection.LEAST_LOADED)) {
+      CompletableFuture<SecretHubLibrary.Client> busy = CompletableFuture.supplyAsync(() -> {
+        try {
+          return pool.call(client -> {
+            started.countDown();
+            await(release);
+            return client;
+          });
+        } catch (SecretHubException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      assertTrue(started.await(5L, TimeUnit.SECONDS));
+
+      SecretHubLibrary.Client other = pool.call(client -> client);
+      PoolStats stats = pool.getStats();
+      release.countDown();
+
+      assertNotSame(busy.get(5L, TimeUnit.SECONDS), other);
+      assertEquals(2, stats.getSize());
+      assertEquals(1, stats.getBusyCount());
+      assertEquals(0.5, stats.getUtilization());
+      assertEquals(2, pool.getStats().getPeakInFlightCount());
+    }
+  }
+
+  @Test
+  @DisplayName("should share handle when pool is full")
+  void shouldShareHandleWhenPoolIsFull() throws Exception {
+    try (HandlePool pool = createPool(1, 1, HandleSelection.LEAST_LOADED)) {
+      SecretHubLibrary.Client nested = pool.call(outer -> pool.call(inner -> {
+        assertEquals(2, pool.getStats().getInFlightCount());
+        return inner;
+      }));
+
+      assertEquals(1, pool.getStats().getSize());
+      assertSame(nested, pool.call(client -> client));
+      assertEquals(3L, pool.getStats().getCallCount());
+    }
+  }
+
+  @Test
+  @DisplayName("should use same handle for thread")
+  void shouldUseSameHandleForThread() throws Exception {
+    try (HandlePool pool = createPool(4, 4, HandleSelection.THREAD_AFFINITY)) {
+      SecretHubLibrary.Client first = pool.call(client -> client);
+
+      for (int i = 0; i < 10; i++) {
+        assertSame(first, pool.call(client -> client));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("should delete idle handles above minimum size")
+  void shouldDeleteIdleHandlesAboveMinimumSize() throws Exception {
+    ClientOptions options = ClientOptions.builder()
+        .handlePoolMinSize(1)
+        .handlePoolMaxSize(2)
+        .handlePoolIdleTimeout(Duration.ofNanos(1L))
+        .build();
+
+    try (HandlePool pool = new HandlePool(library, options)) {
+      pool.call(outer -> pool.call(inner -> inner));
+      Thread.sleep(1L);
+      pool.call(client -> client);
+
+      PoolStats stats = pool.getStats();
+      assertEquals(1, stats.getSize());
+      assertEquals(2L, stats.getCreatedCount());
+      assertEquals(1L, stats.getRetiredCount());
+      assertEquals(1L, library.getCallCount(Operation.DELETE_CLIENT));
+    }
+  }
+
+  @Test
+  @DisplayName("should delete handles when closed")
+  void shouldDeleteHandlesWhenClosed() throws Exception {
+    HandlePool pool = createPool(2, 2, HandleSelection.LEAST_LOADED);
+    pool.close();
+
+    assertTrue(pool.isClosed());
+    assertEquals(2L, library.getCallCount(Operation.DELETE_CLIENT));
+    assertEquals(2L, pool.getStats().getRetiredCount());
+    assertThrows(IllegalStateException.class, () -> pool.call(client -> client));
+  }
+
+  @Test
+  @DisplayName("should fail if handle cannot be created")
+  void shouldFailIfHandleCannotBeCreated() {
+    library.setErrorRate(Operation.NEW_CLIENT, 1.0);
+
+    SecretHubException thrown = assertThrows(SecretHubException.class,
+        () -> createPool(1, 1, HandleSelection.LEAST_LOADED));
+    assertEquals(InMemorySecretHubLibrary.SERVICE_UNAVAILABLE, thrown.getMessage());
+  }
+
+  @Test
+  @DisplayName("should delete busy handle when its last call completes")
+  void shouldDeleteBusyHandleWhenItsLastCallCompletes() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    HandlePool pool = createPool(1, 1, HandleSelection.LEAST_LOADED);
+
+    CompletableFuture<Long> busy = CompletableFuture.supplyAsync(() -> {
+      try {
+        return pool.call(client -> {
+          started.countDown();
+          await(release);
+          return library.getCallCount(Operation.DELETE_CLIENT);
+        });
+      } catch (SecretHubException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertTrue(started.await(5L, TimeUnit.SECONDS));
+
+    pool.close();
+    assertThrows(IllegalStateException.class, () -> pool.call(client -> client));
+    release.countDown();
+
+    assertEquals(0L, busy.get(5L, TimeUnit.SECONDS));
+    assertEquals(1L, library.getCallCount(Operation.DELETE_CLIENT));
+  }
+
+  private HandlePool createPool(int minSize, int maxSize, HandleSelection selection)
+      throws SecretHubException {
+    return new HandlePool(library, ClientOptions.builder()
+        .handlePoolMinSize(minSize)
+        .handlePoolMaxSize(maxSize)
+        .handleSelection(selection)
+        .build());
+  }
+
+  private void await(CountDownLatch latch) {
+    try {
+      latch.await(5L, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
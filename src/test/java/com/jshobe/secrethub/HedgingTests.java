@@ -0,0 +1,135 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Hedging")
+class HedgingTests {
+
+  private NativeExecutor executor;
+  private Hedging created;
+
+  @AfterEach
+  void tearDown() {
+    if (created != null) {
+      created.close();
+    }
+
+    if (executor != null) {
+      executor.close();
+    }
+  }
+
+  @Test
+  @DisplayName("should not hedge until enough reads have completed")
+  void shouldNotHedgeUntilEnoughReadsHaveCompleted() throws Exception {
+    Hedging hedging = createHedging(0.1);
+    assertEquals(-1L, hedging.getDelay());
+
+    warmUp(hedging);
+
+    assertEquals(Duration.ofMillis(1L).toNanos(), hedging.getDelay());
+    assertEquals(0L, hedging.getHedgeCount());
+  }
+
+  @Test
+  @DisplayName("should return first response of hedged read")
+  void shouldReturnFirstResponseOfHedgedRead() throws Exception {
+    Hedging hedging = createHedging(0.1);
+    warmUp(hedging);
+    AtomicInteger calls = new AtomicInteger();
+
+    long start = System.nanoTime();
+    String result = hedging.call(() -> {
+      if (calls.incrementAndGet() == 1) {
+        sleep(2000L);
+        return "slow";
+      }
+
+      return "fast";
+    });
+
+    assertEquals("fast", result);
+    assertTrue(System.nanoTime() - start < Duration.ofMillis(1000L).toNanos());
+    assertEquals(1L, hedging.getHedgeCount());
+    assertEquals(1L, hedging.getHedgeWinCount());
+  }
+
+  @Test
+  @DisplayName("should report error when both requests fail")
+  void shouldReportErrorWhenBothRequestsFail() throws Exception {
+    Hedging hedging = createHedging(0.1);
+    warmUp(hedging);
+
+    assertThrows(SecretNotFoundException.class, () -> hedging.call(() -> {
+      sleep(20L);
+      throw new SecretNotFoundException("Secret not found (server.secret_not_found)");
+    }));
+    assertEquals(1L, hedging.getHedgeCount());
+    assertEquals(0L, hedging.getHedgeWinCount());
+  }
+
+  @Test
+  @DisplayName("should limit hedge rate")
+  void shouldLimitHedgeRate() throws Exception {
+    Hedging hedging = createHedging(0.0);
+    warmUp(hedging);
+
+    for (int i = 0; i < 3; i++) {
+      hedging.call(() -> {
+        sleep(20L);
+        return "slow";
+      });
+    }
+
+    assertEquals(1L, hedging.getHedgeCount());
+  }
+
+  private Hedging createHedging(double maxRate) {
+    ClientOptions options = ClientOptions.builder()
+        .hedgeReads(true)
+        .hedgeMinDelay(Duration.ofMillis(1L))
+        .hedgeMaxRate(maxRate)
+        .build();
+    executor = new NativeExecutor(options);
+    created = new Hedging(executor, options);
+    return created;
+  }
+
+  private void sleep(long millis) throws SecretHubException {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new SecretHubException("Interrupted", e);
+    }
+  }
+
+  private void warmUp(Hedging hedging) throws Exception {
+    for (int i = 0; i < 64; i++) {
+      hedging.call(() -> "value");
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.jshobe.secrethub.InMemorySecretHubLibrary.Operation;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("In-Memory SecretHub Library")
+class InMemorySecretHubLibraryTests {
+
+  private InMemorySecretHubLibrary library;
+  private Client client;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    library = new InMemorySecretHubLibrary();
+    client = library.createClient();
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.close();
+  }
+
+  @Test
+  @DisplayName("should read latest version")
+  void shouldReadLatestVersion() throws Exception {
+    library.put("test/repo/secret", "first");
+    client.write("test/repo/secret", "second");
+
+    SecretVersion actual = client.read("test/repo/secret");
+    assertEquals("second", actual.getData());
+    assertEquals(2, actual.getVersion());
+    assertEquals(2, actual.getSecret().getVersionCount());
+    assertEquals(2, actual.getSecret().getLatestVersion());
+    assertEquals("secret", actual.getSecret().getName());
+  }
+
+  @Test
+  @DisplayName("should read specific version")
+  void shouldReadSpecificVersion() throws Exception {
+    library.put("test/repo/secret", "first");
+    library.put("test/repo/secret", "second");
+
+    SecretVersion actual = client.read("test/repo/secret:1");
+    assertEquals("first", actual.getData());
+    assertEquals(1, actual.getVersion());
+    assertEquals(2, actual.getSecret().getLatestVersion());
+    assertEquals("second", client.readString("test/repo/secret:latest"));
+  }
+
+  @Test
+  @DisplayName("should throw exception for missing version")
+  void shouldThrowExceptionForMissingVersion() {
+    library.put("test/repo/secret", "first");
+
+    SecretHubException thrown = assertThrows(SecretHubException.class,
+        () -> client.read("test/repo/secret:2"));
+    assertEquals(InMemorySecretHubLibrary.VERSION_NOT_FOUND, thrown.getMessage());
+  }
+
+  @Test
+  @DisplayName("should throw exception for missing secret")
+  void shouldThrowExceptionForMissingSecret() {
+    SecretHubException thrown = assertThrows(SecretHubException.class,
+        () -> client.readString("test/repo/missing"));
+    assertEquals(InMemorySecretHubLibrary.SECRET_NOT_FOUND, thrown.getMessage());
+  }
+
+  @Test
+  @DisplayName("should resolve reference")
+  void shouldResolveReference() throws Exception {
+    library.put("test/repo/secret", "value");
+
+    assertEquals("value", client.resolve("secrethub://test/repo/secret"));
+    assertEquals("plain", client.resolve("plain"));
+  }
+
+  @Test
+  @DisplayName("should check existence and remove")
+  void shouldCheckExistenceAndRemove() throws Exception {
+    library.put("test/repo/secret", "value");
+
+    assertTrue(client.exists("test/repo/secret"));
+    client.remove("test/repo/secret");
+    assertFalse(client.exists("test/repo/secret"));
+  }
+
+  @Test
+  @DisplayName("should count calls")
+  void shouldCountCalls() throws Exception {
+    library.put("test/repo/secret", "value");
+    client.readString("test/repo/secret");
+    client.readString("test/repo/secret");
+    client.exists("test/repo/secret");
+
+    assertEquals(1L, library.getCallCount(Operation.NEW_CLIENT));
+    assertEquals(2L, library.getCallCount(Operation.READ_STRING));
+    assertEquals(1L, library.getCallCount(Operation.EXISTS));
+    assertEquals(4L, library.getTotalCallCount());
+
+    library.resetCallCounts();
+    assertEquals(0L, library.getTotalCallCount());
+  }
+
+  @Test
+  @DisplayName("should inject errors")
+  void shouldInjectErrors() {
+    library.put("test/repo/secret", "value");
+    library.setErrorRate(Operation.READ_STRING, 1.0);
+    library.setErrorMessage("injected");
+
+    SecretHubException thrown = assertThrows(SecretHubException.class,
+        () -> client.readString("test/repo/secret"));
+    assertEquals("injected", thrown.getMessage());
+  }
+
+  @Test
+  @DisplayName("should add latency")
+  void shouldAddLatency() throws Exception {
+    library.put("test/repo/secret", "value");
+    library.setLatency(Operation.READ_STRING, LatencyModel.fixed(Duration.ofMillis(20L)));
+
+    long start = System.nanoTime();
+    client.readString("test/repo/secret");
+    long elapsed = System.nanoTime() - start;
+
+    assertThat(elapsed, greaterThanOrEqualTo(Duration.ofMillis(20L).toNanos()));
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Latency Histogram")
+class LatencyHistogramTests {
+
+  @Test
+  @DisplayName("should place values in buckets that hold them")
+  void shouldPlaceValuesInBucketsThatHoldThem() {
+    long[] values = {0L, 1L, 15L, 16L, 17L, 31L, 32L, 33L, 1_000L, 123_456_789L,
+        Long.MAX_VALUE};
+
+    for (long value : values) {
+      int index = LatencyHistogram.index(value);
+      long highest = LatencyHistogram.highestValue(index);
+      assertThat(highest, greaterThanOrEqualTo(value));
+      assertThat(highest - value, lessThanOrEqualTo(value / 16L));
+    }
+  }
+
+  @Test
+  @DisplayName("should report quantiles")
+  void shouldReportQuantiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    for (long i = 1L; i <= 1000L; i++) {
+      histogram.record(i * 1_000L);
+    }
+
+    assertEquals(1000L, histogram.getCount());
+    assertEquals(500_500L, histogram.getMean());
+    assertEquals(1_000_000L, histogram.getMax());
+    assertThat(histogram.getValueAtQuantile(0.5),
+        allOf(greaterThanOrEqualTo(500_000L), lessThanOrEqualTo(500_000L * 17L / 16L)));
+    assertThat(histogram.getValueAtQuantile(0.99),
+        allOf(greaterThanOrEqualTo(990_000L), lessThanOrEqualTo(1_000_000L)));
+    assertEquals(1_000_000L, histogram.getValueAtQuantile(1.0));
+  }
+
+  @Test
+  @DisplayName("should report zero when empty")
+  void shouldReportZeroWhenEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertEquals(0L, histogram.getMean());
+    assertEquals(0L, histogram.getValueAtQuantile(0.99));
+  }
+}
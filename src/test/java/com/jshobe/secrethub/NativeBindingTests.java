@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Native Binding")
+class NativeBindingTests {
+
+  @AfterEach
+  void tearDown() {
+    System.clearProperty(NativeBinding.PROPERTY);
+  }
+
+  @Test
+  @DisplayName("should default to direct binding")
+  void shouldDefaultToDirectBinding() {
+    assertEquals(NativeBinding.DIRECT, NativeBinding.getDefault());
+  }
+
+  @Test
+  @DisplayName("should read default binding from system property")
+  void shouldReadDefaultBindingFromSystemProperty() {
+    System.setProperty(NativeBinding.PROPERTY, "proxy");
+    assertEquals(NativeBinding.PROXY, NativeBinding.getDefault());
+  }
+
+  @Test
+  @DisplayName("should throw exception for invalid binding")
+  void shouldThrowExceptionForInvalidBinding() {
+    System.setProperty(NativeBinding.PROPERTY, "invalid");
+    assertThrows(IllegalArgumentException.class, NativeBinding::getDefault);
+  }
+
+  @Test
+  @DisplayName("should return direct library")
+  void shouldReturnDirectLibrary() {
+    assertThat(NativeBinding.DIRECT.getLibrary(), instanceOf(DirectSecretHubLibrary.class));
+  }
+
+  @Test
+  @DisplayName("should return proxy library")
+  void shouldReturnProxyLibrary() {
+    assertSame(SecretHubLibrary.INSTANCE, NativeBinding.PROXY.getLibrary());
+  }
+}
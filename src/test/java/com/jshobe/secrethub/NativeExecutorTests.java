@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Native Executor")
+class NativeExecutorTests {
+
+  @Test
+  @DisplayName("should complete future with result")
+  void shouldCompleteFutureWithResult() throws Exception {
+    try (NativeExecutor executor = new NativeExecutor(ClientOptions.defaults())) {
+      assertEquals("SUCCESS", executor.submit(() -> "SUCCESS").get(5L, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  @DisplayName("should complete future with exception")
+  void shouldCompleteFutureWithException() {
+    try (NativeExecutor executor = new NativeExecutor(ClientOptions.defaults())) {
+      CompletableFuture<String> future = executor.submit(() -> {
+        throw new SecretHubException("test error");
+      });
+      ExecutionException thrown = assertThrows(ExecutionException.class,
+          () -> future.get(5L, TimeUnit.SECONDS));
+      assertThat(thrown.getCause(), instanceOf(SecretHubException.class));
+    }
+  }
+
+  @Test
+  @DisplayName("should reject calls when saturated")
+  void shouldRejectCallsWhenSaturated() throws Exception {
+    ClientOptions options = ClientOptions.builder()
+        .workerThreads(1)
+        .workerQueueCapacity(1)
+        .build();
+    CountDownLatch release = new CountDownLatch(1);
+
+    try (NativeExecutor executor = new NativeExecutor(options)) {
+      CompletableFuture<Boolean> running = executor.submit(() -> await(release));
+      CompletableFuture<Boolean> queued = executor.submit(() -> true);
+      CompletableFuture<Boolean> rejected = executor.submit(() -> true);
+
+      assertTrue(rejected.isCompletedExceptionally());
+      ExecutionException thrown = assertThrows(ExecutionException.class, rejected::get);
+      assertThat(thrown.getCause(), instanceOf(RejectedExecutionException.class));
+
+      release.countDown();
+      assertTrue(running.get(5L, TimeUnit.SECONDS));
+      assertTrue(queued.get(5L, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  @DisplayName("should fail queued calls when closed")
+  void shouldFailQueuedCallsWhenClosed() throws Exception {
+    ClientOptions options = ClientOptions.builder().workerThreads(1).build();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    NativeExecutor executor = new NativeExecutor(options);
+
+    executor.submit(() -> {
+      started.countDown();
+      return await(release);
+    });
+    CompletableFuture<Boolean> queued = executor.submit(() -> true);
+    assertTrue(started.await(5L, TimeUnit.SECONDS));
+    assertFalse(queued.isDone());
+
+    executor.close();
+    release.countDown();
+
+    ExecutionException thrown = assertThrows(ExecutionException.class,
+        () -> queued.get(5L, TimeUnit.SECONDS));
+    assertThat(thrown.getCause(), instanceOf(IllegalStateException.class));
+  }
+
+  @Test
+  @DisplayName("should call on current platform thread")
+  void shouldCallOnCurrentPlatformThread() throws Exception {
+    try (NativeExecutor executor = new NativeExecutor(ClientOptions.defaults())) {
+      assertSame(Thread.currentThread(), executor.call(Thread::currentThread));
+    }
+  }
+
+  @Test
+  @DisplayName("should call on worker thread from virtual thread")
+  void shouldCallOnWorkerThreadFromVirtualThread() throws Exception {
+    assumeTrue(VirtualThreads.isSupported());
+
+    try (NativeExecutor executor = new NativeExecutor(ClientOptions.defaults())) {
+      assertFalse(onVirtualThread(() -> executor.call(VirtualThreads::isCurrentThreadVirtual)));
+    }
+  }
+
+  @Test
+  @DisplayName("should call on virtual thread when offloading is disabled")
+  void shouldCallOnVirtualThreadWhenOffloadingIsDisabled() throws Exception {
+    assumeTrue(VirtualThreads.isSupported());
+    ClientOptions options = ClientOptions.builder().offloadVirtualThreads(false).build();
+
+    try (NativeExecutor executor = new NativeExecutor(options)) {
+      assertTrue(onVirtualThread(() -> executor.call(VirtualThreads::isCurrentThreadVirtual)));
+    }
+  }
+
+  private <T> T onVirtualThread(Callable<T> callable) throws Exception {
+    ExecutorService virtualThreads = (ExecutorService) Executors.class
+        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+
+    try {
+      return virtualThreads.submit(callable).get(5L, TimeUnit.SECONDS);
+    } finally {
+      virtualThreads.shutdown();
+    }
+  }
+
+  private boolean await(CountDownLatch latch) {
+    try {
+      return latch.await(5L, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      return false;
+    }
+  }
+}
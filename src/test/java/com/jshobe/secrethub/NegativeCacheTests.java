@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Negative Cache")
+class NegativeCacheTests {
+
+  @Test
+  @DisplayName("should remember missing path")
+  void shouldRememberMissingPath() {
+    NegativeCache cache = createCache(Duration.ofMinutes(1L), 10);
+    cache.put("test/path", "not found", cache.mark());
+
+    assertTrue(cache.isAbsent("test/path"));
+    assertEquals("not found", cache.getMessage("test/path"));
+    assertFalse(cache.isAbsent("test/other"));
+  }
+
+  @Test
+  @DisplayName("should not return message for existence miss")
+  void shouldNotReturnMessageForExistenceMiss() {
+    NegativeCache cache = createCache(Duration.ofMinutes(1L), 10);
+    cache.put("test/path", null, cache.mark());
+
+    assertTrue(cache.isAbsent("test/path"));
+    assertNull(cache.getMessage("test/path"));
+  }
+
+  @Test
+  @DisplayName("should forget expired miss")
+  void shouldForgetExpiredMiss() throws Exception {
+    NegativeCache cache = createCache(Duration.ofNanos(1L), 10);
+    cache.put("test/path", "not found", cache.mark());
+    Thread.sleep(1L);
+
+    assertFalse(cache.isAbsent("test/path"));
+    assertNull(cache.getMessage("test/path"));
+  }
+
+  @Test
+  @DisplayName("should invalidate path and versions")
+  void shouldInvalidatePathAndVersions() {
+    NegativeCache cache = createCache(Duration.ofMinutes(1L), 10);
+    cache.put("test/path", "not found", cache.mark());
+    cache.put("test/path:2", "not found", cache.mark());
+    cache.put("test/path2", "not found", cache.mark());
+
+    cache.invalidate("test/path");
+
+    assertFalse(cache.isAbsent("test/path"));
+    assertFalse(cache.isAbsent("test/path:2"));
+    assertTrue(cache.isAbsent("test/path2"));
+  }
+
+  @Test
+  @DisplayName("should not remember miss observed before invalidation")
+  void shouldNotRememberMissObservedBeforeInvalidation() {
+    NegativeCache cache = createCache(Duration.ofMinutes(1L), 10);
+    long mark = cache.mark();
+    cache.invalidate("test/other");
+    cache.put("test/path", "not found", mark);
+
+    assertFalse(cache.isAbsent("test/path"));
+  }
+
+  @Test
+  @DisplayName("should not exceed maximum size")
+  void shouldNotExceedMaximumSize() {
+    NegativeCache cache = createCache(Duration.ofMinutes(1L), 2);
+    cache.put("test/first", "not found", cache.mark());
+    cache.put("test/second", "not found", cache.mark());
+    cache.put("test/third", "not found", cache.mark());
+
+    assertTrue(cache.isAbsent("test/first"));
+    assertTrue(cache.isAbsent("test/second"));
+    assertFalse(cache.isAbsent("test/third"));
+  }
+
+  @Test
+  @DisplayName("should detect not found error codes")
+  void shouldDetectNotFoundErrorCodes() {
+    assertTrue(SecretNotFoundException.isNotFound(InMemorySecretHubLibrary.SECRET_NOT_FOUND));
+    assertTrue(SecretNotFoundException.isNotFound(InMemorySecretHubLibrary.VERSION_NOT_FOUND));
+    assertFalse(SecretNotFoundException.isNotFound(InMemorySecretHubLibrary.SERVICE_UNAVAILABLE));
+    assertFalse(SecretNotFoundException.isNotFound("not_found"));
+  }
+
+  private NegativeCache createCache(Duration ttl, int maxSize) {
+    return new NegativeCache(ClientOptions.builder()
+        .negativeCacheTtl(ttl)
+        .negativeCacheMaxSize(maxSize)
+        .build());
+  }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.jshobe.secrethub.SecretCache.Key;
+import com.jshobe.secrethub.SecretCache.Kind;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Secret Cache")
+class SecretCacheTests {
+
+  @Test
+  @DisplayName("should return cached value")
+  void shouldReturnCachedValue() throws Exception {
+    SecretCache cache = createCache(Duration.ofMinutes(1L), 10);
+    AtomicInteger loads = new AtomicInteger();
+    Key key = new Key(Kind.STRING, "test/path");
+
+    assertEquals("1", cache.get(key, () -> String.valueOf(loads.incrementAndGet())));
+    assertEquals("1", cache.get(key, () -> String.valueOf(loads.incrementAndGet())));
+    assertEquals(1, loads.get());
+    assertEquals(new CacheStats(1L, 1L, 0L, 0L, 0L, 0L, 1), cache.getStats());
+  }
+
+  @Test
+  @DisplayName("should reload expired value")
+  void shouldReloadExpiredValue() throws Exception {
+    SecretCache cache = createCache(Duration.ofNanos(1L), 10);
+    AtomicInteger loads = new AtomicInteger();
+    Key key = new Key(Kind.STRING, "test/path");
+
+    assertEquals("1", cache.get(key, () -> String.valueOf(loads.incrementAndGet())));
+    Thread.sleep(1L);
+    assertEquals("2", cache.get(key, () -> String.valueOf(loads.incrementAndGet())));
+    assertEquals(new CacheStats(0L, 2L, 0L, 0L, 0L, 0L, 1), cache.getStats());
+  }
+
+  @Test
+  @DisplayName("should evict least recently used value")
+  void shouldEvictLeastRecentlyUsedValue() throws Exception {
+    SecretCache cache = createCache(Duration.ofMinutes(1L), 2);
+    Key first = new Key(Kind.STRING, "test/first");
+    Key second = new Key(Kind.STRING, "test/second");
+    Key third = new Key(Kind.STRING, "test/third");
+
+    cache.get(first, () -> "first");
+    cache.get(second, () -> "second");
+    cache.get(first, () -> "first");
+    cache.get(third, () -> "third");
+
+    assertEquals("first", cache.get(first, () -> "reloaded"));
+    assertEquals("reloaded", cache.get(second, () -> "reloaded"));
+    assertEquals(new CacheStats(2L, 4L, 2L, 0L, 0L, 0L, 2), cache.getStats());
+  }
+
+  @Test
+  @DisplayName("should invalidate path and versions")
+  void shouldInvalidatePathAndVersions() throws Exception {
+    SecretCache cache = createCache(Duration.ofMinutes(1L), 10);
+    cache.get(new Key(Kind.VERSION, "test/path"), () -> "version");
+    cache.get(new Key(Kind.STRING, "test/path"), () -> "string");
+    cache.get(new Key(Kind.STRING, "test/path:2"), () -> "string");
+    cache.get(new Key(Kind.STRING, "test/path2"), () -> "other");
+
+    cache.invalidate("test/path");
+
+    assertEquals(1, cache.getStats().getSize());
+    assertEquals("other", cache.get(new Key(Kind.STRING, "test/path2"), () -> "reloaded"));
+  }
+
+  @Test
+  @DisplayName("should not cache value loaded during invalidation")
+  void shouldNotCacheValueLoadedDuringInvalidation() throws Exception {
+    SecretCache cache = createCache(Duration.ofMinutes(1L), 10);
+    Key key = new Key(Kind.STRING, "test/path");
+
+    cache.get(key, () -> {
+      cache.invalidate("test/path");
+      return "stale";
+    });
+
+    assertEquals("fresh", cache.get(key, () -> "fresh"));
+  }
+
+  @Test
+  @DisplayName("should refresh accessed value before it expires")
+  void shouldRefreshAccessedValueBeforeItExpires() throws Exception {
+    ClientOptions options = ClientOptions.builder()
+        .cacheTtl(Duration.ofSeconds(5L))
+        .cacheRefreshAhead(Duration.ofMillis(4950L))
+        .cacheRefreshJitter(0.0)
+        .build();
+    AtomicInteger loads = new AtomicInteger();
+    Key key = new Key(Kind.STRING, "test/path");
+
+    try (SecretCache cache = new SecretCache(options)) {
+      assertEquals("1", cache.get(key, () -> String.valueOf(loads.incrementAndGet())));
+      assertEquals("1", cache.get(key, () -> String.valueOf(loads.incrementAndGet())));
+      awaitRefreshes(cache, 1L);
+
+      assertEquals("2", cache.get(key, () -> "unexpected"));
+      assertEquals(2, loads.get());
+      assertEquals(1L, cache.getStats().getMissCount());
+    }
+  }
+
+  @Test
+  @DisplayName("should not refresh value that was not accessed")
+  void shouldNotRefreshValueThatWasNotAccessed() throws Exception {
+    ClientOptions options = ClientOptions.builder()
+        .cacheTtl(Duration.ofMillis(200L))
+        .cacheRefreshAhead(Duration.ofMillis(150L))
+        .cacheRefreshJitter(0.0)
+        .build();
+    AtomicInteger loads = new AtomicInteger();
+    Key key = new Key(Kind.STRING, "test/path");
+
+    try (SecretCache cache = new SecretCache(options)) {
+      cache.get(key, () -> String.valueOf(loads.incrementAndGet()));
+      Thread.sleep(300L);
+
+      assertEquals(1, loads.get());
+      assertEquals(0L, cache.getStats().getRefreshCount());
+    }
+  }
+
+  @Test
+  @DisplayName("should count failed refresh")
+  void shouldCountFailedRefresh() throws Exception {
+    ClientOptions options = ClientOptions.builder()
+        .cacheTtl(Duration.ofSeconds(5L))
+        .cacheRefreshAhead(Duration.ofMillis(4950L))
+        .cacheRefreshJitter(0.0)
+        .build();
+    AtomicInteger loads = new AtomicInteger();
+    Key key = new Key(Kind.STRING, "test/path");
+
+    try (SecretCache cache = new SecretCache(options)) {
+      cache.get(key, () -> {
+        if (loads.incrementAndGet() > 1) {
+          throw new SecretHubException("refresh failed");
+        }
+
+        return "1";
+      });
+      cache.get(key, () -> "unexpected");
+
+      long deadline = System.currentTimeMillis() + 5000L;
+
+      while (cache.getStats().getRefreshFailureCount() == 0L
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10L);
+      }
+
+      assertEquals(1L, cache.getStats().getRefreshFailureCount());
+      assertEquals("1", cache.get(key, () -> "unexpected"));
+    }
+  }
+
+  @Test
+  @DisplayName("should serve stale value while reloading in background")
+  void shouldServeStaleValueWhileReloadingInBackground() throws Exception {
+    List<SecretHubException> errors = Collections.synchronizedList(new ArrayList<>());
+    SecretCache cache = new SecretCache(ClientOptions.builder()
+        .cacheTtl(Duration.ofNanos(1L))
+        .cacheStaleIfError(Duration.ofMinutes(1L))
+        .staleSecretListener((path, staleness, error) -> errors.add(error))
+        .build());
+    Key key = new Key(Kind.STRING, "test/path");
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    NativeCall<String> loader = () -> {
+      int load = loads.incrementAndGet();
+
+      if (load == 2) {
+        await(release);
+        throw new SecretHubException(InMemorySecretHubLibrary.SERVICE_UNAVAILABLE);
+      }
+
+      return String.valueOf(load);
+    };
+    cache.get(key, loader);
+    Thread.sleep(1L);
+
+    assertEquals("1", cache.get(key, loader));
+    assertEquals("1", cache.get(key, loader));
+    release.countDown();
+    awaitRefreshFailures(cache, 1L);
+
+    assertEquals("1", cache.get(key, loader));
+    awaitRefreshes(cache, 1L);
+    assertEquals(3, loads.get());
+    assertEquals(3, errors.size());
+    assertNull(errors.get(0));
+    assertEquals(InMemorySecretHubLibrary.SERVICE_UNAVAILABLE, errors.get(2).getMessage());
+    assertEquals(3L, cache.getStats().getStaleServeCount());
+    assertEquals(1L, cache.getStats().getMissCount());
+    cache.close();
+  }
+
+  @Test
+  @DisplayName("should remove stale value of missing secret")
+  void shouldRemoveStaleValueOfMissingSecret() throws Exception {
+    SecretCache cache = new SecretCache(ClientOptions.builder()
+        .cacheTtl(Duration.ofNanos(1L))
+        .cacheStaleIfError(Duration.ofMinutes(1L))
+        .build());
+    Key key = new Key(Kind.STRING, "test/path");
+    AtomicInteger loads = new AtomicInteger();
+    NativeCall<String> loader = () -> {
+      if (loads.incrementAndGet() > 1) {
+        throw new SecretNotFoundException("Secret not found (server.secret_not_found)");
+      }
+
+      return "1";
+    };
+    cache.get(key, loader);
+    Thread.sleep(1L);
+
+    assertEquals("1", cache.get(key, loader));
+    awaitRefreshFailures(cache, 1L);
+
+    assertEquals(0, cache.getStats().getSize());
+    assertThrows(SecretNotFoundException.class, () -> cache.get(key, loader));
+    cache.close();
+  }
+
+  @Test
+  @DisplayName("should not serve value older than stale period")
+  void shouldNotServeValueOlderThanStalePeriod() throws Exception {
+    SecretCache cache = new SecretCache(ClientOptions.builder()
+        .cacheTtl(Duration.ofNanos(1L))
+        .cacheStaleIfError(Duration.ofMillis(1L))
+        .build());
+    Key key = new Key(Kind.STRING, "test/path");
+    cache.get(key, () -> "1");
+    Thread.sleep(5L);
+
+    assertThrows(SecretHubException.class, () -> cache.get(key, () -> {
+      throw new SecretHubException(InMemorySecretHubLibrary.SERVICE_UNAVAILABLE);
+    }));
+  }
+
+  private void awaitRefreshFailures(SecretCache cache, long count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000L;
+
+    while (cache.getStats().getRefreshFailureCount() < count
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+
+    assertEquals(count, cache.getStats().getRefreshFailureCount());
+  }
+
+  private void await(CountDownLatch latch) {
+    try {
+      latch.await(5L, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void awaitRefreshes(SecretCache cache, long count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000L;
+
+    while (cache.getStats().getRefreshCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+
+    assertEquals(count, cache.getStats().getRefreshCount());
+  }
+
+  private SecretCache createCache(Duration ttl, int maxSize) {
+    return new SecretCache(ClientOptions.builder().cacheTtl(ttl).cacheMaxSize(maxSize).build());
+  }
+}
@@ -81,21 +81,26 @@ class SecretHubLibraryTests {
       String message = Client.getErrorMessage(errMessage);
       assertNull(message);
       assertNotNull(version);
-      assertEquals("e86d9e8f-aa9d-40bd-a52c-515bbcfb6b40", version.SecretVersionID);
+      assertEquals("e86d9e8f-aa9d-40bd-a52c-515bbcfb6b40",
+          NativeMemory.take(version.SecretVersionID));
       assertEquals(2, version.Version);
       assertEquals(1612407296L, version.CreatedAt);
-      assertEquals("ok", version.Status);
+      assertEquals("ok", NativeMemory.take(version.Status));
       assertNotNull(version.Secret);
-      assertEquals("89e453e1-4962-48cf-afc0-4f169c49da6b", version.Secret.SecretID);
-      assertEquals("1bb04779-89c7-4bf9-b7e9-7bdbec29841d", version.Secret.DirID);
-      assertEquals("11843657-61ed-49e1-996e-b124bc4ec28e", version.Secret.RepoID);
-      assertEquals("test", version.Secret.Name);
-      assertEquals("xwzC2LKr6lwNHW2odRkCcgKuevUC_VW8NeNizsSEG6g=", version.Secret.BlindName);
+      assertEquals("89e453e1-4962-48cf-afc0-4f169c49da6b",
+          NativeMemory.take(version.Secret.SecretID));
+      assertEquals("1bb04779-89c7-4bf9-b7e9-7bdbec29841d",
+          NativeMemory.take(version.Secret.DirID));
+      assertEquals("11843657-61ed-49e1-996e-b124bc4ec28e",
+          NativeMemory.take(version.Secret.RepoID));
+      assertEquals("test", NativeMemory.take(version.Secret.Name));
+      assertEquals("xwzC2LKr6lwNHW2odRkCcgKuevUC_VW8NeNizsSEG6g=",
+          NativeMemory.take(version.Secret.BlindName));
       assertEquals(2, version.Secret.VersionCount);
       assertEquals(2, version.Secret.LatestVersion);
-      assertEquals("ok", version.Secret.Status);
+      assertEquals("ok", NativeMemory.take(version.Secret.Status));
       assertEquals(1612384987L, version.Secret.CreatedAt);
-      assertEquals("SUCCESS", version.Data);
+      assertEquals("SUCCESS", NativeMemory.take(version.Data));
     }
 
     @Test
@@ -126,8 +131,8 @@ class SecretHubLibraryTests {
     @DisplayName("should read secret string")
     void shouldReadSecretString() {
       PointerByReference errMessage = new PointerByReference();
-      String secret = SecretHubLibrary.INSTANCE
-          .Client_ReadString(client, "jasonshobe/secrethub-java/test", errMessage);
+      String secret = NativeMemory.take(SecretHubLibrary.INSTANCE
+          .Client_ReadString(client, "jasonshobe/secrethub-java/test", errMessage));
       String message = Client.getErrorMessage(errMessage);
       assertNull(message);
       assertEquals("SUCCESS", secret);
@@ -137,8 +142,8 @@ class SecretHubLibraryTests {
     @DisplayName("should return error for missing secret string")
     void shouldReturnErrorForMissingSecretString() {
       PointerByReference errMessage = new PointerByReference();
-      SecretHubLibrary.INSTANCE
-          .Client_ReadString(client, "jasonshobe/secrethub-java/missing", errMessage);
+      NativeMemory.take(SecretHubLibrary.INSTANCE
+          .Client_ReadString(client, "jasonshobe/secrethub-java/missing", errMessage));
       String message = Client.getErrorMessage(errMessage);
       assertEquals(
           "cannot find secret: \"jasonshobe/secrethub-java/missing\": Secret not found (server.secret_not_found) ",
@@ -149,8 +154,8 @@ class SecretHubLibraryTests {
     @DisplayName("should resolve secret")
     void shouldResolveSecret() {
       PointerByReference errMessage = new PointerByReference();
-      String secret = SecretHubLibrary.INSTANCE
-          .Client_Resolve(client, "secrethub://jasonshobe/secrethub-java/test", errMessage);
+      String secret = NativeMemory.take(SecretHubLibrary.INSTANCE
+          .Client_Resolve(client, "secrethub://jasonshobe/secrethub-java/test", errMessage));
       String message = Client.getErrorMessage(errMessage);
       assertNull(message);
       assertEquals("SUCCESS", secret);
@@ -161,7 +166,8 @@ class SecretHubLibraryTests {
     @DisplayName("should resolve environment")
     void shouldResolveEnvironment() throws Exception {
       PointerByReference errMessage = new PointerByReference();
-      String json = SecretHubLibrary.INSTANCE.Client_ResolveEnv(client, errMessage);
+      String json = NativeMemory.take(SecretHubLibrary.INSTANCE
+          .Client_ResolveEnv(client, errMessage));
       String message = Client.getErrorMessage(errMessage);
       assertNull(message);
       assertNotNull(json);
@@ -223,7 +229,8 @@ class SecretHubLibraryTests {
 
     private String readSecret(String path) {
       PointerByReference errMessage = new PointerByReference();
-      String secret = SecretHubLibrary.INSTANCE.Client_ReadString(client, path, errMessage);
+      String secret = NativeMemory.take(SecretHubLibrary.INSTANCE
+          .Client_ReadString(client, path, errMessage));
       String error = Client.getErrorMessage(errMessage);
 
       if (error != null) {
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Secret Value")
+class SecretValueTests {
+
+  private static final String VALUE = "p\u00e4ssw\u00f6rd \ud83d\udd11";
+
+  @Test
+  @DisplayName("should return bytes")
+  void shouldReturnBytes() {
+    try (SecretValue value = createValue(VALUE)) {
+      ByteBuffer buffer = value.asByteBuffer();
+      byte[] actual = new byte[buffer.remaining()];
+      buffer.get(actual);
+
+      assertTrue(buffer.isReadOnly());
+      assertArrayEquals(VALUE.getBytes(StandardCharsets.UTF_8), actual);
+      assertEquals(actual.length, value.size());
+    }
+  }
+
+  @Test
+  @DisplayName("should return characters")
+  void shouldReturnCharacters() {
+    try (SecretValue value = createValue(VALUE)) {
+      CharSequence chars = value.asCharSequence();
+
+      assertEquals(VALUE.length(), chars.length());
+      assertEquals(VALUE, chars.toString());
+      assertEquals("ss", chars.subSequence(2, 4).toString());
+    }
+  }
+
+  @Test
+  @DisplayName("should read from input stream")
+  void shouldReadFromInputStream() throws IOException {
+    try (SecretValue value = createValue(VALUE); InputStream input = value.getInputStream()) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4];
+      int count;
+
+      assertEquals('p', input.read());
+
+      while ((count = input.read(buffer)) != -1) {
+        output.write(buffer, 0, count);
+      }
+
+      assertEquals(VALUE.substring(1), new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  @DisplayName("should wipe value when closed")
+  void shouldWipeValueWhenClosed() throws IOException {
+    SecretValue value = createValue(VALUE);
+    ByteBuffer bytes = value.asByteBuffer();
+    CharSequence chars = value.asCharSequence();
+    InputStream input = value.getInputStream();
+
+    value.close();
+
+    assertTrue(value.isClosed());
+    assertFalse(value.toString().contains("p"));
+
+    while (bytes.hasRemaining()) {
+      assertEquals(0, bytes.get());
+    }
+
+    for (int i = 0; i < chars.length(); i++) {
+      assertEquals('\0', chars.charAt(i));
+    }
+
+    assertThrows(IOException.class, input::read);
+    assertThrows(IllegalStateException.class, value::asCharSequence);
+    assertThrows(IllegalStateException.class, value::size);
+  }
+
+  @Test
+  @DisplayName("should copy value from native memory")
+  void shouldCopyValueFromNativeMemory() {
+    InMemorySecretHubLibrary library = new InMemorySecretHubLibrary();
+    library.put("test/path", VALUE);
+
+    try (Client client = library.createClient();
+        SecretValue value = client.readValue("test/path")) {
+      assertEquals(VALUE, value.asCharSequence().toString());
+      assertThrows(SecretNotFoundException.class, () -> client.readValue("test/missing"));
+    } catch (SecretHubException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private SecretValue createValue(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).clear();
+    return new SecretValue(buffer);
+  }
+}
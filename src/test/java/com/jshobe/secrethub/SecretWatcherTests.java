@@ -0,0 +1,165 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Secret Watcher")
+class SecretWatcherTests {
+
+  private final Map<String, SecretVersion> versions = new ConcurrentHashMap<>();
+  private final List<String> reads = Collections.synchronizedList(new ArrayList<>());
+  private final List<String> invalidated = Collections.synchronizedList(new ArrayList<>());
+  private SecretWatcher watcher;
+
+  @AfterEach
+  void tearDown() {
+    if (watcher != null) {
+      watcher.close();
+    }
+  }
+
+  @Test
+  @DisplayName("should notify listeners only when version changes")
+  void shouldNotifyListenersOnlyWhenVersionChanges() {
+    watcher = createWatcher(10);
+    List<SecretVersion> changes = new ArrayList<>();
+    setVersion("test/path", 1);
+    watcher.watch("test/path", (path, version) -> changes.add(version));
+
+    watcher.poll();
+    watcher.poll();
+    assertTrue(changes.isEmpty());
+
+    setVersion("test/path", 2);
+    watcher.poll();
+    watcher.poll();
+
+    assertEquals(1, changes.size());
+    assertEquals(2, changes.get(0).getVersion());
+    assertEquals(Collections.singletonList("test/path"), invalidated);
+  }
+
+  @Test
+  @DisplayName("should notify listeners when secret is removed")
+  void shouldNotifyListenersWhenSecretIsRemoved() {
+    watcher = createWatcher(10);
+    List<SecretVersion> changes = new ArrayList<>();
+    setVersion("test/path", 1);
+    watcher.watch("test/path", (path, version) -> changes.add(version));
+    watcher.poll();
+
+    versions.remove("test/path");
+    watcher.poll();
+
+    assertEquals(1, changes.size());
+    assertNull(changes.get(0));
+  }
+
+  @Test
+  @DisplayName("should read each path once per poll")
+  void shouldReadEachPathOncePerPoll() {
+    watcher = createWatcher(10);
+    List<String> changes = new ArrayList<>();
+    setVersion("test/path", 1);
+    watcher.watch("test/path", (path, version) -> changes.add("first"));
+    watcher.watch("test/path", (path, version) -> changes.add("second"));
+    watcher.poll();
+
+    setVersion("test/path", 2);
+    watcher.poll();
+
+    assertEquals(Arrays.asList("test/path", "test/path"), reads);
+    assertEquals(Arrays.asList("first", "second"), changes);
+  }
+
+  @Test
+  @DisplayName("should limit reads per poll")
+  void shouldLimitReadsPerPoll() {
+    watcher = createWatcher(2);
+
+    for (String path : Arrays.asList("test/a", "test/b", "test/c")) {
+      setVersion(path, 1);
+      watcher.watch(path, (p, version) -> {
+      });
+    }
+
+    watcher.poll();
+    assertEquals(Arrays.asList("test/a", "test/b"), reads);
+
+    watcher.poll();
+    assertEquals(Arrays.asList("test/a", "test/b", "test/c", "test/a"), reads);
+  }
+
+  @Test
+  @DisplayName("should stop polling path when last watch is closed")
+  void shouldStopPollingPathWhenLastWatchIsClosed() {
+    watcher = createWatcher(10);
+    setVersion("test/path", 1);
+    SecretWatch first = watcher.watch("test/path", (path, version) -> {
+    });
+    SecretWatch second = watcher.watch("test/path", (path, version) -> {
+    });
+
+    first.close();
+    assertEquals(1, watcher.size());
+
+    second.close();
+    watcher.poll();
+
+    assertEquals(0, watcher.size());
+    assertTrue(reads.isEmpty());
+  }
+
+  private SecretWatcher createWatcher(int maxReads) {
+    ClientOptions options = ClientOptions.builder()
+        .watchInterval(Duration.ofHours(1L))
+        .watchMaxReadsPerInterval(maxReads)
+        .build();
+    return new SecretWatcher(options, path -> {
+      reads.add(path);
+      SecretVersion version = versions.get(path);
+
+      if (version == null) {
+        throw new SecretNotFoundException("Secret not found (server.secret_not_found)");
+      }
+
+      return version;
+    }, invalidated::add);
+  }
+
+  private void setVersion(String path, int number) {
+    SecretVersion version = new SecretVersion();
+    version.setSecretVersionId(UUID.randomUUID());
+    version.setVersion(number);
+    versions.put(path, version);
+  }
+}
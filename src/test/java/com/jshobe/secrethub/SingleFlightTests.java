@@ -0,0 +1,167 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.jshobe.secrethub.SecretCache.Key;
+import com.jshobe.secrethub.SecretCache.Kind;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Single Flight")
+class SingleFlightTests {
+
+  private static final Key KEY = new Key(Kind.STRING, "test/path");
+
+  private final SingleFlight flights = new SingleFlight();
+
+  @Test
+  @DisplayName("should share result of call in progress")
+  void shouldShareResultOfCallInProgress() throws Exception {
+    CompletableFuture<String> started = new CompletableFuture<>();
+    CompletableFuture<String> first = flights.submit(KEY, () -> started);
+    CompletableFuture<String> second = flights.submit(KEY, () -> {
+      throw new AssertionError("unexpected call");
+    });
+    AtomicReference<String> synchronous = new AtomicReference<>();
+    Thread follower = new Thread(() -> {
+      try {
+        synchronous.set(flights.call(KEY, () -> "unexpected"));
+      } catch (SecretHubException e) {
+        synchronous.set(e.getMessage());
+      }
+    });
+    follower.start();
+    awaitWaiting(follower);
+
+    started.complete("shared");
+    follower.join(5000L);
+
+    assertEquals("shared", first.get(5L, TimeUnit.SECONDS));
+    assertEquals("shared", second.get(5L, TimeUnit.SECONDS));
+    assertEquals("shared", synchronous.get());
+    assertEquals(0, flights.size());
+  }
+
+  @Test
+  @DisplayName("should share exception of call in progress")
+  void shouldShareExceptionOfCallInProgress() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    SecretHubException error = new SecretHubException("test error");
+    Thread leader = new Thread(() -> {
+      try {
+        flights.call(KEY, () -> {
+          started.countDown();
+          await(release);
+          throw error;
+        });
+      } catch (SecretHubException e) {
+        // expected
+      }
+    });
+    leader.start();
+    assertTrue(started.await(5L, TimeUnit.SECONDS));
+
+    CompletableFuture<String> follower = flights.submit(KEY, CompletableFuture::new);
+    release.countDown();
+
+    ExecutionException thrown = assertThrows(ExecutionException.class,
+        () -> follower.get(5L, TimeUnit.SECONDS));
+    assertSame(error, thrown.getCause());
+    leader.join(5000L);
+  }
+
+  @Test
+  @DisplayName("should make new call after previous call completes")
+  void shouldMakeNewCallAfterPreviousCallCompletes() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+
+    assertEquals(1, flights.call(KEY, calls::incrementAndGet));
+    assertEquals(2, flights.call(KEY, calls::incrementAndGet));
+    assertEquals(0, flights.size());
+  }
+
+  @Test
+  @DisplayName("should not cancel shared call")
+  void shouldNotCancelSharedCall() throws Exception {
+    CompletableFuture<String> started = new CompletableFuture<>();
+    CompletableFuture<String> first = flights.submit(KEY, () -> started);
+    CompletableFuture<String> second = flights.submit(KEY, CompletableFuture::new);
+
+    first.cancel(true);
+    started.complete("value");
+
+    assertTrue(first.isCancelled());
+    assertEquals("value", second.get(5L, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @DisplayName("should forget calls for modified path")
+  void shouldForgetCallsForModifiedPath() throws Exception {
+    flights.submit(KEY, CompletableFuture::new);
+    flights.submit(new Key(Kind.VERSION, "test/path:2"), CompletableFuture::new);
+    flights.submit(new Key(Kind.VERSION, "test/other"), CompletableFuture::new);
+
+    flights.forget("test/path");
+
+    assertEquals(1, flights.size());
+    assertEquals("new", flights.submit(KEY, () -> CompletableFuture.completedFuture("new"))
+        .get(5L, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @DisplayName("should rethrow unchecked exception")
+  void shouldRethrowUncheckedException() {
+    IllegalStateException error = new IllegalStateException("test error");
+
+    IllegalStateException thrown = assertThrows(IllegalStateException.class,
+        () -> flights.call(KEY, () -> {
+          throw error;
+        }));
+    assertSame(error, thrown);
+    assertEquals(0, flights.size());
+  }
+
+  private void awaitWaiting(Thread thread) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000L;
+
+    while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1L);
+    }
+
+    assertEquals(Thread.State.WAITING, thread.getState());
+  }
+
+  private void await(CountDownLatch latch) {
+    try {
+      latch.await(5L, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.jshobe.secrethub.InMemorySecretHubLibrary.Operation;
+import com.jshobe.secrethub.SnapshotFile.Entry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Snapshot Cache")
+class SnapshotCacheTests {
+
+  private static final char[] PASSPHRASE = "correct horse battery staple".toCharArray();
+
+  @TempDir
+  Path directory;
+
+  @Test
+  @DisplayName("should read versions written to file")
+  void shouldReadVersionsWrittenToFile() throws Exception {
+    Path path = directory.resolve("snapshot");
+    SecretVersion version = new SecretVersion();
+    version.setSecretVersionId(UUID.randomUUID());
+    version.setVersion(3);
+    version.setData("SUCCESS");
+    version.setCreatedAt(LocalDateTime.of(2021, 2, 3, 4, 5, 6));
+    version.setStatus("ok");
+    version.setSecret(new Secret());
+    version.getSecret().setSecretId(UUID.randomUUID());
+    version.getSecret().setName("test");
+    version.getSecret().setVersionCount(3);
+    version.getSecret().setLatestVersion(3);
+    List<Entry> entries = Arrays.asList(new Entry("test/repo/first", 1L, version),
+        new Entry("test/repo/second", 2L, new SecretVersion()));
+
+    new SnapshotFile(path, PASSPHRASE).write(entries);
+
+    assertEquals(entries, new SnapshotFile(path, PASSPHRASE).read());
+    String contents = new String(Files.readAllBytes(path), StandardCharsets.ISO_8859_1);
+    assertFalse(contents.contains("SUCCESS"));
+  }
+
+  @Test
+  @DisplayName("should read multibyte characters written to file")
+  void shouldReadMultibyteCharactersWrittenToFile() throws Exception {
+    Path path = directory.resolve("snapshot");
+    SecretVersion version = new SecretVersion();
+    version.setData("p\u00e4ssw\u00f6rd \u20ac \ud83d\udd11");
+    List<Entry> entries = Arrays.asList(new Entry("test/repo/\u00fc", 1L, version));
+
+    new SnapshotFile(path, PASSPHRASE).write(entries);
+
+    assertEquals(entries, new SnapshotFile(path, PASSPHRASE).read());
+  }
+
+  @Test
+  @DisplayName("should use iterations in file header")
+  void shouldUseIterationsInFileHeader() throws Exception {
+    Path path = directory.resolve("snapshot");
+    Files.write(path, createHeader(200_000));
+    List<Entry> entries = Arrays.asList(new Entry("test/repo/first", 1L, new SecretVersion()));
+
+    new SnapshotFile(path, PASSPHRASE).write(entries);
+
+    assertEquals(200_000, ByteBuffer.wrap(Files.readAllBytes(path)).getInt(5));
+    assertEquals(entries, new SnapshotFile(path, PASSPHRASE).read());
+  }
+
+  @Test
+  @DisplayName("should replace file with too many iterations")
+  void shouldReplaceFileWithTooManyIterations() throws Exception {
+    Path path = directory.resolve("snapshot");
+    Files.write(path, createHeader(Integer.MAX_VALUE));
+    SnapshotFile file = new SnapshotFile(path, PASSPHRASE);
+
+    assertThrows(SecretHubException.class, file::read);
+    file.write(Arrays.asList(new Entry("test/repo/first", 1L, new SecretVersion())));
+    assertEquals(100_000, ByteBuffer.wrap(Files.readAllBytes(path)).getInt(5));
+  }
+
+  @Test
+  @DisplayName("should not read file with wrong passphrase")
+  void shouldNotReadFileWithWrongPassphrase() throws Exception {
+    Path path = directory.resolve("snapshot");
+    new SnapshotFile(path, PASSPHRASE).write(Arrays.asList(
+        new Entry("test/repo/first", 1L, new SecretVersion())));
+
+    SnapshotFile file = new SnapshotFile(path, "wrong".toCharArray());
+    assertThrows(SecretHubException.class, file::read);
+  }
+
+  @Test
+  @DisplayName("should copy snapshot passphrase")
+  void shouldCopySnapshotPassphrase() {
+    char[] passphrase = PASSPHRASE.clone();
+    ClientOptions options = ClientOptions.builder().snapshotPassphrase(passphrase).build();
+    Arrays.fill(passphrase, '\0');
+
+    assertArrayEquals(PASSPHRASE, options.getSnapshotPassphrase());
+    assertArrayEquals(PASSPHRASE, options.toBuilder().build().getSnapshotPassphrase());
+  }
+
+  @Test
+  @DisplayName("should keep version recorded while loading")
+  void shouldKeepVersionRecordedWhileLoading() throws Exception {
+    Path path = directory.resolve("snapshot");
+    SecretVersion saved = new SecretVersion();
+    saved.setData("saved");
+    new SnapshotFile(path, PASSPHRASE).write(Arrays.asList(
+        new Entry("test/repo/first", System.currentTimeMillis(), saved)));
+    ClientOptions options = ClientOptions.builder()
+        .snapshotPath(path)
+        .snapshotPassphrase(PASSPHRASE)
+        .build();
+    SecretVersion recorded = new SecretVersion();
+    recorded.setData("recorded");
+
+    SnapshotCache cache = SnapshotCache.open(options);
+    cache.record("test/repo/first", recorded);
+
+    assertNull(cache.serve("test/repo/first", revalidated -> {
+    }));
+    cache.save();
+    assertEquals(recorded, new SnapshotFile(path, PASSPHRASE).read().get(0).getVersion());
+  }
+
+  @Test
+  @DisplayName("should serve snapshot and revalidate in background")
+  void shouldServeSnapshotAndRevalidateInBackground() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/first", "1");
+    ClientOptions options = ClientOptions.builder()
+        .snapshotPath(directory.resolve("snapshot"))
+        .snapshotPassphrase(PASSPHRASE)
+        .build();
+
+    try (Client client = memory.createClient(options)) {
+      assertEquals("1", client.readString("test/repo/first"));
+      assertEquals("1", client.read("test/repo/first").getData());
+    }
+
+    memory.put("test/repo/first", "2");
+    memory.resetCallCounts();
+
+    try (Client client = memory.createClient(options)) {
+      assertEquals("1", client.read("test/repo/first").getData());
+      long deadline = System.nanoTime() + 5_000_000_000L;
+
+      while (!"2".equals(client.readString("test/repo/first"))) {
+        if (System.nanoTime() - deadline > 0L) {
+          throw new AssertionError("The snapshot was not revalidated");
+        }
+
+        Thread.sleep(5L);
+      }
+    }
+
+    assertEquals(1L, memory.getCallCount(Operation.READ));
+  }
+
+  private byte[] createHeader(int iterations) {
+    ByteBuffer header = ByteBuffer.allocate(37);
+    header.putInt(0x53485331).put((byte) 1).putInt(iterations).put(new byte[28]);
+    return header.array();
+  }
+}
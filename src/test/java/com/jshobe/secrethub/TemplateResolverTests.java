@@ -0,0 +1,135 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.jshobe.secrethub.InMemorySecretHubLibrary.Operation;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Template Resolver")
+class TemplateResolverTests {
+
+  @Test
+  @DisplayName("should replace references")
+  void shouldReplaceReferences() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.put("test/repo/user", "admin");
+    memory.put("test/repo/password", "p4ssw0rd");
+
+    String template = "user={{ secrethub://test/repo/user }}\n"
+        + "password={{secrethub://test/repo/password}}\n"
+        + "login={{  secrethub://test/repo/user  }}:{{ secrethub://test/repo/password }}\n";
+
+    try (Client client = memory.createClient()) {
+      StringWriter out = new StringWriter();
+      TemplateResult result = new TemplateResolver(client).resolve(template, out);
+
+      assertEquals("user=admin\npassword=p4ssw0rd\nlogin=admin:p4ssw0rd\n", out.toString());
+      assertEquals(4, result.getReferenceCount());
+      assertThat(result.getResolveTimes().keySet(),
+          contains("secrethub://test/repo/user", "secrethub://test/repo/password"));
+    }
+
+    assertEquals(2L, memory.getCallCount(Operation.RESOLVE));
+  }
+
+  @Test
+  @DisplayName("should copy text that is not a reference")
+  void shouldCopyTextThatIsNotAReference() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    String template = "a { b } {{ name }} {{ secrethub:// }} {{ secrethub://a b }} }} "
+        + "{{ secrethub://x";
+
+    try (Client client = memory.createClient()) {
+      assertEquals(template, new TemplateResolver(client).resolve(template));
+    }
+
+    assertEquals(0L, memory.getCallCount(Operation.RESOLVE));
+  }
+
+  @Test
+  @DisplayName("should stream large template")
+  void shouldStreamLargeTemplate() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+    memory.setLatency(LatencyModel.fixed(Duration.ofMillis(1L)));
+    StringBuilder template = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+
+    for (int i = 0; i < 200; i++) {
+      memory.put("test/repo/secret" + i, "value" + i);
+      template.append("key").append(i).append("={{ secrethub://test/repo/secret").append(i % 50)
+          .append(" }}\n");
+      expected.append("key").append(i).append("=value").append(i % 50).append('\n');
+
+      for (int j = 0; j < 100; j++) {
+        template.append("# filler text {not a reference}\n");
+        expected.append("# filler text {not a reference}\n");
+      }
+    }
+
+    try (Client client = memory.createClient()) {
+      StringWriter out = new StringWriter();
+      Reader in = new OneCharacterReader(new StringReader(template.toString()));
+      TemplateResult result = new TemplateResolver(client, 0).resolve(in, out);
+
+      assertEquals(expected.toString(), out.toString());
+      assertEquals(200, result.getReferenceCount());
+      assertEquals(50, result.getResolveTimes().size());
+    }
+
+    assertEquals(50L, memory.getCallCount(Operation.RESOLVE));
+  }
+
+  @Test
+  @DisplayName("should throw exception for missing secret")
+  void shouldThrowExceptionForMissingSecret() throws Exception {
+    InMemorySecretHubLibrary memory = new InMemorySecretHubLibrary();
+
+    try (Client client = memory.createClient()) {
+      TemplateResolver resolver = new TemplateResolver(client);
+      assertThrows(SecretNotFoundException.class,
+          () -> resolver.resolve("value={{ secrethub://test/repo/missing }}"));
+    }
+  }
+
+  /**
+   * {@code OneCharacterReader} returns a single character from each read, so that references are
+   * split across reads.
+   */
+  private static final class OneCharacterReader extends FilterReader {
+
+    OneCharacterReader(Reader in) {
+      super(in);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      return super.read(buffer, offset, Math.min(1, length));
+    }
+  }
+}
@@ -0,0 +1,591 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@code InMemorySecretHubLibrary} is an implementation of {@link SecretHubLibrary} that stores
+ * secrets in memory instead of calling the SecretHub API. It can be used to test, benchmark and
+ * load-test code that uses a {@link com.jshobe.secrethub.Client} on machines without network
+ * access or credentials.
+ *
+ * <p>Each secret keeps all of its versions, so reads of {@code path:version} and the version
+ * numbers and counts returned by {@link com.jshobe.secrethub.Client#read(String)} behave like the
+ * real API. The latency and error rate of each operation can be configured, and the number of
+ * calls made to each operation is counted.</p>
+ *
+ * <p>Like the native library, the strings and error messages returned by this library are
+ * allocated with {@code malloc} and must be freed by the caller.</p>
+ *
+ * <pre>{@code
+ * InMemorySecretHubLibrary library = new InMemorySecretHubLibrary();
+ * library.put("example/repo/db-password", "secret");
+ * library.setLatency(LatencyModel.logNormal(Duration.ofMillis(40), 0.5));
+ * library.setErrorRate(Operation.READ, 0.01);
+ *
+ * try (Client client = library.createClient()) {
+ *   // ...
+ * }
+ * }</pre>
+ */
+public class InMemorySecretHubLibrary implements SecretHubLibrary {
+
+  /**
+   * The error message set when a secret does not exist.
+   */
+  public static final String SECRET_NOT_FOUND = "Secret not found (server.secret_not_found)";
+
+  /**
+   * The error message set when a version of a secret does not exist.
+   */
+  public static final String VERSION_NOT_FOUND =
+      "Secret version not found (server.secret_version_not_found)";
+
+  /**
+   * The default error message set when a failure is injected.
+   */
+  public static final String SERVICE_UNAVAILABLE =
+      "The SecretHub API is unavailable (server.service_unavailable)";
+
+  private static final String REFERENCE_PREFIX = "secrethub://";
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final ConcurrentMap<String, StoredSecret> secrets = new ConcurrentHashMap<>();
+  private final Map<Operation, LatencyModel> latencies = new ConcurrentHashMap<>();
+  private final Map<Operation, Double> errorRates = new ConcurrentHashMap<>();
+  private final Map<Operation, LongAdder> callCounts = new EnumMap<>(Operation.class);
+  private final AtomicLong clientIds = new AtomicLong();
+  private volatile String injectedErrorMessage = SERVICE_UNAVAILABLE;
+  private volatile boolean pinCarrierThreads;
+
+  /**
+   * Creates a new instance of {@code InMemorySecretHubLibrary} that has no latency and no injected
+   * errors.
+   */
+  public InMemorySecretHubLibrary() {
+    for (Operation operation : Operation.values()) {
+      callCounts.put(operation, new LongAdder());
+    }
+  }
+
+  /**
+   * Creates a new client that uses this library.
+   *
+   * @return the new client.
+   * @throws SecretHubException if the client could not be created.
+   */
+  public com.jshobe.secrethub.Client createClient() throws SecretHubException {
+    return createClient(ClientOptions.defaults());
+  }
+
+  /**
+   * Creates a new client that uses this library.
+   *
+   * @param options the client options.
+   * @return the new client.
+   * @throws SecretHubException if the client could not be created.
+   */
+  public com.jshobe.secrethub.Client createClient(ClientOptions options)
+      throws SecretHubException {
+    return new com.jshobe.secrethub.Client(this, options);
+  }
+
+  /**
+   * Adds a new version of a secret without adding latency, injecting errors or counting a call.
+   *
+   * @param path the path to the secret.
+   * @param data the value of the secret.
+   * @return the version number.
+   */
+  public int put(String path, String data) {
+    return secrets.computeIfAbsent(path, StoredSecret::new).addVersion(data);
+  }
+
+  /**
+   * Sets the latency of all operations.
+   *
+   * @param latency the latency model.
+   */
+  public void setLatency(LatencyModel latency) {
+    for (Operation operation : Operation.values()) {
+      setLatency(operation, latency);
+    }
+  }
+
+  /**
+   * Sets the latency of an operation.
+   *
+   * @param operation the operation.
+   * @param latency   the latency model.
+   */
+  public void setLatency(Operation operation, LatencyModel latency) {
+    latencies.put(operation, latency);
+  }
+
+  /**
+   * Sets the fraction of calls to all operations that fail.
+   *
+   * @param errorRate the error rate, between {@code 0.0} and {@code 1.0}.
+   */
+  public void setErrorRate(double errorRate) {
+    for (Operation operation : Operation.values()) {
+      setErrorRate(operation, errorRate);
+    }
+  }
+
+  /**
+   * Sets the fraction of calls to an operation that fail.
+   *
+   * @param operation the operation.
+   * @param errorRate the error rate, between {@code 0.0} and {@code 1.0}.
+   */
+  public void setErrorRate(Operation operation, double errorRate) {
+    errorRates.put(operation, errorRate);
+  }
+
+  /**
+   * Sets the error message of the failures that are injected.
+   *
+   * @param message the error message.
+   */
+  public void setErrorMessage(String message) {
+    this.injectedErrorMessage = message;
+  }
+
+  /**
+   * Sets whether calls hold a monitor while they wait for their latency. A virtual thread cannot
+   * unmount from its carrier thread while it holds a monitor, so this simulates the way that a call
+   * to the native library pins the carrier thread. By default, waiting calls do not pin.
+   *
+   * @param pinCarrierThreads {@code true} to pin carrier threads or {@code false} to let virtual
+   *                          threads park.
+   */
+  public void setPinCarrierThreads(boolean pinCarrierThreads) {
+    this.pinCarrierThreads = pinCarrierThreads;
+  }
+
+  /**
+   * Gets the number of calls that have been made to an operation.
+   *
+   * @param operation the operation.
+   * @return the number of calls.
+   */
+  public long getCallCount(Operation operation) {
+    return callCounts.get(operation).sum();
+  }
+
+  /**
+   * Gets the number of calls that have been made to all operations.
+   *
+   * @return the number of calls.
+   */
+  public long getTotalCallCount() {
+    long total = 0L;
+
+    for (LongAdder count : callCounts.values()) {
+      total += count.sum();
+    }
+
+    return total;
+  }
+
+  /**
+   * Resets the number of calls made to each operation to zero.
+   */
+  public void resetCallCounts() {
+    for (LongAdder count : callCounts.values()) {
+      count.reset();
+    }
+  }
+
+  @Override
+  public Client new_Client(PointerByReference errMessage) {
+    if (!begin(Operation.NEW_CLIENT, errMessage)) {
+      return new Client();
+    }
+
+    Client client = new Client();
+    client.ID = clientIds.incrementAndGet();
+    return client;
+  }
+
+  @Override
+  public void delete_Client(Client client) {
+    callCounts.get(Operation.DELETE_CLIENT).increment();
+  }
+
+  @Override
+  public SecretVersion.ByValue Client_Read(Client client, String path,
+      PointerByReference errMessage) {
+    SecretVersion.ByValue result = new SecretVersion.ByValue();
+
+    if (begin(Operation.READ, errMessage)) {
+      StoredVersion version = find(path, errMessage);
+
+      if (version != null) {
+        version.copyTo(result);
+      }
+    }
+
+    return result;
+  }
+
+  @Override
+  public Pointer Client_ReadString(Client client, String path, PointerByReference errMessage) {
+    if (begin(Operation.READ_STRING, errMessage)) {
+      StoredVersion version = find(path, errMessage);
+      return version == null ? null : allocate(version.data);
+    }
+
+    return null;
+  }
+
+  @Override
+  public Pointer Client_Resolve(Client client, String ref, PointerByReference errMessage) {
+    if (begin(Operation.RESOLVE, errMessage)) {
+      return allocate(resolve(ref, errMessage));
+    }
+
+    return null;
+  }
+
+  @Override
+  public Pointer Client_ResolveEnv(Client client, PointerByReference errMessage) {
+    if (!begin(Operation.RESOLVE_ENV, errMessage)) {
+      return null;
+    }
+
+    Map<String, String> environment = new TreeMap<>();
+
+    for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+      String value = resolve(entry.getValue(), errMessage);
+
+      if (value == null) {
+        return null;
+      }
+
+      environment.put(entry.getKey(), value);
+    }
+
+    try {
+      return allocate(MAPPER.writeValueAsString(environment));
+    } catch (JsonProcessingException e) {
+      setError(errMessage, e.getMessage());
+      return null;
+    }
+  }
+
+  @Override
+  public boolean Client_Exists(Client client, String path, PointerByReference errMessage) {
+    return begin(Operation.EXISTS, errMessage) && secrets.containsKey(path);
+  }
+
+  @Override
+  public void Client_Remove(Client client, String path, PointerByReference errMessage) {
+    if (begin(Operation.REMOVE, errMessage)) {
+      secrets.remove(path);
+    }
+  }
+
+  @Override
+  public void Client_Write(Client client, String path, String secret,
+      PointerByReference errMessage) {
+    if (begin(Operation.WRITE, errMessage)) {
+      put(path, secret);
+    }
+  }
+
+  /**
+   * Counts a call to an operation, waits for its latency and injects a failure if required.
+   *
+   * @param operation  the operation.
+   * @param errMessage a pointer where any error message will be stored.
+   * @return {@code true} if the call should proceed or {@code false} if it failed.
+   */
+  private boolean begin(Operation operation, PointerByReference errMessage) {
+    callCounts.get(operation).increment();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    LatencyModel latency = latencies.get(operation);
+
+    if (latency != null) {
+      long delay = latency.nextDelayNanos(random);
+
+      if (pinCarrierThreads) {
+        synchronized (new Object()) {
+          await(delay);
+        }
+      } else {
+        await(delay);
+      }
+    }
+
+    Double errorRate = errorRates.get(operation);
+
+    if (errorRate != null && random.nextDouble() < errorRate) {
+      setError(errMessage, injectedErrorMessage);
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Waits for an amount of time.
+   *
+   * @param delay the time to wait, in nanoseconds.
+   */
+  private static void await(long delay) {
+    long deadline = System.nanoTime() + delay;
+    long remaining;
+
+    while ((remaining = deadline - System.nanoTime()) > 0L) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  /**
+   * Finds a version of a secret.
+   *
+   * @param path       the path to the secret, optionally followed by {@code :version}.
+   * @param errMessage a pointer where any error message will be stored.
+   * @return the version or {@code null} if it does not exist.
+   */
+  private StoredVersion find(String path, PointerByReference errMessage) {
+    String secretPath = path;
+    int versionNumber = -1;
+    int separator = path.lastIndexOf(':');
+
+    if (separator > 0) {
+      String suffix = path.substring(separator + 1);
+      secretPath = path.substring(0, separator);
+
+      if (!"latest".equals(suffix)) {
+        try {
+          versionNumber = Integer.parseInt(suffix);
+        } catch (NumberFormatException e) {
+          setError(errMessage, VERSION_NOT_FOUND);
+          return null;
+        }
+      }
+    }
+
+    StoredSecret secret = secrets.get(secretPath);
+
+    if (secret == null) {
+      setError(errMessage, SECRET_NOT_FOUND);
+      return null;
+    }
+
+    StoredVersion version = secret.getVersion(versionNumber);
+
+    if (version == null) {
+      setError(errMessage, VERSION_NOT_FOUND);
+    }
+
+    return version;
+  }
+
+  /**
+   * Resolves a secret reference.
+   *
+   * @param ref        the reference.
+   * @param errMessage a pointer where any error message will be stored.
+   * @return the secret value, <i>ref</i> if it is not a reference, or {@code null} if the secret
+   *     does not exist.
+   */
+  private String resolve(String ref, PointerByReference errMessage) {
+    if (!ref.startsWith(REFERENCE_PREFIX)) {
+      return ref;
+    }
+
+    StoredVersion version = find(ref.substring(REFERENCE_PREFIX.length()), errMessage);
+    return version == null ? null : version.data;
+  }
+
+  /**
+   * Sets the error message of a call.
+   *
+   * @param errMessage a pointer where the error message will be stored.
+   * @param message    the error message.
+   */
+  private static void setError(PointerByReference errMessage, String message) {
+    errMessage.setValue(allocate(message));
+  }
+
+  /**
+   * Copies a string into memory allocated with {@code malloc}, which the caller must free.
+   *
+   * @param value the string.
+   * @return a pointer to the null-terminated UTF-8 string or {@code null} if <i>value</i> is
+   *     {@code null}.
+   */
+  private static Pointer allocate(String value) {
+    if (value == null) {
+      return null;
+    }
+
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    Pointer pointer = new Pointer(Native.malloc(bytes.length + 1L));
+    pointer.write(0L, bytes, 0, bytes.length);
+    pointer.setByte(bytes.length, (byte) 0);
+    return pointer;
+  }
+
+  /**
+   * {@code Operation} identifies the functions of the library.
+   */
+  public enum Operation {
+    /**
+     * {@link SecretHubLibrary#new_Client}.
+     */
+    NEW_CLIENT,
+
+    /**
+     * {@link SecretHubLibrary#delete_Client}.
+     */
+    DELETE_CLIENT,
+
+    /**
+     * {@link SecretHubLibrary#Client_Read}.
+     */
+    READ,
+
+    /**
+     * {@link SecretHubLibrary#Client_ReadString}.
+     */
+    READ_STRING,
+
+    /**
+     * {@link SecretHubLibrary#Client_Resolve}.
+     */
+    RESOLVE,
+
+    /**
+     * {@link SecretHubLibrary#Client_ResolveEnv}.
+     */
+    RESOLVE_ENV,
+
+    /**
+     * {@link SecretHubLibrary#Client_Exists}.
+     */
+    EXISTS,
+
+    /**
+     * {@link SecretHubLibrary#Client_Remove}.
+     */
+    REMOVE,
+
+    /**
+     * {@link SecretHubLibrary#Client_Write}.
+     */
+    WRITE
+  }
+
+  /**
+   * {@code StoredSecret} is a secret and all of its versions.
+   */
+  private static class StoredSecret {
+
+    private final String secretId = UUID.randomUUID().toString();
+    private final String directoryId = UUID.randomUUID().toString();
+    private final String repositoryId = UUID.randomUUID().toString();
+    private final String name;
+    private final String blindName;
+    private final long createdAt = System.currentTimeMillis() / 1000L;
+    private final List<StoredVersion> versions = new ArrayList<>();
+
+    StoredSecret(String path) {
+      this.name = path.substring(path.lastIndexOf('/') + 1);
+      this.blindName = Base64.getUrlEncoder()
+          .encodeToString(path.getBytes(StandardCharsets.UTF_8));
+    }
+
+    synchronized int addVersion(String data) {
+      StoredVersion version = new StoredVersion(this, versions.size() + 1, data);
+      versions.add(version);
+      return version.version;
+    }
+
+    synchronized StoredVersion getVersion(int version) {
+      if (version < 0) {
+        return versions.get(versions.size() - 1);
+      }
+
+      return version > 0 && version <= versions.size() ? versions.get(version - 1) : null;
+    }
+
+    synchronized int getVersionCount() {
+      return versions.size();
+    }
+  }
+
+  /**
+   * {@code StoredVersion} is a version of a secret.
+   */
+  private static class StoredVersion {
+
+    private final StoredSecret secret;
+    private final String versionId = UUID.randomUUID().toString();
+    private final int version;
+    private final String data;
+    private final long createdAt = System.currentTimeMillis() / 1000L;
+
+    StoredVersion(StoredSecret secret, int version, String data) {
+      this.secret = secret;
+      this.version = version;
+      this.data = data;
+    }
+
+    void copyTo(SecretVersion target) {
+      int versionCount = secret.getVersionCount();
+      target.SecretVersionID = allocate(versionId);
+      target.Version = version;
+      target.Data = allocate(data);
+      target.CreatedAt = createdAt;
+      target.Status = allocate("ok");
+      target.Secret = new Secret();
+      target.Secret.SecretID = allocate(secret.secretId);
+      target.Secret.DirID = allocate(secret.directoryId);
+      target.Secret.RepoID = allocate(secret.repositoryId);
+      target.Secret.Name = allocate(secret.name);
+      target.Secret.BlindName = allocate(secret.blindName);
+      target.Secret.VersionCount = versionCount;
+      target.Secret.LatestVersion = versionCount;
+      target.Secret.Status = allocate("ok");
+      target.Secret.CreatedAt = secret.createdAt;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Jason Shobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jshobe.secrethub;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@code LatencyModel} is a distribution of the delays added to the calls made to an
+ * {@link InMemorySecretHubLibrary}, used to simulate the latency of the SecretHub API.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+  /**
+   * Gets the delay for the next call.
+   *
+   * @param random the random number generator.
+   * @return the delay, in nanoseconds.
+   */
+  long nextDelayNanos(ThreadLocalRandom random);
+
+  /**
+   * Creates a model that adds no delay.
+   *
+   * @return the latency model.
+   */
+  static LatencyModel none() {
+    return random -> 0L;
+  }
+
+  /**
+   * Creates a model that adds the same delay to every call.
+   *
+   * @param delay the delay.
+   * @return the latency model.
+   */
+  static LatencyModel fixed(Duration delay) {
+    long nanos = delay.toNanos();
+    return random -> nanos;
+  }
+
+  /**
+   * Creates a model where the delays are uniformly distributed between two values.
+   *
+   * @param min the minimum delay.
+   * @param max the maximum delay.
+   * @return the latency model.
+   * @throws IllegalArgumentException if <i>max</i> is less than <i>min</i>.
+   */
+  static LatencyModel uniform(Duration min, Duration max) {
+    long minNanos = min.toNanos();
+    long maxNanos = max.toNanos();
+
+    if (maxNanos < minNanos) {
+      throw new IllegalArgumentException("The maximum delay is less than the minimum delay");
+    }
+
+    return random -> minNanos == maxNanos ? minNanos : random.nextLong(minNanos, maxNanos + 1L);
+  }
+
+  /**
+   * Creates a model where the delays follow a log-normal distribution, which is typical of the
+   * response times of a remote API: most calls are close to the median with a long tail of slow
+   * calls.
+   *
+   * @param median the median delay.
+   * @param sigma  the standard deviation of the logarithm of the delay. Larger values produce a
+   *               longer tail.
+   * @return the latency model.
+   */
+  static LatencyModel logNormal(Duration median, double sigma) {
+    double mu = Math.log(median.toNanos());
+    return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+  }
+}